@@ -5,10 +5,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import javax.ws.rs.BadRequestException;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import cucumber.api.java.en.Then;
@@ -22,6 +26,7 @@ import io.syndesis.qe.bdd.entities.StepDefinition;
 import io.syndesis.qe.bdd.storage.StepsStorage;
 import io.syndesis.qe.endpoints.IntegrationsEndpoint;
 import io.syndesis.qe.endpoints.Verifier;
+import io.syndesis.qe.templates.ResourceDeployer;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -99,6 +104,33 @@ public class IntegrationHandler {
         }
     }
 
+    /**
+     * Publishes already created integrations in parallel, the failures are reported with the names of the integrations.
+     *
+     * @param integrationNames comma separated integration names
+     */
+    @When("^publish integrations with names: \"([^\"]*)\"$")
+    public void publishIntegrations(String integrationNames) {
+        final Map<String, CompletableFuture<Void>> published = new LinkedHashMap<>();
+        for (String integrationName : integrationNames.split(",")) {
+            final String integrationId = integrationsEndpoint.getIntegrationId(integrationName.trim()).get();
+            log.info("Publish integration {} with ID: {}", integrationName.trim(), integrationId);
+            published.put(integrationName.trim(), integrationsEndpoint.activateIntegrationAsync(integrationId));
+        }
+        final List<String> failures = new ArrayList<>();
+        for (Map.Entry<String, CompletableFuture<Void>> publish : published.entrySet()) {
+            try {
+                ResourceDeployer.join(publish.getValue());
+            } catch (RuntimeException e) {
+                log.error("Unable to publish integration {}", publish.getKey(), e);
+                failures.add(publish.getKey() + ": " + e);
+            }
+        }
+        if (!failures.isEmpty()) {
+            Assertions.fail("Unable to publish integrations " + failures);
+        }
+    }
+
     @Then("^try to create new integration with the same name: \"([^\"]*)\" and state: \"([^\"]*)\"$")
     public void sameNameIntegrationValidation(String integrationName, String desiredState) {
 
@@ -9,6 +9,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import cucumber.api.java.en.Given;
 import io.cucumber.datatable.DataTable;
@@ -52,6 +53,33 @@ public class ConnectionSteps {
             connectionPropertiesMap.put(cell.get(0), cell.get(1));
         }
 
+        final Connection connection = buildConnection(connectionPropertiesMap);
+        log.info("Creating {} connection with properties {}", connection.getConnectorId().orElse(null), connection.getConfiguredProperties());
+        connectionsEndpoint.create(connection);
+    }
+
+    /**
+     * Creates multiple connections in parallel, each row of the table describes one connection in the same format as in the
+     * "create connection" step. Empty cells are ignored.
+     */
+    @Given("^create multiple connections$")
+    public void createConnections(DataTable connectionsProperties) {
+        final List<CompletableFuture<Connection>> created = new ArrayList<>();
+        for (Map<String, String> row : connectionsProperties.asMaps(String.class, String.class)) {
+            final Map<String, String> connectionPropertiesMap = new HashMap<>();
+            row.forEach((key, value) -> {
+                if (value != null && !value.isEmpty()) {
+                    connectionPropertiesMap.put(key, value);
+                }
+            });
+            final Connection connection = buildConnection(connectionPropertiesMap);
+            log.info("Creating {} connection {}", connection.getConnectorId().orElse(null), connection.getName());
+            created.add(connectionsEndpoint.createAsync(connection));
+        }
+        CompletableFuture.allOf(created.toArray(new CompletableFuture[0])).join();
+    }
+
+    private Connection buildConnection(Map<String, String> connectionPropertiesMap) {
         final String connectorName = connectionPropertiesMap.get("connector").toUpperCase();
         final String connectorId = RestTestsUtils.Connector.valueOf(connectorName).getId();
         final String connectionId = connectionPropertiesMap.get("connectionId");
@@ -74,7 +102,7 @@ public class ConnectionSteps {
             }
         }
 
-        final Connection connection = new Connection.Builder()
+        return new Connection.Builder()
                 .connector(connector)
                 .connectorId(getConnectorId(connector))
                 .id(connectionId != null ? connectionId : RestTestsUtils.Connection.valueOf(connectorName).getId())
@@ -83,8 +111,6 @@ public class ConnectionSteps {
                 .icon(connector.getIcon())
                 .tags(Collections.singletonList(connectorId))
                 .build();
-        log.info("Creating {} connection with properties {}", connectorId, connectionPropertiesMap);
-        connectionsEndpoint.create(connection);
     }
 
     @Given("^create ActiveMQ connection")
@@ -17,7 +17,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.math.BigDecimal;
-import java.net.URL;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -38,6 +37,8 @@ import io.fabric8.openshift.api.model.DeploymentConfig;
 import io.fabric8.openshift.api.model.ImageStream;
 import io.syndesis.qe.TestConfiguration;
 import io.syndesis.qe.endpoints.IntegrationsEndpoint;
+import io.syndesis.qe.utils.ArtifactCache;
+import io.syndesis.qe.utils.NamespacePool;
 import io.syndesis.qe.utils.OpenShiftUtils;
 import io.syndesis.qe.utils.RestUtils;
 import io.syndesis.qe.utils.TestUtils;
@@ -61,6 +62,8 @@ public class UpgradeSteps {
 
     @When("^get upgrade versions$")
     public void getUpgradeVersions() {
+        // the scenario deploys an older Syndesis and upgrades it, so the namespace can't be reused as is
+        NamespacePool.markDirty();
         if (System.getProperty("syndesis.upgrade.version") == null) {
             // Parse "1.5"
             BigDecimal version = new BigDecimal(Double.parseDouble(StringUtils.substring(System.getProperty("syndesis.version"), 0, 3))).setScale(1, BigDecimal.ROUND_HALF_UP);
@@ -130,6 +133,7 @@ public class UpgradeSteps {
 
     @When("^perform syndesis upgrade to newer version$")
     public void syndesisUpgrade() {
+        NamespacePool.markDirty();
         ProcessBuilder pb = new ProcessBuilder(Paths.get(UPGRADE_FOLDER, "upgrade.sh").toString(),
                 "--template ", UPGRADE_TEMPLATE,
                 "--backup", BACKUP_DIR,
@@ -153,7 +157,9 @@ public class UpgradeSteps {
 
     @When("^perform syndesis upgrade to newer version using operator$")
     public void upgradeUsingOperator() {
-        try (InputStream is = new URL(TestConfiguration.syndesisOperatorUrl().replace(System.getProperty("syndesis.version"), System.getProperty("syndesis.upgrade.version"))).openStream()) {
+        NamespacePool.markDirty();
+        try (InputStream is = ArtifactCache.open(TestConfiguration.syndesisOperatorUrl()
+            .replace(System.getProperty("syndesis.version"), System.getProperty("syndesis.upgrade.version")), System.getProperty("syndesis.upgrade.version"))) {
             List<HasMetadata> resources = OpenShiftUtils.client().load(is).get();
             for (HasMetadata resource : resources) {
                 if (resource instanceof DeploymentConfig) {
@@ -174,6 +180,7 @@ public class UpgradeSteps {
 
     @When("^perform test modifications$")
     public void performTestModifications() {
+        NamespacePool.markDirty();
         modifyTemplate();
         modifyDbScripts();
         modifyUpgradeDbScript();
@@ -183,6 +190,7 @@ public class UpgradeSteps {
 
     @When("^modify s2i tag in syndesis-server-config$")
     public void modifyS2iTag() {
+        NamespacePool.markDirty();
         // Workaround until https://github.com/syndesisio/syndesis/issues/3464 is figured out
         Map<String, String> data = OpenShiftUtils.client().configMaps().withName("syndesis-server-config").get().getData();
         String yaml = data.get("application.yml");
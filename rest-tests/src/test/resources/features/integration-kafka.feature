@@ -31,3 +31,10 @@ Feature: Integration - Kafka
   Scenario: SalesForce to Kafka to AMQ
     When create SF lead with first name: "John", last name: "Doe", email: "jdoe@acme.com" and company: "ACME"
     Then verify that lead json object was received from queue "sf-leads"
+
+  @integration-kafka-to-amq-lag
+  Scenario: Kafka to AMQ consumer lag
+    Given start reading Kafka topic "sf-leads"
+    When send 100 records to Kafka topic "sf-leads"
+    Then verify that 100 records containing "syndesis-kafka-" were received from Kafka topic
+      And wait until consumer lag of Kafka topic "sf-leads" drops to 0
@@ -9,22 +9,11 @@ Feature: soak deployment
     When import extensions from syndesis-extensions folder
       | syndesis-extension-delay |
 
-    Given create connection
-      | connector | activemq      |
-      | account   | amq-stability |
-      | brokerUrl | $ACCOUNT$     |
-      | username  | $ACCOUNT$     |
-      | password  | $ACCOUNT$     |
-    And create connection
-      | connector | http           |
-      | account   | number-creator |
-      | name      | number-creator |
-      | baseUrl   | $ACCOUNT$      |
-    And create connection
-      | connector | http           |
-      | account   | number-guesser |
-      | name      | number-guesser |
-      | baseUrl   | $ACCOUNT$      |
+    Given create multiple connections
+      | connector | account        | name           | brokerUrl | username  | password  | baseUrl   |
+      | activemq  | amq-stability  |                | $ACCOUNT$ | $ACCOUNT$ | $ACCOUNT$ |           |
+      | http      | number-creator | number-creator |           |           |           | $ACCOUNT$ |
+      | http      | number-guesser | number-guesser |           |           |           | $ACCOUNT$ |
 
   Scenario: first-number integration
     When add "amq" endpoint with connector id "activemq" and "subscribe" action and with properties:
@@ -37,8 +26,7 @@ Feature: soak deployment
       | destinationType | destinationName | persistent |
       | queue           | first-number    | true       |
 
-    And create integration with name: "create-new-number"
-    And wait for integration with name: "create-new-number" to become active
+    And create new integration with name: "create-new-number" and desiredState: "Unpublished"
 
   Scenario: first-guess integration
     When add "amq" endpoint with connector id "activemq" and "subscribe" action and with properties:
@@ -51,8 +39,7 @@ Feature: soak deployment
       | destinationType | destinationName | persistent |
       | queue           | guesses         | true       |
 
-    And create integration with name: "first-guess"
-    And wait for integration with name: "first-guess" to become active
+    And create new integration with name: "first-guess" and desiredState: "Unpublished"
 
 
   Scenario: provide-feedback integration
@@ -73,8 +60,7 @@ Feature: soak deployment
     And add "amq" endpoint with connector id "activemq" and "publish" action and with properties:
       | destinationType | destinationName | persistent |
       | queue           | stats-guessed   | true       |
-    And create integration with name: "provide-feedback"
-    And wait for integration with name: "provide-feedback" to become active
+    And create new integration with name: "provide-feedback" and desiredState: "Unpublished"
 
 
   Scenario: process feedback
@@ -96,8 +82,7 @@ Feature: soak deployment
       | destinationType | destinationName | persistent |
       | queue           | stats-guesses   | true       |
 
-    And create integration with name: "process-feedback"
-    And wait for integration with name: "process-feedback" to become active
+    And create new integration with name: "process-feedback" and desiredState: "Unpublished"
 
   Scenario: guessed-stats
     When add "amq" endpoint with connector id "activemq" and "subscribe" action and with properties:
@@ -110,8 +95,7 @@ Feature: soak deployment
     When add "amq" endpoint with connector id "activemq" and "publish" action and with properties:
       | destinationType | destinationName | persistent |
       | queue           | new-number      | true       |
-    And create integration with name: "stats-guessed"
-    And wait for integration with name: "stats-guessed" to become active
+    And create new integration with name: "stats-guessed" and desiredState: "Unpublished"
 
   Scenario: guess-stats
     When add "amq" endpoint with connector id "activemq" and "subscribe" action and with properties:
@@ -121,5 +105,13 @@ Feature: soak deployment
     And add "log" endpoint with connector id "log" and "log-action" action and with properties:
       | showBody |
       | true     |
-    And create integration with name: "stats-guess"
+    And create new integration with name: "stats-guess" and desiredState: "Unpublished"
+
+  Scenario: publish integrations
+    When publish integrations with names: "create-new-number, first-guess, provide-feedback, process-feedback, stats-guessed, stats-guess"
+    Then wait for integration with name: "create-new-number" to become active
+    And wait for integration with name: "first-guess" to become active
+    And wait for integration with name: "provide-feedback" to become active
+    And wait for integration with name: "process-feedback" to become active
+    And wait for integration with name: "stats-guessed" to become active
     And wait for integration with name: "stats-guess" to become active
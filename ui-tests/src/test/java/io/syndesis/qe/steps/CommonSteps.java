@@ -37,6 +37,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
 
 import cucumber.api.java.en.And;
 import cucumber.api.java.en.Given;
@@ -50,6 +51,7 @@ import io.syndesis.qe.TestConfiguration;
 import io.syndesis.qe.accounts.Account;
 import io.syndesis.qe.accounts.AccountsDirectory;
 import io.syndesis.qe.fragments.common.form.Form;
+import io.syndesis.qe.logs.LogFollower;
 import io.syndesis.qe.pages.ModalDialogPage;
 import io.syndesis.qe.pages.SyndesisPage;
 import io.syndesis.qe.pages.SyndesisRootPage;
@@ -759,7 +761,7 @@ public class CommonSteps {
         }
         // even though server is in ready state, inside app is still starting so we have to wait a lot just to be sure
         try {
-            OpenShiftWaitUtils.waitFor(() -> OpenShiftUtils.getPodLogs("server").contains("Started Application in"), 1000 * 300L);
+            LogFollower.waitFor("server", Pattern.compile("Started Application in"), 1000 * 300L);
         } catch (TimeoutException | InterruptedException e) {
             fail("Syndesis server did not start in 300s with new variable", e);
         }
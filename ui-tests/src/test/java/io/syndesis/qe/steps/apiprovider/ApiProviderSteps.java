@@ -159,10 +159,14 @@ public class ApiProviderSteps {
     }
 
     private void checkResponse(Response response, int status, String body) {
-        assertEquals("Wrong status", status, response.getStatus());
-        String responseBody = response.readEntity(String.class);
-        assertEquals("Wrong body", body, responseBody);
-
+        try {
+            assertEquals("Wrong status", status, response.getStatus());
+            String responseBody = response.readEntity(String.class);
+            assertEquals("Wrong body", body, responseBody);
+        } finally {
+            // return the connection to the shared pool even when the status doesn't match
+            response.close();
+        }
     }
 
     private String getUrl(String routeName, String endpoint) {
@@ -14,11 +14,13 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
 
 import cucumber.api.java.en.And;
 import cucumber.api.java.en.Then;
 import cucumber.api.java.en.When;
 import io.cucumber.datatable.DataTable;
+import io.syndesis.qe.logs.LogFollower;
 import io.syndesis.qe.pages.ModalDialogPage;
 import io.syndesis.qe.pages.integrations.IntegrationStartingStatus;
 import io.syndesis.qe.pages.integrations.Integrations;
@@ -172,7 +174,7 @@ public class IntegrationSteps {
     @Then("^.*validate that logs of integration \"([^\"]*)\" contains string \"([^\"]*)\"$")
     public void checkThatLogsContain(final String integrationName, final String text) {
         try {
-            OpenShiftWaitUtils.waitFor(() -> OpenShiftUtils.getIntegrationLogs(integrationName).contains(text), 60 * 1000L);
+            LogFollower.waitFor(OpenShiftUtils.getIntegrationPodPartialName(integrationName), Pattern.compile(Pattern.quote(text)), 60 * 1000L);
         } catch (TimeoutException | InterruptedException e) {
             assertThat(OpenShiftUtils.getIntegrationLogs(integrationName)).containsIgnoringCase(text);
         }
@@ -181,7 +183,7 @@ public class IntegrationSteps {
     @Then("^.*validate that logs of integration \"([^\"]*)\" doesn't contains string \"([^\"]*)\"$")
     public void checkThatLogsDoesNotContain(final String integrationName, final String text) {
         try {
-            OpenShiftWaitUtils.waitFor(() -> OpenShiftUtils.getIntegrationLogs(integrationName).contains(text), 60 * 1000L);
+            LogFollower.waitFor(OpenShiftUtils.getIntegrationPodPartialName(integrationName), Pattern.compile(Pattern.quote(text)), 60 * 1000L);
             fail("Log for integration: " + integrationName + " contains string: " + text);
         } catch (TimeoutException | InterruptedException e) {
             assertThat(OpenShiftUtils.getIntegrationLogs(integrationName)).doesNotContain(text);
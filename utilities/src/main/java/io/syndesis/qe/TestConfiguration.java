@@ -22,6 +22,9 @@ public class TestConfiguration {
     public static final String OPENSHIFT_NAMESPACE_CLEANUP_AFTER = "syndesis.config.openshift.namespace.cleanup.after";
     public static final String OPENSHIFT_ROUTE_SUFFIX = "syndesis.config.openshift.route.suffix";
     public static final String OPENSHIFT_NAMESPACE_LOCK = "syndesis.config.openshift.namespace.lock";
+    public static final String OPENSHIFT_NAMESPACE_POOL_SIZE = "syndesis.config.openshift.namespace.pool.size";
+    public static final String OPENSHIFT_NAMESPACE_LEASE_TTL = "syndesis.config.openshift.namespace.lease.ttl";
+    public static final String OPENSHIFT_LEASE_NAMESPACE = "syndesis.config.openshift.lease.namespace";
 
     public static final String SYNDESIS_UI_USERNAME = "syndesis.config.ui.username";
     public static final String SYNDESIS_UI_PASSWORD = "syndesis.config.ui.password";
@@ -32,6 +35,18 @@ public class TestConfiguration {
 
     public static final String SYNDESIS_REST_API_PATH = "syndesis.config.rest.api.path";
     public static final String SYNDESIS_SERVER_ROUTE = "syndesis.config.server.route";
+    public static final String SYNDESIS_REST_MAX_CONNECTIONS = "syndesis.config.rest.max.connections";
+    public static final String SYNDESIS_REST_MAX_CONNECTIONS_PER_ROUTE = "syndesis.config.rest.max.connections.per.route";
+    public static final String SYNDESIS_REST_KEEP_ALIVE = "syndesis.config.rest.keep.alive";
+    public static final String SYNDESIS_REST_CONNECTION_REQUEST_TIMEOUT = "syndesis.config.rest.connection.request.timeout";
+    public static final String SYNDESIS_REST_ASYNC_CONCURRENCY = "syndesis.config.rest.async.concurrency";
+
+    public static final String SYNDESIS_JMS_EMBEDDED_BROKER = "syndesis.config.jms.embedded.broker";
+    public static final String SYNDESIS_KAFKA_BOOTSTRAP_SERVERS = "syndesis.config.kafka.bootstrap.servers";
+    public static final String SYNDESIS_KAFKA_NODE_HOST = "syndesis.config.kafka.node.host";
+
+    public static final String SYNDESIS_ARTIFACTS_CACHE_DIR = "syndesis.config.artifacts.cache.dir";
+    public static final String SYNDESIS_ARTIFACTS_OFFLINE_DIR = "syndesis.config.artifacts.offline.dir";
 
     public static final String SYNDESIS_CREDENTIALS_FILE = "syndesis.config.credentials.file";
     public static final String SYNDESIS_VERSIONS_FILE = "syndesis.config.versions.file";
@@ -138,8 +153,51 @@ public class TestConfiguration {
 
     public static boolean namespaceLock() { return Boolean.parseBoolean(get().readValue(OPENSHIFT_NAMESPACE_LOCK)); }
 
+    // Number of pre-deployed namespaces <namespace>-1 .. <namespace>-N leased to the test runs, 0 disables the pool
+    public static int namespacePoolSize() { return Integer.parseInt(get().readValue(OPENSHIFT_NAMESPACE_POOL_SIZE)); }
+
+    // Time in seconds after which a namespace lease that was not renewed can be taken over
+    public static int namespaceLeaseTtl() { return Integer.parseInt(get().readValue(OPENSHIFT_NAMESPACE_LEASE_TTL)); }
+
+    // Namespace with the lease config maps, it is never cleaned by the tests
+    public static String leaseNamespace() { return get().readValue(OPENSHIFT_LEASE_NAMESPACE); }
+
     public static boolean useServerRoute() { return Boolean.parseBoolean(get().readValue(SYNDESIS_SERVER_ROUTE)); }
 
+    public static int restMaxConnections() { return Integer.parseInt(get().readValue(SYNDESIS_REST_MAX_CONNECTIONS)); }
+
+    public static int restMaxConnectionsPerRoute() { return Integer.parseInt(get().readValue(SYNDESIS_REST_MAX_CONNECTIONS_PER_ROUTE)); }
+
+    // Keep-alive of idle pooled REST connections in seconds, used when the server doesn't send the Keep-Alive header
+    public static int restKeepAlive() { return Integer.parseInt(get().readValue(SYNDESIS_REST_KEEP_ALIVE)); }
+
+    // Max time in seconds to wait for a free connection from the shared REST pool
+    public static int restConnectionRequestTimeout() { return Integer.parseInt(get().readValue(SYNDESIS_REST_CONNECTION_REQUEST_TIMEOUT)); }
+
+    // Max number of asynchronous REST requests in flight
+    public static int restAsyncConcurrency() { return Integer.parseInt(get().readValue(SYNDESIS_REST_ASYNC_CONCURRENCY)); }
+
+    // Use a local in-memory ActiveMQ broker instead of the broker-amq pod, for running the JMS load offline
+    public static boolean jmsEmbeddedBroker() { return Boolean.parseBoolean(get().readValue(SYNDESIS_JMS_EMBEDDED_BROKER)); }
+
+    // Kafka bootstrap servers reachable from the test suite, by default the node port of the external listener is used
+    public static Optional<String> kafkaBootstrapServers() {
+        return Optional.ofNullable(get().readValue(SYNDESIS_KAFKA_BOOTSTRAP_SERVERS));
+    }
+
+    // Host of the cluster node used with the node port of the external listener, by default the address of the node running the broker
+    public static Optional<String> kafkaNodeHost() {
+        return Optional.ofNullable(get().readValue(SYNDESIS_KAFKA_NODE_HOST));
+    }
+
+    // Directory of the downloaded templates, CRDs and operator resources, shared by the test runs
+    public static String artifactsCacheDir() { return get().readValue(SYNDESIS_ARTIFACTS_CACHE_DIR); }
+
+    // When set, the artifacts are resolved only from this directory without network access
+    public static Optional<String> artifactsOfflineDir() {
+        return Optional.ofNullable(get().readValue(SYNDESIS_ARTIFACTS_OFFLINE_DIR));
+    }
+
     public static String customResourcePlural() {
         return get().readValue(SYNDESIS_CUSTOM_RESOURCE_PLURAL);
     }
@@ -169,6 +227,13 @@ public class TestConfiguration {
         props.setProperty(OPENSHIFT_TOKEN, "");
         props.setProperty(SYNDESIS_REST_API_PATH, "/api/v1");
         props.setProperty(SYNDESIS_SERVER_ROUTE, "false");
+        props.setProperty(SYNDESIS_REST_MAX_CONNECTIONS, "1000");
+        props.setProperty(SYNDESIS_REST_MAX_CONNECTIONS_PER_ROUTE, "1000");
+        props.setProperty(SYNDESIS_REST_KEEP_ALIVE, "30");
+        props.setProperty(SYNDESIS_REST_CONNECTION_REQUEST_TIMEOUT, "60");
+        props.setProperty(SYNDESIS_REST_ASYNC_CONCURRENCY, "8");
+        props.setProperty(SYNDESIS_JMS_EMBEDDED_BROKER, "false");
+        props.setProperty(SYNDESIS_ARTIFACTS_CACHE_DIR, Paths.get(System.getProperty("user.home"), ".syndesis-qe", "artifacts").toString());
 
         props.setProperty(SYNDESIS_CREDENTIALS_FILE, "../credentials.json");
         props.setProperty(SYNDESIS_VERSIONS_FILE, "src/test/resources/dependencyVersions.properties");
@@ -178,6 +243,12 @@ public class TestConfiguration {
         props.setProperty(OPENSHIFT_NAMESPACE_CLEANUP, "false");
         props.setProperty(OPENSHIFT_NAMESPACE_CLEANUP_AFTER, props.getProperty(OPENSHIFT_NAMESPACE_CLEANUP));
         props.setProperty(OPENSHIFT_NAMESPACE_LOCK, "false");
+        props.setProperty(OPENSHIFT_NAMESPACE_POOL_SIZE, "0");
+        props.setProperty(OPENSHIFT_NAMESPACE_LEASE_TTL, "300");
+        if (properties.getProperty(OPENSHIFT_NAMESPACE) != null) {
+            // derived from the configured namespace, not from the pooled one the suite switches to
+            props.setProperty(OPENSHIFT_LEASE_NAMESPACE, properties.getProperty(OPENSHIFT_NAMESPACE) + "-leases");
+        }
 
         // to keep backward compatibility
         if (props.getProperty(SYNDESIS_URL_SUFFIX) != null && props.getProperty(OPENSHIFT_ROUTE_SUFFIX) == null) {
@@ -266,6 +337,18 @@ public class TestConfiguration {
         properties.setProperty(SYNDESIS_OPERATOR_TEMPLATE_URL, String.format("https://raw.githubusercontent.com/syndesisio/syndesis/%s/install/operator/deploy/syndesis.yml", version));
     }
 
+    /**
+     * Used to switch the test suite to a namespace leased from the pool.
+     * @param namespace namespace name
+     */
+    public void overrideNamespace(String namespace) {
+        properties.setProperty(OPENSHIFT_NAMESPACE, namespace);
+        // the UI route hostname is derived from the namespace
+        if (properties.getProperty(OPENSHIFT_ROUTE_SUFFIX) != null) {
+            properties.setProperty(SYNDESIS_UI_URL, String.format("https://%s.%s", namespace, properties.getProperty(OPENSHIFT_ROUTE_SUFFIX)));
+        }
+    }
+
     public static Optional<String> browserBinary() {
         return Optional.ofNullable(get().readValue(BROWSER_BINARY_PATH));
     }
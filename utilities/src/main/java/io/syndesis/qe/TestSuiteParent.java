@@ -5,60 +5,70 @@ import org.junit.BeforeClass;
 
 import java.util.concurrent.TimeUnit;
 
-import io.fabric8.kubernetes.api.model.Secret;
 import io.syndesis.qe.bdd.CommonSteps;
+import io.syndesis.qe.utils.ConfigMapLease;
+import io.syndesis.qe.utils.FtpClientManager;
+import io.syndesis.qe.utils.JmsClientManager;
+import io.syndesis.qe.utils.KafkaUtils;
+import io.syndesis.qe.utils.NamespacePool;
 import io.syndesis.qe.utils.OpenShiftUtils;
-import io.syndesis.qe.utils.TestUtils;
+import io.syndesis.qe.utils.PortForwardRegistry;
+import io.syndesis.qe.utils.RestUtils;
+import io.syndesis.qe.utils.mqtt.MqttClientManager;
+import io.syndesis.qe.wait.OpenShiftResourceCache;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public abstract class TestSuiteParent {
 
-    private static Secret lockSecret;
+    private static final String LOCK_NAME_PREFIX = "test-lock-";
+
+    private static ConfigMapLease namespaceLock;
 
     @BeforeClass
     public static void lockNamespace() throws InterruptedException {
+        if (NamespacePool.isEnabled()) {
+            // the lease of the pooled namespace replaces the lock
+            NamespacePool.acquire();
+            return;
+        }
         if (!TestConfiguration.namespaceLock()) {
             return; //skip when syndesis.config.openshift.namespace.lock is false
         }
-        if (OpenShiftUtils.xtf().getProject(TestConfiguration.openShiftNamespace()) == null) {
-            OpenShiftUtils.xtf().createProjectRequest(TestConfiguration.openShiftNamespace());
-            Thread.sleep(10 * 1000);
-        }
+        OpenShiftUtils.ensureProject(TestConfiguration.openShiftNamespace());
+        // the lock is kept outside of the tested namespace, so the cleanup can't delete it
+        OpenShiftUtils.ensureProject(TestConfiguration.leaseNamespace());
         log.info("Waiting to obtain namespace lock");
-        boolean isReady = TestUtils.waitForEvent(s -> !s.isPresent(),
-                () -> OpenShiftUtils.getInstance().getSecrets().stream().filter(s -> "test-lock".equals(s.getMetadata().getName())).findFirst(),
-                TimeUnit.MINUTES, 60,
-                TimeUnit.SECONDS, 15);
-
-        if (isReady) {
-            log.info("No lock present, namespace is ready");
-        } else {
-            // there's probably staled lock after 60 min timeout,
-            // display log warning and continue with force break
-            log.warn("Can't obtain lock gracefully");
+        final ConfigMapLease lock = new ConfigMapLease(TestConfiguration.leaseNamespace(),
+            LOCK_NAME_PREFIX + TestConfiguration.openShiftNamespace(), TestConfiguration.namespaceLeaseTtl(), TimeUnit.SECONDS);
+        if (!lock.acquire(60, TimeUnit.MINUTES)) {
+            // a stale lock expires after its lease duration, so the namespace is still used by another live test run
+            throw new IllegalStateException("Unable to obtain namespace lock held by "
+                + lock.getAnnotations().get(ConfigMapLease.HOLDER) + " in 60 minutes");
         }
+        namespaceLock = lock;
         cleanNamespace();
-        log.info("Creating namespace lock via secret `test-lock`");
-        lockSecret = OpenShiftUtils.client().secrets()
-                .createOrReplaceWithNew()
-                .withNewMetadata()
-                .withName("test-lock")
-                .endMetadata()
-                .done();
     }
 
     @AfterClass
     public static void tearDown() {
-        if (lockSecret != null) {
+        OpenShiftResourceCache.closeAll();
+        RestUtils.logMetrics();
+        JmsClientManager.closeAll();
+        MqttClientManager.closeAll();
+        KafkaUtils.close();
+        FtpClientManager.closeAll();
+        PortForwardRegistry.logMetrics();
+        PortForwardRegistry.closeAll();
+        NamespacePool.release();
+        if (namespaceLock != null) {
             if (TestConfiguration.namespaceCleanupAfter()) {
                 log.info("Cleaning namespace");
                 OpenShiftUtils.getInstance().clean();
-            } else {
-                log.info("Releasing namespace lock");
-                OpenShiftUtils.getInstance().deleteSecret(lockSecret);
             }
-
+            log.info("Releasing namespace lock");
+            namespaceLock.close();
+            namespaceLock = null;
         }
     }
 
@@ -17,6 +17,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
 import java.util.regex.Pattern;
 
 import cucumber.api.java.en.Given;
@@ -33,8 +34,11 @@ import io.syndesis.qe.templates.SyndesisTemplate;
 import io.syndesis.qe.utils.HttpUtils;
 import io.syndesis.qe.utils.LogCheckerUtils;
 import io.syndesis.qe.utils.OpenShiftUtils;
+import io.syndesis.qe.utils.PhaseTimer;
 import io.syndesis.qe.utils.RestUtils;
 import io.syndesis.qe.utils.TestUtils;
+import io.syndesis.qe.wait.OpenShiftWaitUtils;
+import io.syndesis.qe.wait.ResourceCondition;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.Headers;
 
@@ -140,42 +144,42 @@ public class CommonSteps {
 
     /**
      * Waits for syndesis deployment / undeployment.
+     * <p>
+     * The pods are checked in the watch based cache whenever an event arrives, the time when each component got ready (or went away)
+     * is logged.
+     *
      * @param deploy true if waiting for deploy, false otherwise
      */
     private static void waitFor(boolean deploy) {
         final int timeout = TestUtils.isJenkins() ? 20 : 12;
-        EnumSet<Component> components = EnumSet.allOf(Component.class);
+        final Set<Component> pending = EnumSet.allOf(Component.class);
+        final PhaseTimer timer = new PhaseTimer(deploy ? "Syndesis readiness" : "Syndesis undeployment");
+        final long start = System.nanoTime();
 
-        ExecutorService executorService = Executors.newFixedThreadPool(components.size());
-        components.forEach(c -> {
-            Runnable runnable = () -> {
-                if (deploy) {
-                    OpenShiftUtils.xtf().waiters()
-                            .areExactlyNPodsReady(1, "syndesis.io/component", c.getName())
-                            .interval(TimeUnit.SECONDS, 20)
-                            .timeout(TimeUnit.MINUTES, timeout)
-                            .assertEventually();
-                } else {
-                    OpenShiftUtils.xtf().waiters()
-                            .areExactlyNPodsRunning(0, "syndesis.io/component", c.getName())
-                            .interval(TimeUnit.SECONDS, 20)
-                            .timeout(TimeUnit.MINUTES, timeout)
-                            .assertEventually();
+        final ResourceCondition done = () -> {
+            pending.removeIf(c -> {
+                final BooleanSupplier condition = deploy
+                    ? OpenShiftWaitUtils.areExactlyNPodsReady("syndesis.io/component", c.getName(), 1)
+                    : OpenShiftWaitUtils.areExactlyNPodsRunning("syndesis.io/component", c.getName(), 0);
+                if (condition.getAsBoolean()) {
+                    timer.record(c.getName(), start, System.nanoTime());
+                    return true;
                 }
-            };
-            executorService.submit(runnable);
-        });
+                return false;
+            });
+            return pending.isEmpty();
+        };
 
-        executorService.shutdown();
         try {
-            if (!executorService.awaitTermination(timeout, TimeUnit.MINUTES)) {
-                executorService.shutdownNow();
-                TestUtils.printPods();
-                fail((deploy ? "Syndesis wasn't initialized in time" : "Syndesis wasn't undeployed in time"));
+            OpenShiftWaitUtils.waitFor(done, null, OpenShiftWaitUtils.DEFAULT_WAIT_INTERVAL, TimeUnit.MINUTES.toMillis(timeout));
+            timer.logSummary();
+        } catch (TimeoutException | InterruptedException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
             }
-        } catch (InterruptedException e) {
+            timer.logSummary();
             TestUtils.printPods();
-            fail((deploy ? "Syndesis wasn't initialized in time" : "Syndesis wasn't undeployed in time"));
+            fail((deploy ? "Syndesis wasn't initialized in time" : "Syndesis wasn't undeployed in time") + ", waiting for " + pending);
         }
     }
 
@@ -212,7 +216,7 @@ public class CommonSteps {
         int i = 0;
         while (i < 10) {
             TestSupport.getInstance().resetDB();
-            Optional<Connection> optConnection = connectionsEndpoint.list().stream().filter(s -> s.getName().equals("PostgresDB")).findFirst();
+            Optional<Connection> optConnection = connectionsEndpoint.findByName("PostgresDB");
             if (optConnection.isPresent()) {
                 return;
             }
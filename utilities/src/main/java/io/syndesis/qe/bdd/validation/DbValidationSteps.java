@@ -1,7 +1,6 @@
 package io.syndesis.qe.bdd.validation;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.assertj.core.api.Assertions.fail;
 
 import org.apache.commons.lang.RandomStringUtils;
 
@@ -10,9 +9,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import cucumber.api.java.en.And;
 import cucumber.api.java.en.Given;
@@ -21,6 +27,7 @@ import cucumber.api.java.en.When;
 import io.cucumber.datatable.DataTable;
 import io.syndesis.qe.TestConfiguration;
 import io.syndesis.qe.endpoints.TestSupport;
+import io.syndesis.qe.utils.DbTableWatch;
 import io.syndesis.qe.utils.DbUtils;
 import io.syndesis.qe.utils.SampleDbConnectionManager;
 import io.syndesis.qe.utils.TestUtils;
@@ -36,6 +43,8 @@ import lombok.extern.slf4j.Slf4j;
  */
 @Slf4j
 public class DbValidationSteps {
+    private static final long DEFAULT_TODO_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(2);
+
     private DbUtils dbUtils;
 
     @Autowired
@@ -52,47 +61,26 @@ public class DbValidationSteps {
     }
 
     @Then("^validate DB created new lead with first name: \"([^\"]*)\", last name: \"([^\"]*)\", email: \"([^\"]*)\"")
-    public void validateSfDbIntegration(String firstName, String lastName, String emailAddress) throws InterruptedException {
-        Thread.sleep(5000);
-        final long start = System.currentTimeMillis();
+    public void validateSfDbIntegration(String firstName, String lastName, String emailAddress) {
         // We wait for exactly 1 record to appear in DB.
-        final boolean contactCreated = TestUtils.waitForEvent(leadCount -> leadCount == 1, () -> dbUtils.getNumberOfRecordsInTable("todo"),
-                TimeUnit.MINUTES,
-                2,
-                TimeUnit.SECONDS,
-                5);
-        assertThat(contactCreated).as("Lead record has appeard in db 1").isEqualTo(true);
-        log.info("Lead record appeared in DB. It took {}s to create contact.", TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - start));
+        assertThat(awaitTodoCount(leadCount -> leadCount == 1, DEFAULT_TODO_TIMEOUT_MS)).as("Lead record has appeard in db 1").isEqualTo(true);
         // Now we verify, the created lead contains the correct personal information.
         assertThat(getLeadTaskFromDb(firstName + " " + lastName).toLowerCase()).contains(emailAddress);
     }
 
     @Then("^validate SF on delete to DB created new task.*$")
     public void validateLead() {
-        final long start = System.currentTimeMillis();
         // We wait for exactly 1 record to appear in DB.
-        final boolean contactCreated = TestUtils.waitForEvent(leadCount -> leadCount == 1, () -> dbUtils.getNumberOfRecordsInTable("todo"),
-                TimeUnit.MINUTES,
-                2,
-                TimeUnit.SECONDS,
-                5);
-        assertThat(contactCreated).as("Lead record has appeard in db 2").isEqualTo(true);
-        log.info("Lead record appeared in DB. It took {}s to create contact.", TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - start));
+        assertThat(awaitTodoCount(leadCount -> leadCount == 1, DEFAULT_TODO_TIMEOUT_MS)).as("Lead record has appeard in db 2").isEqualTo(true);
         // Now we verify, the created lead contains the correct personal information.
         assertThat(getLeadTaskFromDb().toLowerCase()).isNotEmpty();
     }
 
     @Then("^validate add_lead procedure with last_name: \"([^\"]*)\", company: \"([^\"]*)\", period in ms: \"(\\w+)\"")
-    public void validateAddLeadProcedure(String lastName, String company, Integer ms) throws InterruptedException {
-        //wait for period cycle:
-        Thread.sleep(ms + 1000);
-        // We wait for at least 1 record to appear in DB (procedure goes on every 5 seconds).
-        final boolean contactCreated = TestUtils.waitForEvent(leadCount -> leadCount >= 1, () -> dbUtils.getNumberOfRecordsInTable("todo"),
-                TimeUnit.MINUTES,
-                2,
-                TimeUnit.SECONDS,
-                5);
-        assertThat(contactCreated).as("Lead record has appeared in DB, TODO table").isEqualTo(true);
+    public void validateAddLeadProcedure(String lastName, String company, Integer ms) {
+        // We wait for at least 1 record to appear in DB (procedure goes on every period), so the first period is added to the timeout.
+        assertThat(awaitTodoCount(leadCount -> leadCount >= 1, ms + DEFAULT_TODO_TIMEOUT_MS))
+            .as("Lead record has appeared in DB, TODO table").isEqualTo(true);
         assertThat(getLeadTaskFromDb(lastName).contains(company));
     }
 
@@ -104,36 +92,76 @@ public class DbValidationSteps {
 
     @Then("^inserts into \"([^\"]*)\" table$")
     public void insertsIntoTable(String tableName, DataTable data) {
-        List<List<String>> dataTable = data.cells();
-
-        String sql = null;
-
-        Iterator it;
-        String next;
-        for (List<String> list : dataTable) {
-            switch (tableName.toUpperCase()) {
-                case "TODO":
-//                INSERT INTO TODOx(task) VALUES('Joe');
-                    sql = "INSERT INTO TODO(task) VALUES('%s'";
-                    break;
-                case "CONTACT":
-//                INSERT INTO CONTACT(first_name, last_name, company, lead_source) VALUES('Josef','Stieranka','Istrochem','db');
-                    sql = "INSERT INTO CONTACT(first_name, last_name, company, lead_source) VALUES('%s'";
-                    break;
-            }
-            it = list.iterator();
-            while (it.hasNext()) {
-                next = (String) it.next();
-                if (it.hasNext()) {
-                    sql = String.format(sql, next) + ", '%s'";
-                } else {
-                    sql = String.format(sql, next) + ")";
-                }
-            }
-            log.debug("SQL query: *{}*", sql);
-            int newId = dbUtils.executeSQLGetUpdateNumber(sql);
-            //assert new row in database has been created:
-            assertThat(newId).isEqualTo(1);
+        final List<List<String>> dataTable = data.cells();
+        final List<String> columns = insertColumns(tableName).subList(0, dataTable.isEmpty() ? 0 : dataTable.get(0).size());
+        final int inserted = dbUtils.insertBatch(tableName, columns, dataTable.iterator());
+        //assert new rows in database have been created:
+        assertThat(inserted).isEqualTo(dataTable.size());
+    }
+
+    @Given("^insert (\\d+) generated rows into \"([^\"]*)\" table$")
+    public void insertGeneratedRows(int count, String tableName) {
+        this.insertGeneratedRows(count, tableName, "postgresql");
+    }
+
+    /**
+     * Bulk loads synthetic rows into the TODO or CONTACT table, PostgreSQL uses the COPY command, other databases use batched inserts.
+     */
+    @Given("^insert (\\d+) generated rows into \"([^\"]*)\" table on \"([^\"]*)\"$")
+    public void insertGeneratedRows(int count, String tableName, String dbType) {
+        dbUtils.setConnection(dbType);
+        final List<String> columns = "TODO".equalsIgnoreCase(tableName) ? Arrays.asList("task", "completed") : insertColumns(tableName);
+        final Iterator<List<Object>> rows = IntStream.range(0, count).mapToObj(i -> generateRow(tableName, i)).iterator();
+
+        final long start = System.currentTimeMillis();
+        final long inserted = dbUtils.supportsCopy()
+            ? dbUtils.copyIn(tableName, columns, rows)
+            : dbUtils.insertBatch(tableName, columns, rows);
+        log.info("Inserted {} rows into {} in {} ms", inserted, tableName, System.currentTimeMillis() - start);
+        assertThat(inserted).isEqualTo(count);
+    }
+
+    /**
+     * Waits until the number of records in the TODO table of the current database satisfies the condition, the count is checked on every
+     * change of the table.
+     */
+    private boolean awaitTodoCount(Predicate<Integer> condition, long timeoutMs) {
+        final long start = System.currentTimeMillis();
+        final boolean created = awaitRecordCount("todo", condition, timeoutMs);
+        log.info("Lead record appeared in DB: {}. It took {}s.", created, TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - start));
+        return created;
+    }
+
+    /**
+     * Waits until the number of records in the table of the current database satisfies the condition, the count is checked on every
+     * change of the table.
+     */
+    private boolean awaitRecordCount(String table, Predicate<Integer> condition, long timeoutMs) {
+        try (DbTableWatch watch = DbTableWatch.watch(dbUtils.getDbType(), table)) {
+            return watch.await("records in " + table + " table", () -> dbUtils.getNumberOfRecordsInTable(table), condition,
+                TimeUnit.MILLISECONDS, timeoutMs);
+        }
+    }
+
+    private static List<String> insertColumns(String tableName) {
+        switch (tableName.toUpperCase()) {
+            case "TODO":
+                return Collections.singletonList("task");
+            case "CONTACT":
+                return Arrays.asList("first_name", "last_name", "company", "lead_source", "create_date");
+            default:
+                throw new IllegalArgumentException("Unsupported table " + tableName);
+        }
+    }
+
+    private static List<Object> generateRow(String tableName, int i) {
+        switch (tableName.toUpperCase()) {
+            case "TODO":
+                return Arrays.asList("task " + i, 0);
+            case "CONTACT":
+                return Arrays.asList("First" + i, "Last" + i, "Company " + (i % 100), "db", Date.valueOf(LocalDate.now()));
+            default:
+                throw new IllegalArgumentException("Unsupported table " + tableName);
         }
     }
 
@@ -147,12 +175,9 @@ public class DbValidationSteps {
     public void checksThatAllTodosHaveCompletedVal(String task, Integer val, Integer ms) throws InterruptedException, SQLException {
         Thread.sleep(ms + 1000);
 
-        ResultSet rs;
         String sql = String.format("SELECT completed FROM TODO WHERE task like '%s'", task);
-        log.info("SQL **{}**", sql);
-        rs = dbUtils.executeSQLGetResultSet(sql);
-        while (rs.next()) {
-            assertThat(rs.getInt("completed")).isEqualTo(val);
+        try (Stream<DbUtils.Row> rows = dbUtils.streamQuery(sql)) {
+            rows.forEach(row -> assertThat(row.getInt("completed")).isEqualTo(val));
         }
     }
 
@@ -306,16 +331,9 @@ public class DbValidationSteps {
     }
 
     @Then("^check rows number of table \"([^\"]*)\" is greater than (\\d+) after (\\d+) s$")
-    public void checkRowsNumberIsGreaterThan(String table, int threshold, int s) throws InterruptedException, SQLException {
-        Thread.sleep(s*1000 + 1000L);
-        String sql = "SELECT COUNT(*) FROM CONTACT";
-        log.info("SQL **{}**", sql);
-        ResultSet rs = this.dbUtils.executeSQLGetResultSet(sql);
-
-        if (rs.next()) {
-            assertThat(rs.getInt(1)).isGreaterThan(threshold);
-        } else {
-            fail("There is no result for command: " + sql);
-        }
+    public void checkRowsNumberIsGreaterThan(String table, int threshold, int s) {
+        // the rows are counted on every change of the table, so the step finishes as soon as enough of them arrive
+        assertThat(awaitRecordCount(table.toLowerCase(), count -> count > threshold, s * 1000L + 1000L))
+            .as("Number of rows in %s is greater than %d", table, threshold).isTrue();
     }
 }
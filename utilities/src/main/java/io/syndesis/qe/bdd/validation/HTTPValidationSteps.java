@@ -5,34 +5,25 @@ import static org.assertj.core.api.Assertions.assertThat;
 import com.google.gson.Gson;
 
 import java.util.Map;
-import java.util.Optional;
 
 import cucumber.api.java.en.Then;
 import cucumber.api.java.en.When;
-import io.fabric8.kubernetes.api.model.Pod;
-import io.fabric8.kubernetes.client.LocalPortForward;
 import io.syndesis.qe.utils.HTTPResponse;
 import io.syndesis.qe.utils.HttpUtils;
 import io.syndesis.qe.utils.OpenShiftUtils;
+import io.syndesis.qe.utils.PortForwardRegistry;
 import io.syndesis.qe.utils.TestUtils;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class HTTPValidationSteps {
-    // Static to have this lpf shared between tests
-    private static LocalPortForward localPortForward;
+    // Static to have this forward shared between tests, a redeployed endpoints pod is picked up by the registry
+    private static PortForwardRegistry.Lease portForward;
 
     @When("^clear endpoint events$")
     public void clear() {
-        if (localPortForward != null) {
-            TestUtils.terminateLocalPortForward(localPortForward);
-        }
-        Optional<Pod> pod = OpenShiftUtils.getPodByPartialName("endpoints");
-        assertThat(pod.isPresent()).isTrue();
-        localPortForward = TestUtils.createLocalPortForward(pod.get(), 8080, 28080);
-
         // Clear all events
-        HttpUtils.doDeleteRequest("http://localhost:28080/clearEvents");
+        HttpUtils.doDeleteRequest(endpointsUrl() + "/clearEvents");
     }
 
     @Then("^verify that endpoint \"([^\"]*)\" was executed$")
@@ -49,7 +40,7 @@ public class HTTPValidationSteps {
         // Let the integration running
         TestUtils.sleepIgnoreInterrupt(30000L);
         // Get new events
-        HTTPResponse r = HttpUtils.doGetRequest("http://localhost:28080/events");
+        HTTPResponse r = HttpUtils.doGetRequest(endpointsUrl() + "/events");
         Map<Long, String> events = new Gson().fromJson(r.getBody(), Map.class);
 
         if (once) {
@@ -66,9 +57,17 @@ public class HTTPValidationSteps {
     public void verifyThatAfterSecondsWasCalls(double seconds, int calls) {
         clear();
         TestUtils.sleepIgnoreInterrupt((long)seconds * 1000);
-        HTTPResponse r = HttpUtils.doGetRequest("http://localhost:28080/events");
+        HTTPResponse r = HttpUtils.doGetRequest(endpointsUrl() + "/events");
         Map<Long, String> events = new Gson().fromJson(r.getBody(), Map.class);
         assertThat(events).size().isGreaterThanOrEqualTo(calls);
     }
 
+    private static synchronized String endpointsUrl() {
+        if (portForward == null || !portForward.isAlive()) {
+            portForward = PortForwardRegistry.acquire("endpoints", () -> OpenShiftUtils.getPodByPartialName("endpoints")
+                .orElseThrow(() -> new IllegalStateException("Unable to find endpoints pod")), 8080);
+        }
+        return String.format("http://%s:%d", portForward.getLocalHost(), portForward.getLocalPort());
+    }
+
 }
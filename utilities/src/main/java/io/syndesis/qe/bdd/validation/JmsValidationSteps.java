@@ -5,61 +5,63 @@ import static org.assertj.core.api.Assertions.fail;
 
 import org.assertj.core.api.Assertions;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.TextMessage;
+
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+import cucumber.api.Scenario;
+import cucumber.api.java.Before;
 import cucumber.api.java.en.Given;
 import cucumber.api.java.en.Then;
 import cucumber.api.java.en.When;
-import cz.xtf.jms.JmsClient;
+import io.syndesis.qe.utils.AmqpSender;
 import io.syndesis.qe.utils.JMSUtils;
 import io.syndesis.qe.utils.JmsClientManager;
+import io.syndesis.qe.utils.JmsLoadGenerator;
+import io.syndesis.qe.utils.JmsLoadReport;
 
 public class JmsValidationSteps {
 
     private final String messageText = "ZIL SOM NAPLNO";
 
+    private Scenario scenario;
+    private JmsLoadReport loadReport;
+
     public JmsValidationSteps() {
     }
 
+    @Before
+    public void setScenario(Scenario scenario) {
+        this.scenario = scenario;
+    }
+
     @Then("^verify that JMS message using \"([^\"]*)\" protocol, published on \"([^\"]*)\" named \"([^\"]*)\" has arrived to \"([^\"]*)\" named \"([^\"]*)\" consumer$")
     public void verifyJMSconnection(String protocol, String typeFrom, String destinationFrom, String typeTo, String destinationTo) {
-        try(JmsClientManager manager = new JmsClientManager(protocol)) {
-            JmsClient jmsClient = manager.getClient();
-            addDestination(jmsClient, destinationFrom, typeFrom);
-            jmsClient.sendMessage(messageText);
-        } catch (Exception e) {
-            e.printStackTrace();
-            Assertions.fail(e.getMessage());
-        }
-
+        final JmsClientManager manager = JmsClientManager.shared(protocol);
         try {
-            Thread.sleep(5000);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
-
-        try(JmsClientManager manager = new JmsClientManager(protocol)) {
-            JmsClient jmsClient = manager.getClient();
-            addDestination(jmsClient, destinationTo, typeTo);
-            String textMessage = JmsClient.getTextMessage(jmsClient.receiveMessage());
-            Assertions.assertThat(textMessage).isEqualTo(messageText);
-        } catch (Exception e) {
+            manager.send(JMSUtils.Destination.valueOf(typeFrom.toUpperCase()), destinationFrom, messageText);
+            // receive blocks until the integration forwards the message
+            Message message = manager.receive(JMSUtils.Destination.valueOf(typeTo.toUpperCase()), destinationTo, 60000L);
+            Assertions.assertThat(message).isInstanceOf(TextMessage.class);
+            Assertions.assertThat(((TextMessage) message).getText()).isEqualTo(messageText);
+        } catch (JMSException e) {
             e.printStackTrace();
             Assertions.fail(e.getMessage());
         }
     }
 
-    private void addDestination(JmsClient jmsClient, String destination, String typeFrom) {
-        if ("queue".equals(typeFrom)) {
-            jmsClient.addQueue(destination);
-        } else {
-            jmsClient.addTopic(destination);
-        }
-    }
-
     @Then("^verify that JMS message with content \'([^\']*)\' was received from \"([^\"]*)\" \"([^\"]*)\"$")
     public void verifyThatJMSMessageWithContentWasReceivedFrom(String content, String type, String destination) {
         final String message = JMSUtils.getMessageText(JMSUtils.Destination.valueOf(type.toUpperCase()), destination);
@@ -96,4 +98,80 @@ public class JmsValidationSteps {
         String jmsMessage = new String(Files.readAllBytes(file.toPath()));
         JMSUtils.sendMessage(JMSUtils.Destination.valueOf(type.toUpperCase()), name, jmsMessage);
     }
+
+    @When("^generate JMS load of (\\d+) messages per second using (\\d+) producers for (\\d+) seconds to \"([^\"]*)\" named \"([^\"]*)\" "
+        + "consumed from \"([^\"]*)\" named \"([^\"]*)\"$")
+    public void generateJmsLoad(int rate, int producers, int seconds, String typeTo, String destinationTo, String typeFrom,
+        String destinationFrom) {
+        this.generateJmsLoad("tcp", rate, producers, seconds, typeTo, destinationTo, typeFrom, destinationFrom);
+    }
+
+    /**
+     * Publishes messages at the given rate and measures the latency until they arrive to the consumed destination. The throughput and
+     * the latency percentiles are embedded to the scenario.
+     */
+    @When("^generate JMS load using \"([^\"]*)\" protocol of (\\d+) messages per second using (\\d+) producers for (\\d+) seconds "
+        + "to \"([^\"]*)\" named \"([^\"]*)\" consumed from \"([^\"]*)\" named \"([^\"]*)\"$")
+    public void generateJmsLoad(String protocol, int rate, int producers, int seconds, String typeTo, String destinationTo, String typeFrom,
+        String destinationFrom) {
+        loadReport = new JmsLoadGenerator(protocol)
+            .publishTo(JMSUtils.Destination.valueOf(typeTo.toUpperCase()), destinationTo)
+            .consumeFrom(JMSUtils.Destination.valueOf(typeFrom.toUpperCase()), destinationFrom)
+            .rate(rate)
+            .producers(producers)
+            .duration(TimeUnit.SECONDS, seconds)
+            .run();
+        if (scenario != null) {
+            scenario.embed(loadReport.summary().getBytes(StandardCharsets.UTF_8), "text/plain");
+            scenario.embed(loadReport.percentileDistribution().getBytes(StandardCharsets.UTF_8), "text/plain");
+            try {
+                scenario.embed(new ObjectMapper().writeValueAsBytes(loadReport.toMap()), "application/json");
+            } catch (JsonProcessingException e) {
+                fail("Unable to serialize JMS load report", e);
+            }
+        }
+    }
+
+    @Then("^verify that all JMS load messages were received$")
+    public void verifyAllLoadMessagesReceived() {
+        assertThat(loadReport).as("JMS load was not generated").isNotNull();
+        assertThat(loadReport.getSendErrors()).as("send errors").isZero();
+        assertThat(loadReport.getLost()).as("lost messages").isZero();
+    }
+
+    @Then("^verify that JMS load p(\\d+) latency is lower than (\\d+) ms$")
+    public void verifyLoadLatency(String percentile, int limit) {
+        assertThat(loadReport).as("JMS load was not generated").isNotNull();
+        final double latency = "100".equals(percentile) ? loadReport.getMaxLatency() : loadReport.percentile(parsePercentile(percentile));
+        assertThat(latency).as("p" + percentile + " latency").isLessThan(limit);
+    }
+
+    /**
+     * Percentile from its usual short notation, p50 = 50, p99 = 99, p999 = 99.9, p9999 = 99.99.
+     */
+    private static double parsePercentile(String percentile) {
+        final double p = percentile.length() > 2
+            ? Double.parseDouble(percentile.substring(0, 2) + "." + percentile.substring(2))
+            : Double.parseDouble(percentile);
+        if (p <= 0 || p >= 100) {
+            throw new IllegalArgumentException("Unsupported percentile p" + percentile + ", use p100 for the max latency");
+        }
+        return p;
+    }
+
+    /**
+     * Sends the messages asynchronously over AMQP, the throughput and the settlement latency are embedded to the scenario.
+     */
+    @When("^send (\\d+) AMQP messages to \"([^\"]*)\" named \"([^\"]*)\" with (settled|presettled) delivery and window (\\d+)$")
+    public void sendAmqpMessages(int count, String type, String name, String settlement, int window) {
+        final AmqpSender.Report report = new AmqpSender(JMSUtils.Destination.valueOf(type.toUpperCase()), name)
+            .settlement(AmqpSender.Settlement.valueOf(settlement.toUpperCase()))
+            .window(window)
+            .send(IntStream.range(0, count).mapToObj(i -> messageText + " " + i).collect(Collectors.toList()));
+        if (scenario != null) {
+            scenario.embed(report.summary().getBytes(StandardCharsets.UTF_8), "text/plain");
+        }
+        assertThat(report.getFailed()).as("failed deliveries").isZero();
+        assertThat(report.getCompleted()).as("completed deliveries").isEqualTo(count);
+    }
 }
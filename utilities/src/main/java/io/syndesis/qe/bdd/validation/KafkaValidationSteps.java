@@ -0,0 +1,59 @@
+package io.syndesis.qe.bdd.validation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import cucumber.api.java.After;
+import cucumber.api.java.en.Given;
+import cucumber.api.java.en.Then;
+import cucumber.api.java.en.When;
+import io.syndesis.qe.utils.KafkaUtils;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public class KafkaValidationSteps {
+    private KafkaUtils.TopicReader reader;
+
+    @Given("^start reading Kafka topic \"([^\"]*)\"$")
+    public void startReading(String topic) {
+        closeReader();
+        reader = KafkaUtils.read(topic);
+    }
+
+    @When("^send (\\d+) records to Kafka topic \"([^\"]*)\"$")
+    public void sendRecords(int count, String topic) {
+        final List<String> values = IntStream.range(0, count).mapToObj(i -> "syndesis-kafka-" + i).collect(Collectors.toList());
+        assertThat(KafkaUtils.sendAll(topic, values)).as("Acknowledged records").isEqualTo(count);
+    }
+
+    @Then("^verify that (\\d+) records? containing \"([^\"]*)\" (?:was|were) received from Kafka topic$")
+    public void verifyRecordsReceived(int count, String content) {
+        assertThat(reader).as("Kafka topic is not being read").isNotNull();
+        final List<ConsumerRecord<String, String>> records = reader.await(r -> r.value() != null && r.value().contains(content), count,
+            TimeUnit.MINUTES, 2);
+        assertThat(records).hasSize(count);
+    }
+
+    @Then("^wait until consumer lag of Kafka topic \"([^\"]*)\" drops to (\\d+)$")
+    public void waitForConsumerLag(String topic, long maxLag) {
+        final List<KafkaUtils.LagSample> samples = KafkaUtils.awaitConsumerGroupLag(topic, maxLag, TimeUnit.MINUTES, 5);
+        final KafkaUtils.LagSample last = samples.get(samples.size() - 1);
+        log.info("Kafka consumer lag of {}: {}", topic,
+            samples.stream().map(s -> s.getElapsedMillis() + "ms=" + s.getLag()).collect(Collectors.joining(", ")));
+        assertThat(last.getLag()).as("Consumer lag of " + topic).isBetween(0L, maxLag);
+    }
+
+    @After
+    public void closeReader() {
+        if (reader != null) {
+            reader.close();
+            reader = null;
+        }
+    }
+}
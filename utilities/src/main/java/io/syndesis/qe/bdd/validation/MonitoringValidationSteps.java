@@ -10,7 +10,6 @@ import java.util.regex.Pattern;
 
 import cucumber.api.java.en.Then;
 import io.fabric8.kubernetes.api.model.Pod;
-import io.syndesis.common.model.integration.Integration;
 import io.syndesis.common.model.metrics.IntegrationMetricsSummary;
 import io.syndesis.qe.endpoints.ActivityIntegrationsEndpoint;
 import io.syndesis.qe.endpoints.IntegrationsEndpoint;
@@ -82,9 +81,7 @@ public class MonitoringValidationSteps {
 
     //    AUXILIARIES
     private String getIdByIntegrationName(String integrationName) {
-        List<Integration> integrations = integrationsEndpoint.list();
-        Integration integr = integrations.stream().filter(integration -> integrationName.equals(integration.getName())).findAny().orElse(null);
-        return integr.getId().get();
+        return integrationsEndpoint.getIdByName(integrationName).get();
     }
 
 }
@@ -1,79 +1,47 @@
 package io.syndesis.qe.bdd.validation;
 
 import cucumber.api.java.en.Then;
-import io.fabric8.kubernetes.api.model.Pod;
-import io.fabric8.kubernetes.client.LocalPortForward;
-import io.syndesis.qe.utils.OpenShiftUtils;
-import io.syndesis.qe.utils.TestUtils;
+import io.syndesis.qe.utils.mqtt.MqttClientManager;
+import io.syndesis.qe.utils.mqtt.MqttSubscription;
 import io.syndesis.qe.utils.mqtt.MqttUtils;
-import io.syndesis.qe.utils.mqtt.Receiver;
 import lombok.extern.slf4j.Slf4j;
 import org.assertj.core.api.Assertions;
-import org.eclipse.paho.client.mqttv3.MqttClient;
-import org.eclipse.paho.client.mqttv3.MqttException;
 
-import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 
 @Slf4j
 public class MqttValidationSteps {
+    private static final int PUBLISH_WINDOW = 100;
+
     private MqttUtils mqttUtils = new MqttUtils();
-    private static LocalPortForward mqttLocalPortForward = null;
 
     @Then("^.*verify that when message is sent to \"([^\"]*)\" topic it is redirected to \"([^\"]*)\" topic via integration$")
     public void sendAndRecieveMessage(String senderTopic, String receiverTopic) {
+        final String content = "Hi from syndesis integration!";
+        try (MqttSubscription receiver = mqttUtils.createReceiver(receiverTopic)) {
+            mqttUtils.sendMessage(content, senderTopic);
 
-        //reset message received flag
-        Receiver.RECEIVED_FLAG = 0;
-
-        MqttClient receiverClient = null;
-        try {
-            portForward();
-            // give port forward some time
-            TestUtils.sleepIgnoreInterrupt(2000);
-            //create receiver
-            receiverClient = mqttUtils.createReceiver("receiver_1", receiverTopic);
-
-            //send message via client
-            mqttUtils.sendMessage("Hi from syndesis integration!", senderTopic);
-
-            //give it some short time for delivery
-            TestUtils.sleepIgnoreInterrupt(4000);
-
-        } catch (MqttException e) {
-            e.printStackTrace();
-            Assertions.fail("Mqtt Exception was thrown during message transfer");
-        } finally {
-            //close receiver
-            mqttUtils.closeClient(receiverClient);
-
-            //close mqtt port
-            portClose();
-        }
-
-        //check flag
-        Assertions.assertThat(Receiver.RECEIVED_FLAG).as("Message was not received!!!")
-                .isEqualTo(1);
-
-    }
-
-    private void portForward() {
-        if (mqttLocalPortForward == null || !mqttLocalPortForward.isAlive()) {
-            //can be the same pod twice forwarded to different ports? YES
-            Pod pod = OpenShiftUtils.xtf().getAnyPod("app", "broker-amq");
-            log.info("POD NAME: *{}*", pod.getMetadata().getName());
-            mqttLocalPortForward = OpenShiftUtils.portForward(pod, 1883, 1883);
+            Assertions.assertThat(receiver.poll(TimeUnit.SECONDS, 30)).as("Message was not received!!!")
+                    .isEqualTo(content);
         }
     }
 
-    private void portClose() {
-        if (mqttLocalPortForward != null || mqttLocalPortForward.isAlive()) {
-            try {
-                mqttLocalPortForward.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-                log.error("Error while closing mqtt port forward.");
-            }
+    @Then("^verify that (\\d+) messages sent to \"([^\"]*)\" MQTT topic are redirected to \"([^\"]*)\" topic via integration$")
+    public void sendAndReceiveMessages(int count, String senderTopic, String receiverTopic) {
+        final List<String> payloads = IntStream.range(0, count).mapToObj(i -> "syndesis-mqtt-" + i).collect(Collectors.toList());
+        try (MqttSubscription receiver = mqttUtils.createReceiver(receiverTopic)) {
+            final long start = System.nanoTime();
+            final long published = MqttClientManager.shared().publishAll(senderTopic, payloads, PUBLISH_WINDOW);
+            Assertions.assertThat(published).as("Acknowledged messages").isEqualTo(count);
+
+            final List<String> received = receiver.awaitMessages(count, TimeUnit.MINUTES, 2);
+            log.info("Received {} of {} MQTT messages in {} ms", received.size(), count,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            Assertions.assertThat(received).as("Received messages").containsExactlyInAnyOrderElementsOf(payloads);
         }
     }
 }
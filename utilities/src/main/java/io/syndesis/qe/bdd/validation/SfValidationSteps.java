@@ -23,6 +23,7 @@ import io.syndesis.qe.salesforce.Lead;
 import io.syndesis.qe.utils.JMSUtils;
 import io.syndesis.qe.utils.TestUtils;
 import io.syndesis.qe.wait.OpenShiftWaitUtils;
+import io.syndesis.qe.wait.Poller;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -151,17 +152,13 @@ public class SfValidationSteps {
     @Then("^validate contact for TW account: \"([^\"]*)\" is present in SF with description: \"([^\"]*)\"")
     public void validateIntegration(String twAccount, String record) {
         log.info("Waiting until a contact appears in salesforce...");
-        final long start = System.currentTimeMillis();
-        final boolean contactCreated = TestUtils.waitForEvent(Optional::isPresent,
-                () -> getSalesforceContact(salesforce, accountsDirectory.getAccount(twAccount).get().getProperty("screenName")),
-                TimeUnit.MINUTES,
-                3,
-                TimeUnit.SECONDS,
-                5);
-        assertThat(contactCreated).as("Contact has appeard in salesforce").isEqualTo(true);
-        log.info("Contact appeared in salesforce. It took {}s to create contact.", TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - start));
-
-        final Contact createdContact = getSalesforceContact(salesforce, accountsDirectory.getAccount(twAccount).get().getProperty("screenName")).get();
+        final String screenName = accountsDirectory.getAccount(twAccount).get().getProperty("screenName");
+        final Poller.Result<Optional<Contact>> contactCreated = TestUtils.poller("salesforce contact " + screenName, TimeUnit.MINUTES, 3, TimeUnit.SECONDS, 5)
+                .poll(() -> getSalesforceContact(salesforce, screenName), Optional::isPresent);
+        assertThat(contactCreated.isSuccess()).as("Contact has appeard in salesforce").isEqualTo(true);
+        log.info("Contact appeared in salesforce. It took {}s to create contact.", TimeUnit.MILLISECONDS.toSeconds(contactCreated.getElapsedMillis()));
+
+        final Contact createdContact = contactCreated.getValue().get();
         assertThat(createdContact.getDescription()).startsWith(record);
         assertThat(createdContact.getFirstName()).isNotEmpty();
         assertThat(createdContact.getLastname()).isNotEmpty();
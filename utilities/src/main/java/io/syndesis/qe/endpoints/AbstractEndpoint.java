@@ -1,28 +1,46 @@
 package io.syndesis.qe.endpoints;
 
-import com.fasterxml.jackson.core.JsonParser.Feature;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectWriter;
-import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.fasterxml.jackson.databind.ObjectReader;
 
 import javax.ws.rs.NotFoundException;
+import javax.ws.rs.client.AsyncInvoker;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.Invocation;
+import javax.ws.rs.client.InvocationCallback;
+import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedHashMap;
 import javax.ws.rs.core.MultivaluedMap;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import io.syndesis.common.util.Json;
 import io.syndesis.common.model.ListResult;
+import io.syndesis.common.model.WithId;
+import io.syndesis.common.model.WithName;
 import io.syndesis.qe.TestConfiguration;
 import io.syndesis.qe.utils.RestUtils;
+import lombok.Data;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
@@ -33,6 +51,13 @@ import lombok.extern.slf4j.Slf4j;
  */
 @Slf4j
 public abstract class AbstractEndpoint<T> {
+    private static final Map<Class<?>, ObjectReader> READERS = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, ObjectReader> LIST_READERS = new ConcurrentHashMap<>();
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final ConcurrencyLimiter ASYNC_LIMITER = new ConcurrencyLimiter(TestConfiguration.restAsyncConcurrency());
+    // endpoint name + "/" + entity name -> entity id
+    private static final Map<String, String> IDS_BY_NAME = new ConcurrentHashMap<>();
+
     @Setter
     protected String endpointName;
     protected String apiPath = TestConfiguration.syndesisRestApiPath();
@@ -55,30 +80,35 @@ public abstract class AbstractEndpoint<T> {
     public T create(T obj) {
         log.debug("POST: {}", getEndpointUrl());
         final Invocation.Builder invocation = this.createInvocation();
-        final JsonNode response = invocation.post(Entity.entity(obj, MediaType.APPLICATION_JSON), JsonNode.class);
 
-        return transformJsonNode(response, type);
+        final T created = read(invocation.post(Entity.entity(obj, MediaType.APPLICATION_JSON), InputStream.class), readerFor(type));
+        remember(created);
+        return created;
     }
 
     public void delete(String id) {
         log.debug("DELETE: {}", getEndpointUrl(Optional.ofNullable(id)));
         final Invocation.Builder invocation = this.createInvocation(id);
 
-        invocation.delete();
+        // release the pooled connection
+        invocation.delete().close();
+        forget(id);
     }
 
     public T get(String id) {
         log.debug("GET : {}", getEndpointUrl(Optional.ofNullable(id)));
         final Invocation.Builder invocation = this.createInvocation(id);
-        JsonNode response = null;
         try {
-            response = invocation.get(JsonNode.class);
+            return read(invocation.get(InputStream.class), readerFor(type));
         } catch (NotFoundException ex) {
+            // the entity was deleted outside of the endpoints, the next lookup of its name asks the server again
+            forget(id);
             log.error("Not found: " + id);
             log.error("Found:");
-            list().forEach(t -> log.error("  " + t.toString()));
+            // only the first page, the whole collection can be large
+            listPage(1, 20).forEach(t -> log.error("  " + t.toString()));
+            throw ex;
         }
-        return transformJsonNode(response, type);
     }
 
     public void update(String id, T obj) {
@@ -86,6 +116,9 @@ public abstract class AbstractEndpoint<T> {
         final Invocation.Builder invocation = this.createInvocation(id);
 
         invocation.put(Entity.entity(obj, MediaType.APPLICATION_JSON), JsonNode.class);
+        // the name may have changed
+        forget(id);
+        remember(nameOf(obj), id);
     }
 
     public List<T> list() {
@@ -93,37 +126,204 @@ public abstract class AbstractEndpoint<T> {
     }
 
     public List<T> list(String id) {
-        final ObjectMapper mapper = new ObjectMapper().registerModules(new Jdk8Module());
-        mapper.configure(Feature.AUTO_CLOSE_SOURCE, true);
-        final ObjectWriter ow = mapper.writer();
-        final Class<ListResult<T>> listtype = (Class) ListResult.class;
+        return list(id, Collections.emptyMap());
+    }
 
-        log.debug("GET : {}", getEndpointUrl(Optional.ofNullable(id)));
-        final Invocation.Builder invocation = this.createInvocation(id);
+    /**
+     * Lists one page of the entities.
+     *
+     * @param page page number, starting from 1
+     * @param perPage page size
+     * @return entities on the page
+     */
+    public List<T> listPage(int page, int perPage) {
+        return list(null, pageParams(page, perPage));
+    }
 
-        final JsonNode response = invocation
-                .get(JsonNode.class);
+    /**
+     * Lists the entities matching the query, e.g. "name=my-integration". The endpoints that don't support filtering return all the
+     * entities, so the result should be checked by the caller.
+     *
+     * @param query query in the field=value format
+     * @return matching entities
+     */
+    public List<T> listMatching(String query) {
+        return list(null, Collections.singletonMap("query", query));
+    }
 
-        ListResult<T> result = null;
-        try {
-            result = Json.reader().forType(listtype).readValue(response.toString());
-        } catch (IOException ex) {
-            log.error("" + ex);
+    protected List<T> list(String id, Map<String, Object> queryParams) {
+        final ListPage<T> result = listResult(id, queryParams);
+        return result == null || result.getItems() == null ? new ArrayList<>() : result.getItems();
+    }
+
+    ListPage<T> listResult(String id, Map<String, Object> queryParams) {
+        log.debug("GET : {} {}", getEndpointUrl(Optional.ofNullable(id)), queryParams);
+        final Invocation.Builder invocation = this.createInvocation(id, queryParams);
+
+        return read(invocation.get(InputStream.class), listReaderFor(type));
+    }
+
+    /**
+     * Streams the whole collection page by page, see {@link #stream(int)}.
+     *
+     * @return lazy stream of the entities
+     */
+    public Stream<T> stream() {
+        return stream(DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * Streams the whole collection. The pages are requested only when the stream is consumed and the next page is prefetched in the
+     * background. Short-circuiting operations (findFirst, anyMatch) stop fetching further pages.
+     *
+     * @param perPage page size
+     * @return lazy stream of the entities, closing it cancels the prefetch
+     */
+    public Stream<T> stream(int perPage) {
+        final PagedIterator<T> iterator = new PagedIterator<>(page -> listResult(null, pageParams(page, perPage)), perPage);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+            .onClose(iterator::close);
+    }
+
+    /**
+     * Finds the entity by its name using the server side query.
+     *
+     * @param name entity name
+     * @return entity
+     */
+    public Optional<T> findByName(String name) {
+        // the query is only a hint, not all endpoints support it
+        final Optional<T> found = listMatching("name=" + name).stream().filter(t -> name.equals(nameOf(t))).findFirst();
+        found.ifPresent(this::remember);
+        return found;
+    }
+
+    /**
+     * Returns the id of the entity with given name. The ids are cached, the cache is kept up to date by the create, update and delete
+     * methods and cleared by {@link #invalidateLookups()} on DB reset. An id is dropped from the cache when {@link #get(String)} doesn't
+     * find its entity, so an entity deleted outside of the endpoints (UI, oc) is looked up on the server again the next time.
+     *
+     * @param name entity name
+     * @return entity id
+     */
+    public Optional<String> getIdByName(String name) {
+        final String cached = IDS_BY_NAME.get(lookupKey(name));
+        if (cached != null) {
+            return Optional.of(cached);
         }
+        return findByName(name).flatMap(this::idOf);
+    }
+
+    /**
+     * Clears the name to id lookups of all endpoints, must be called when the entities are changed outside of the endpoints (DB reset).
+     */
+    public static void invalidateLookups() {
+        IDS_BY_NAME.clear();
+    }
 
-        final List<T> ts = new ArrayList<>();
-
-        for (int i = 0; i < result.getTotalCount(); i++) {
-            T con = null;
-            try {
-                final String json = ow.writeValueAsString(result.getItems().get(i));
-                con = Json.reader().forType(type).readValue(json);
-            } catch (IOException ex) {
-                log.error(ex.toString());
-            }
-            ts.add(con);
+    private static Map<String, Object> pageParams(int page, int perPage) {
+        final Map<String, Object> params = new LinkedHashMap<>();
+        params.put("page", page);
+        params.put("per_page", perPage);
+        return params;
+    }
+
+    private void remember(T entity) {
+        idOf(entity).ifPresent(id -> remember(nameOf(entity), id));
+    }
+
+    private void remember(String name, String id) {
+        if (name != null && id != null) {
+            IDS_BY_NAME.put(lookupKey(name), id);
         }
-        return ts;
+    }
+
+    private void forget(String id) {
+        if (id != null) {
+            IDS_BY_NAME.entrySet().removeIf(e -> e.getKey().startsWith(endpointName + "/") && id.equals(e.getValue()));
+        }
+    }
+
+    private String lookupKey(String name) {
+        return endpointName + "/" + name;
+    }
+
+    private String nameOf(T entity) {
+        return entity instanceof WithName ? ((WithName) entity).getName() : null;
+    }
+
+    private Optional<String> idOf(T entity) {
+        return entity instanceof WithId ? ((WithId<?>) entity).getId() : Optional.empty();
+    }
+
+    /**
+     * Asynchronous variant of {@link #create(Object)}. All asynchronous requests share a concurrency limit configured by
+     * {@link TestConfiguration#SYNDESIS_REST_ASYNC_CONCURRENCY}, the requests over the limit are queued.
+     *
+     * @param obj entity to create
+     * @return future completed with the created entity
+     */
+    public CompletableFuture<T> createAsync(T obj) {
+        log.debug("POST (async): {}", getEndpointUrl());
+        return async(() -> createInvocation(), (invoker, callback) -> invoker.post(Entity.entity(obj, MediaType.APPLICATION_JSON), callback),
+            readerFor(type)).thenApply(created -> {
+                remember(created);
+                return created;
+            });
+    }
+
+    /**
+     * Asynchronous variant of {@link #get(String)}.
+     *
+     * @param id entity id
+     * @return future completed with the entity
+     */
+    public CompletableFuture<T> getAsync(String id) {
+        log.debug("GET (async): {}", getEndpointUrl(Optional.ofNullable(id)));
+        return async(() -> createInvocation(id), AsyncInvoker::get, readerFor(type));
+    }
+
+    /**
+     * Asynchronous variant of {@link #list()}.
+     *
+     * @return future completed with all the entities
+     */
+    public CompletableFuture<List<T>> listAsync() {
+        log.debug("GET (async): {}", getEndpointUrl());
+        return this.<ListPage<T>>async(() -> createInvocation(), AsyncInvoker::get, listReaderFor(type))
+            .thenApply(result -> result == null || result.getItems() == null ? new ArrayList<>() : result.getItems());
+    }
+
+    /**
+     * Invokes the request through the async JAX-RS invoker within the concurrency limit.
+     *
+     * @param invocation creates the invocation when the request is started
+     * @param call calls the invoker with the callback
+     * @param reader reader of the response entity
+     * @param <R> result type
+     * @return future completed with the deserialized response entity
+     */
+    protected <R> CompletableFuture<R> async(Supplier<Invocation.Builder> invocation,
+        BiFunction<AsyncInvoker, InvocationCallback<InputStream>, Future<InputStream>> call, ObjectReader reader) {
+        return ASYNC_LIMITER.submit(() -> {
+            final CompletableFuture<R> result = new CompletableFuture<>();
+            call.apply(invocation.get().async(), new InvocationCallback<InputStream>() {
+                @Override
+                public void completed(InputStream entity) {
+                    try {
+                        result.complete(read(entity, reader));
+                    } catch (RuntimeException e) {
+                        result.completeExceptionally(e);
+                    }
+                }
+
+                @Override
+                public void failed(Throwable throwable) {
+                    result.completeExceptionally(throwable);
+                }
+            });
+            return result;
+        });
     }
 
     public String getEndpointUrl() {
@@ -145,8 +345,15 @@ public abstract class AbstractEndpoint<T> {
     }
 
     protected Invocation.Builder createInvocation(String id) {
-        Invocation.Builder invocation = client
-                .target(getEndpointUrl(Optional.ofNullable(id)))
+        return createInvocation(id, Collections.emptyMap());
+    }
+
+    protected Invocation.Builder createInvocation(String id, Map<String, Object> queryParams) {
+        WebTarget target = client.target(getEndpointUrl(Optional.ofNullable(id)));
+        for (Map.Entry<String, Object> param : queryParams.entrySet()) {
+            target = target.queryParam(param.getKey(), param.getValue());
+        }
+        Invocation.Builder invocation = target
                 .request(MediaType.APPLICATION_JSON)
                 .headers(COMMON_HEADERS);
         return invocation;
@@ -155,10 +362,63 @@ public abstract class AbstractEndpoint<T> {
     protected T transformJsonNode(JsonNode json, Class<T> t) {
         T ts = null;
         try {
-            ts = Json.reader().forType(t).readValue(json.toString());
+            ts = readerFor(t).readValue(json);
         } catch (IOException ex) {
             log.error("" + ex);
         }
         return ts;
     }
+
+    /**
+     * Returns the reader for the given type, the readers are immutable and shared by all the endpoints.
+     *
+     * @param t type
+     * @return reader
+     */
+    protected static ObjectReader readerFor(Class<?> t) {
+        return READERS.computeIfAbsent(t, c -> Json.reader().forType(c));
+    }
+
+    /**
+     * Returns the reader of a list response containing items of the given type.
+     *
+     * @param t type of the items
+     * @return reader
+     */
+    protected static ObjectReader listReaderFor(Class<?> t) {
+        return LIST_READERS.computeIfAbsent(t, c -> {
+            final JavaType listType = Json.reader().getTypeFactory().constructParametricType(ListPage.class, c);
+            return Json.reader().forType(listType);
+        });
+    }
+
+    /**
+     * Deserializes the response entity directly from the stream and closes it.
+     *
+     * @param entity response entity
+     * @param reader reader of the expected type
+     * @param <R> expected type
+     * @return deserialized value, null if the entity can't be parsed
+     */
+    protected static <R> R read(InputStream entity, ObjectReader reader) {
+        try (InputStream in = entity) {
+            return reader.readValue(in);
+        } catch (IOException ex) {
+            log.error("" + ex);
+            return null;
+        }
+    }
+
+    /**
+     * Generic counterpart of {@link ListResult} - jackson doesn't resolve the item type through the ListResult builder, so the items
+     * would be deserialized as maps.
+     *
+     * @param <I> item type
+     */
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    static class ListPage<I> {
+        private int totalCount;
+        private List<I> items;
+    }
 }
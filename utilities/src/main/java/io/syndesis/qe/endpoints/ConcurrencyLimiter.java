@@ -0,0 +1,98 @@
+package io.syndesis.qe.endpoints;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Limits the number of asynchronous requests in flight without blocking the caller.
+ * <p>
+ * Requests over the limit are queued and started when one of the running requests completes. The queued requests are started in a loop,
+ * so requests that complete synchronously don't recurse into each other and the stack stays flat however long the queue is.
+ */
+class ConcurrencyLimiter {
+    private final int limit;
+    private final Queue<Runnable> queue = new ArrayDeque<>();
+    private int running;
+    // requests to be started by the drain loop running on the current thread, null when no loop is running
+    private final ThreadLocal<Queue<Runnable>> draining = new ThreadLocal<>();
+
+    ConcurrencyLimiter(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Concurrency limit must be >= 1, was " + limit);
+        }
+        this.limit = limit;
+    }
+
+    /**
+     * Starts the request now or when a slot is free.
+     *
+     * @param request starts the request and returns its result
+     * @param <R> result type
+     * @return future completed with the result of the request
+     */
+    <R> CompletableFuture<R> submit(Supplier<CompletableFuture<R>> request) {
+        final CompletableFuture<R> result = new CompletableFuture<>();
+        final Runnable start = () -> {
+            CompletableFuture<R> started;
+            try {
+                started = request.get();
+            } catch (RuntimeException e) {
+                started = new CompletableFuture<>();
+                started.completeExceptionally(e);
+            }
+            started.whenComplete((value, error) -> {
+                release();
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+        };
+
+        final boolean startNow;
+        synchronized (this) {
+            startNow = running < limit;
+            if (startNow) {
+                running++;
+            } else {
+                queue.add(start);
+            }
+        }
+        if (startNow) {
+            start.run();
+        }
+        return result;
+    }
+
+    private void release() {
+        final Runnable next;
+        synchronized (this) {
+            next = queue.poll();
+            if (next == null) {
+                running--;
+            }
+        }
+        if (next == null) {
+            return;
+        }
+        // the slot is handed over to the queued request
+        final Queue<Runnable> pending = draining.get();
+        if (pending != null) {
+            // called from a request completed by the loop below, let the loop start the next one
+            pending.add(next);
+            return;
+        }
+        final Queue<Runnable> loop = new ArrayDeque<>();
+        draining.set(loop);
+        try {
+            for (Runnable r = next; r != null; r = loop.poll()) {
+                r.run();
+            }
+        } finally {
+            draining.remove();
+        }
+    }
+}
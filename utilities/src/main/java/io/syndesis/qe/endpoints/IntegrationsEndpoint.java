@@ -9,13 +9,12 @@ import javax.ws.rs.client.Invocation;
 import javax.ws.rs.core.MediaType;
 
 import java.io.IOException;
-import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import io.syndesis.common.model.integration.Integration;
 import io.syndesis.common.model.integration.IntegrationDeployment;
 import io.syndesis.common.model.integration.IntegrationDeploymentState;
-import io.syndesis.common.util.Json;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 
@@ -41,6 +40,16 @@ public class IntegrationsEndpoint extends AbstractEndpoint<Integration> {
         JsonNode r = invocation.put(Entity.entity(new TargetStateRequest(), MediaType.APPLICATION_JSON), JsonNode.class);
     }
 
+    /**
+     * Asynchronous variant of {@link #activateIntegration(String)}.
+     */
+    public CompletableFuture<Void> activateIntegrationAsync(String integrationId) {
+        log.debug("PUT (async): {}", getEndpointUrl(Optional.of(integrationId + "/deployments")));
+        return this.<JsonNode>async(() -> createInvocation(integrationId + "/deployments"),
+            (invoker, callback) -> invoker.put(Entity.entity(new TargetStateRequest(), MediaType.APPLICATION_JSON), callback),
+            readerFor(JsonNode.class)).thenAccept(r -> { });
+    }
+
     /**
      * For unpublishing of integrations post {"targetState":"Unpublished"} to
      * integrations/{id}/deployments/{version}/targetState
@@ -57,7 +66,7 @@ public class IntegrationsEndpoint extends AbstractEndpoint<Integration> {
         final JsonNode response = invocation.get(JsonNode.class);
         IntegrationDeployment ts = null;
         try {
-            ts = Json.reader().forType(IntegrationDeployment.class).readValue(response.toString());
+            ts = readerFor(IntegrationDeployment.class).readValue(response.toString());
         } catch (IOException ex) {
             log.error("" + ex);
         }
@@ -65,8 +74,7 @@ public class IntegrationsEndpoint extends AbstractEndpoint<Integration> {
     }
 
     public Optional<String> getIntegrationId(String integrationName) {
-        List<Integration> integrationsList = list();
-        return integrationsList.stream().filter(i -> i.getName().contentEquals(integrationName)).findFirst().get().getId();
+        return getIdByName(integrationName);
     }
 
     @Data
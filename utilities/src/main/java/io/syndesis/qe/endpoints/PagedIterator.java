@@ -0,0 +1,101 @@
+package io.syndesis.qe.endpoints;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntFunction;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Iterates over a paginated REST collection.
+ * <p>
+ * Pages are requested lazily. When a page is handed to the consumer, the next one is already requested in the background, so that the
+ * consumer doesn't wait for the network between the pages. No further pages are requested when the consumer stops iterating, at most
+ * one prefetched page is wasted.
+ *
+ * @param <T> item type
+ */
+@Slf4j
+class PagedIterator<T> implements Iterator<T>, AutoCloseable {
+    private static final ExecutorService PREFETCH = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "rest-page-prefetch");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final IntFunction<AbstractEndpoint.ListPage<T>> fetcher;
+    private final int perPage;
+
+    private int page = 1;
+    private int fetched;
+    private boolean exhausted;
+    private Iterator<T> current = Collections.emptyIterator();
+    private CompletableFuture<AbstractEndpoint.ListPage<T>> next;
+
+    /**
+     * @param fetcher function returning the page with the given number (starting from 1)
+     * @param perPage page size
+     */
+    PagedIterator(IntFunction<AbstractEndpoint.ListPage<T>> fetcher, int perPage) {
+        this.fetcher = fetcher;
+        this.perPage = perPage;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            if (exhausted) {
+                return false;
+            }
+            if (next == null) {
+                next = fetch(page);
+            }
+            final AbstractEndpoint.ListPage<T> result;
+            try {
+                result = next.join();
+            } catch (CompletionException e) {
+                close();
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+            final List<T> items = result == null || result.getItems() == null ? Collections.<T>emptyList() : result.getItems();
+            fetched += items.size();
+            page++;
+            // the last page is smaller than the page size, the endpoints that don't support paging return everything at once
+            exhausted = result == null || items.size() != perPage || fetched >= result.getTotalCount();
+            next = exhausted ? null : fetch(page);
+            current = items.iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    /**
+     * Cancels the prefetched page.
+     */
+    @Override
+    public void close() {
+        exhausted = true;
+        if (next != null) {
+            next.cancel(true);
+            next = null;
+        }
+    }
+
+    private CompletableFuture<AbstractEndpoint.ListPage<T>> fetch(int pageNumber) {
+        log.debug("Prefetching page {} ({} items per page)", pageNumber, perPage);
+        return CompletableFuture.supplyAsync(() -> fetcher.apply(pageNumber), PREFETCH);
+    }
+}
@@ -5,6 +5,7 @@ import static org.junit.Assert.fail;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.Invocation;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 
 import io.syndesis.qe.TestConfiguration;
 import io.syndesis.qe.utils.RestUtils;
@@ -42,6 +43,7 @@ public final class TestSupport {
         int tries = 0;
         while (tries < 10) {
             if (resetDbWithResponse() == 204) {
+                AbstractEndpoint.invalidateLookups();
                 return;
             }
             TestUtils.sleepIgnoreInterrupt(5000L);
@@ -63,7 +65,9 @@ public final class TestSupport {
                 .request(MediaType.APPLICATION_JSON)
                 .header("X-Forwarded-User", "pista")
                 .header("X-Forwarded-Access-Token", "kral");
-        int responseCode = invocation.get().getStatus();
+        final Response response = invocation.get();
+        int responseCode = response.getStatus();
+        response.close();
         log.info("syndesis-db has been reset, via url: *{}*, responseCode:*{}*", url, responseCode);
         log.debug("Reset endpoint reponse: {}", responseCode);
         return responseCode;
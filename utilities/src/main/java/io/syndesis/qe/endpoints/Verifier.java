@@ -6,6 +6,7 @@ import javax.ws.rs.client.Client;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.Invocation;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 
 import java.util.Map;
 
@@ -42,7 +43,13 @@ public final class Verifier {
                 .header("X-Forwarded-User", "pista")
                 .header("X-Forwarded-Access-Token", "kral")
                 .header("SYNDESIS-XSRF-TOKEN", "awesome");
-        String r = invocation.post(Entity.json(new JSONObject(properties).toString())).readEntity(String.class);
+        final String r;
+        final Response response = invocation.post(Entity.json(new JSONObject(properties).toString()));
+        try {
+            r = response.readEntity(String.class);
+        } finally {
+            response.close();
+        }
         if (r.isEmpty()) {
             throw new RuntimeException("Unable to verify parameters for " + connection + " (empty response)!");
         }
@@ -0,0 +1,15 @@
+package io.syndesis.qe.hooks;
+
+import cucumber.api.java.Before;
+import io.syndesis.qe.utils.ConfigMapLease;
+
+/**
+ * Fails the scenarios after the lease of the namespace was lost, another test run may be deploying into the same namespace.
+ */
+public class LeaseHooks {
+
+    @Before(order = 0)
+    public void checkNamespaceLease() {
+        ConfigMapLease.assertNoneLost();
+    }
+}
@@ -0,0 +1,192 @@
+package io.syndesis.qe.logs;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
+
+import io.fabric8.kubernetes.api.model.Pod;
+import io.syndesis.qe.utils.LogCheckerUtils;
+import io.syndesis.qe.utils.OpenShiftUtils;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Follows the log of a pod and completes a future when a line matching the pattern is written.
+ * <p>
+ * Unlike repeatedly downloading the whole log until it contains the expected text, the log is transferred only once through a single
+ * follow stream. When the stream ends (container restart, pod replaced by a new deployment, network error), the follower finds the pod
+ * again by its partial name and reconnects. For the same pod it continues from the timestamp of the last seen line, for a new pod it
+ * reads its log from the beginning.
+ * <p>
+ * Usage:
+ * <pre>
+ * LogFollower.waitFor("server", Pattern.compile("Started Application in"), 300_000L);
+ * </pre>
+ */
+@Slf4j
+public final class LogFollower implements AutoCloseable {
+    private static final long RECONNECT_DELAY_MS = 1000L;
+
+    private static final ExecutorService FOLLOWERS = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "pod-log-follower");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final String podPartialName;
+    private final Pattern pattern;
+    private final CompletableFuture<String> match = new CompletableFuture<>();
+    private volatile PodLogReader.LogStream current;
+
+    private LogFollower(String podPartialName, Pattern pattern) {
+        this.podPartialName = podPartialName;
+        this.pattern = pattern;
+        match.whenComplete((line, ex) -> abortCurrent());
+    }
+
+    /**
+     * Starts following the log of the first pod that contains the given name (build and deploy pods are ignored).
+     *
+     * @param podPartialName partial pod name
+     * @param pattern pattern to look for
+     * @return follower, must be closed if the match is not awaited
+     */
+    public static LogFollower follow(String podPartialName, Pattern pattern) {
+        final LogFollower follower = new LogFollower(podPartialName, pattern);
+        FOLLOWERS.submit(follower::run);
+        return follower;
+    }
+
+    /**
+     * Blocks until a line matching the pattern appears in the pod log.
+     *
+     * @param podPartialName partial pod name
+     * @param pattern pattern to look for
+     * @param timeoutMs timeout in ms
+     * @return matching line
+     * @throws TimeoutException when the line does not appear within the timeout
+     * @throws InterruptedException when interrupted
+     */
+    public static String waitFor(String podPartialName, Pattern pattern, long timeoutMs) throws TimeoutException, InterruptedException {
+        try (LogFollower follower = follow(podPartialName, pattern)) {
+            return follower.await(timeoutMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Future completed with the first matching line.
+     */
+    public CompletableFuture<String> getMatch() {
+        return match;
+    }
+
+    /**
+     * Blocks until a line matching the pattern appears in the pod log.
+     *
+     * @param timeout timeout
+     * @param unit timeout unit
+     * @return matching line
+     * @throws TimeoutException when the line does not appear within the timeout or the follower is closed before that
+     * @throws InterruptedException when interrupted
+     */
+    public String await(long timeout, TimeUnit unit) throws TimeoutException, InterruptedException {
+        try {
+            return match.get(timeout, unit);
+        } catch (CancellationException e) {
+            throw new TimeoutException("Following log of pod " + podPartialName + " was closed before pattern " + pattern + " appeared");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Unable to follow log of pod " + podPartialName, e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        match.cancel(true);
+    }
+
+    private void run() {
+        String podName = null;
+        Instant lastSeen = null;
+
+        while (!match.isDone()) {
+            final Optional<Pod> pod = OpenShiftUtils.getPodByPartialName(podPartialName);
+            if (!pod.isPresent() || "Pending".equals(pod.get().getStatus().getPhase())) {
+                sleep();
+                continue;
+            }
+
+            if (!pod.get().getMetadata().getName().equals(podName)) {
+                // new pod, read its whole log
+                podName = pod.get().getMetadata().getName();
+                lastSeen = null;
+            }
+
+            final LogWindow window = lastSeen == null ? LogWindow.all() : LogWindow.since(lastSeen);
+            log.debug("Following log of pod {} ({})", podName, window);
+            try (PodLogReader.LogStream br = PodLogReader.open(pod.get(), window, true, true)) {
+                current = br;
+                if (match.isDone()) {
+                    // cancelled before the reader was registered
+                    break;
+                }
+                String line;
+                while ((line = br.readLine()) != null) {
+                    final int separator = line.indexOf(' ');
+                    final String message = separator < 0 ? line : line.substring(separator + 1);
+                    if (separator > 0) {
+                        lastSeen = parseTimestamp(line.substring(0, separator), lastSeen);
+                    }
+                    if (pattern.matcher(message).find()) {
+                        log.info("Found pattern {} in log of pod {} on line '{}'", pattern, podName, LogCheckerUtils.cleanLine(message));
+                        match.complete(message);
+                        return;
+                    }
+                }
+                log.debug("Log stream of pod {} ended, reconnecting", podName);
+            } catch (IOException | RuntimeException e) {
+                if (match.isDone()) {
+                    return;
+                }
+                log.debug("Following log of pod {} failed, reconnecting: {}", podName, e.getMessage());
+            } finally {
+                current = null;
+            }
+            sleep();
+        }
+    }
+
+    private static Instant parseTimestamp(String timestamp, Instant previous) {
+        try {
+            return Instant.parse(timestamp);
+        } catch (DateTimeParseException e) {
+            return previous;
+        }
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(RECONNECT_DELAY_MS);
+        } catch (InterruptedException e) {
+            match.completeExceptionally(new CancellationException("Interrupted while following the log"));
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Closes the log watch of the followed log, closing the reader would block until the pod writes another line.
+     */
+    private void abortCurrent() {
+        final PodLogReader.LogStream stream = current;
+        if (stream != null) {
+            stream.abort();
+        }
+    }
+}
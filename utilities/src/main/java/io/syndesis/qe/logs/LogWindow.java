@@ -0,0 +1,58 @@
+package io.syndesis.qe.logs;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import lombok.Getter;
+
+/**
+ * Part of a pod log to read, maps to the sinceTime and tailLines parameters of the pod log API.
+ */
+@Getter
+public final class LogWindow {
+    private static final LogWindow ALL = new LogWindow(null, null);
+
+    private final Instant sinceTime;
+    private final Integer tailLines;
+
+    private LogWindow(Instant sinceTime, Integer tailLines) {
+        this.sinceTime = sinceTime == null ? null : sinceTime.truncatedTo(ChronoUnit.SECONDS);
+        this.tailLines = tailLines;
+    }
+
+    /**
+     * Whole log.
+     */
+    public static LogWindow all() {
+        return ALL;
+    }
+
+    /**
+     * Log lines written at or after the given time.
+     */
+    public static LogWindow since(Instant sinceTime) {
+        return new LogWindow(sinceTime, null);
+    }
+
+    /**
+     * Last n lines of the log.
+     */
+    public static LogWindow tail(int lines) {
+        return new LogWindow(null, lines);
+    }
+
+    /**
+     * Last n lines of the log written at or after the given time.
+     */
+    public static LogWindow since(Instant sinceTime, int tailLines) {
+        return new LogWindow(sinceTime, tailLines);
+    }
+
+    @Override
+    public String toString() {
+        if (this == ALL) {
+            return "whole log";
+        }
+        return (sinceTime == null ? "" : "since " + sinceTime + " ") + (tailLines == null ? "" : "last " + tailLines + " lines");
+    }
+}
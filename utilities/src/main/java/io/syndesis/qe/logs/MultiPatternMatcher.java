@@ -0,0 +1,165 @@
+package io.syndesis.qe.logs;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.regex.Pattern;
+
+import io.syndesis.qe.utils.LogCheckerUtils;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Matches log lines against a set of patterns and remembers which of them were already found.
+ * <p>
+ * All patterns are combined into a single alternation, so a line that doesn't match any pattern is rejected by one regex evaluation.
+ * Only the lines accepted by the combined pattern are tested against the individual patterns that were not found yet.
+ * The combined pattern is not used when a pattern can't be safely embedded (literal, canonical equivalence or comments flags, back
+ * references).
+ * <p>
+ * One matcher can be shared by the parallel scans of several logs. The matching runs without a lock, the found flags form a shared
+ * bitset in which each pattern is claimed by a compare-and-set, so only the scan that wins it stores its line.
+ * <p>
+ * A matcher created by {@link #lastMatches(Pattern...)} keeps the last line that matched each pattern instead, so the whole log has to
+ * be read.
+ */
+@Slf4j
+public class MultiPatternMatcher {
+    private final Pattern[] patterns;
+    private final Pattern combined;
+    private final AtomicIntegerArray found;
+    private final AtomicReferenceArray<String> lines;
+    private final AtomicInteger remaining;
+    private final boolean lastMatch;
+
+    public MultiPatternMatcher(Pattern... patterns) {
+        this(false, patterns);
+    }
+
+    private MultiPatternMatcher(boolean lastMatch, Pattern... patterns) {
+        this.lastMatch = lastMatch;
+        this.patterns = patterns;
+        this.combined = combine(patterns);
+        this.found = new AtomicIntegerArray(patterns.length);
+        this.lines = new AtomicReferenceArray<>(patterns.length);
+        this.remaining = new AtomicInteger(patterns.length);
+    }
+
+    /**
+     * Matcher that remembers the last matching line of each pattern.
+     *
+     * @param patterns patterns
+     * @return matcher that never completes, see {@link #isComplete()}
+     */
+    public static MultiPatternMatcher lastMatches(Pattern... patterns) {
+        return new MultiPatternMatcher(true, patterns);
+    }
+
+    /**
+     * Tests the line against the patterns that were not found yet, or against all the patterns when keeping the last matches.
+     *
+     * @param line log line
+     * @return true if no more lines need to be read
+     */
+    public boolean match(String line) {
+        if (isComplete()) {
+            return true;
+        }
+        if (combined != null && !combined.matcher(line).find()) {
+            return false;
+        }
+        for (int i = 0; i < patterns.length; i++) {
+            if (lastMatch) {
+                if (patterns[i].matcher(line).find()) {
+                    log.info("Found pattern {} on line '{}'", patterns[i], LogCheckerUtils.cleanLine(line));
+                    lines.set(i, line);
+                    if (found.compareAndSet(i, 0, 1)) {
+                        remaining.decrementAndGet();
+                    }
+                }
+            } else if (found.get(i) == 0 && patterns[i].matcher(line).find() && found.compareAndSet(i, 0, 1)) {
+                log.info("Found pattern {} on line '{}'", patterns[i], LogCheckerUtils.cleanLine(line));
+                lines.set(i, line);
+                remaining.decrementAndGet();
+            }
+        }
+        return isComplete();
+    }
+
+    public boolean isAllFound() {
+        return remaining.get() == 0;
+    }
+
+    /**
+     * @return true if all the patterns were found and the rest of the log doesn't need to be read
+     */
+    public boolean isComplete() {
+        return !lastMatch && isAllFound();
+    }
+
+    /**
+     * @return flag for each pattern whether it was found
+     */
+    public boolean[] getFound() {
+        final boolean[] result = new boolean[patterns.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = found.get(i) != 0;
+        }
+        return result;
+    }
+
+    /**
+     * @return first (or last, see {@link #lastMatches(Pattern...)}) line that matched each pattern, null for patterns that were not found
+     */
+    public String[] getLines() {
+        final String[] result = new String[patterns.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = lines.get(i);
+        }
+        return result;
+    }
+
+    private static Pattern combine(Pattern[] patterns) {
+        if (patterns.length < 2) {
+            return null;
+        }
+        final StringBuilder sb = new StringBuilder();
+        for (Pattern p : patterns) {
+            final String flags = inlineFlags(p.flags());
+            if (flags == null || p.pattern().matches("(?s).*\\\\(\\d|k<).*")) {
+                return null;
+            }
+            if (sb.length() > 0) {
+                sb.append('|');
+            }
+            sb.append("(?").append(flags).append(':').append(p.pattern()).append(')');
+        }
+        return Pattern.compile(sb.toString());
+    }
+
+    private static String inlineFlags(int flags) {
+        // comments mode could swallow the closing parenthesis of the group
+        if ((flags & (Pattern.LITERAL | Pattern.CANON_EQ | Pattern.COMMENTS)) != 0) {
+            return null;
+        }
+        final StringBuilder sb = new StringBuilder();
+        if ((flags & Pattern.CASE_INSENSITIVE) != 0) {
+            sb.append('i');
+        }
+        if ((flags & Pattern.MULTILINE) != 0) {
+            sb.append('m');
+        }
+        if ((flags & Pattern.DOTALL) != 0) {
+            sb.append('s');
+        }
+        if ((flags & Pattern.UNICODE_CASE) != 0) {
+            sb.append('u');
+        }
+        if ((flags & Pattern.UNIX_LINES) != 0) {
+            sb.append('d');
+        }
+        if ((flags & Pattern.UNICODE_CHARACTER_CLASS) != 0) {
+            sb.append('U');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,135 @@
+package io.syndesis.qe.logs;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+import io.fabric8.kubernetes.api.model.DoneablePod;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.dsl.Loggable;
+import io.fabric8.kubernetes.client.dsl.LogWatch;
+import io.fabric8.kubernetes.client.dsl.PodResource;
+import io.fabric8.kubernetes.client.dsl.TailPrettyLoggable;
+import io.fabric8.kubernetes.client.dsl.TimeTailPrettyLoggable;
+import io.fabric8.kubernetes.client.dsl.TimestampBytesLimitTerminateTimeTailPrettyLoggable;
+import io.syndesis.qe.utils.OpenShiftUtils;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Opens pod logs as streams instead of loading them into memory.
+ * <p>
+ * The log is read through the log reader of the OpenShift client, a followed log through its log watch.
+ */
+@Slf4j
+public final class PodLogReader {
+
+    private PodLogReader() {
+    }
+
+    /**
+     * Opens a reader over the requested part of the pod log. The reader must be closed to release the connection.
+     *
+     * @param pod pod
+     * @param window part of the log to read
+     * @return reader of the log lines
+     * @throws IOException when the log can't be opened
+     */
+    public static LogStream open(Pod pod, LogWindow window) throws IOException {
+        return open(pod, null, window, false, false);
+    }
+
+    /**
+     * Opens a reader over the pod log.
+     *
+     * @param pod pod
+     * @param window part of the log to read
+     * @param follow if true, the stream stays open and returns new lines as they are written until the container stops
+     * @param timestamps if true, each line is prefixed by the RFC3339 timestamp and a space
+     * @return reader of the log lines
+     * @throws IOException when the log can't be opened
+     */
+    public static LogStream open(Pod pod, LogWindow window, boolean follow, boolean timestamps) throws IOException {
+        return open(pod, null, window, follow, timestamps);
+    }
+
+    /**
+     * Opens a reader over the log of a container of the pod.
+     *
+     * @param pod pod
+     * @param container name of the container, null for the only container of the pod
+     * @param window part of the log to read
+     * @param follow if true, the stream stays open and returns new lines as they are written until the container stops
+     * @param timestamps if true, each line is prefixed by the RFC3339 timestamp and a space
+     * @return reader of the log lines
+     * @throws IOException when the log can't be opened
+     */
+    public static LogStream open(Pod pod, String container, LogWindow window, boolean follow, boolean timestamps) throws IOException {
+        final String namespace = pod.getMetadata().getNamespace() != null
+            ? pod.getMetadata().getNamespace()
+            : OpenShiftUtils.client().getNamespace();
+
+        final PodResource<Pod, DoneablePod> resource = OpenShiftUtils.client().pods().inNamespace(namespace)
+            .withName(pod.getMetadata().getName());
+        final TimestampBytesLimitTerminateTimeTailPrettyLoggable<String, LogWatch> containerLog =
+            container == null ? resource : resource.inContainer(container);
+        final TimeTailPrettyLoggable<String, LogWatch> timedLog = timestamps ? containerLog.usingTimestamps() : containerLog;
+        final TailPrettyLoggable<String, LogWatch> sinceLog =
+            window.getSinceTime() == null ? timedLog : timedLog.sinceTime(window.getSinceTime().toString());
+        final Loggable<String, LogWatch> loggable =
+            window.getTailLines() == null ? sinceLog : sinceLog.tailingLines(window.getTailLines());
+
+        log.debug("Opening log of pod {}{} ({})", pod.getMetadata().getName(), container == null ? "" : "/" + container, window);
+        try {
+            if (follow) {
+                final LogWatch watch = loggable.watchLog();
+                return new LogStream(new InputStreamReader(watch.getOutput(), StandardCharsets.UTF_8), watch);
+            }
+            return new LogStream(loggable.getLogReader(), null);
+        } catch (KubernetesClientException ex) {
+            throw new IOException("Unable to read log of pod " + pod.getMetadata().getName() + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Reader of the pod log that can be stopped from another thread.
+     * <p>
+     * Closing a reader waits for its lock, which is held by the thread blocked in {@link #readLine()} until the pod writes another line.
+     * {@link #abort()} closes the log watch of a followed log instead, so the blocked read ends right away. A log that is not followed
+     * is read to its end without waiting for the pod, so its reader only stops at the next line.
+     */
+    public static final class LogStream extends BufferedReader {
+        private final LogWatch watch;
+        private volatile boolean aborted;
+
+        private LogStream(Reader in, LogWatch watch) {
+            super(in);
+            this.watch = watch;
+        }
+
+        @Override
+        public String readLine() throws IOException {
+            return aborted ? null : super.readLine();
+        }
+
+        public void abort() {
+            aborted = true;
+            if (watch != null) {
+                watch.close();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (watch != null) {
+                    watch.close();
+                }
+            }
+        }
+    }
+}
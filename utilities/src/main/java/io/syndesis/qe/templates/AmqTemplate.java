@@ -11,8 +11,10 @@ import io.fabric8.kubernetes.api.model.KubernetesList;
 import io.fabric8.openshift.api.model.Template;
 import io.syndesis.qe.accounts.Account;
 import io.syndesis.qe.accounts.AccountsDirectory;
+import io.syndesis.qe.utils.JmsClientManager;
 import io.syndesis.qe.utils.OpenShiftUtils;
 import io.syndesis.qe.utils.TestUtils;
+import io.syndesis.qe.utils.mqtt.MqttClientManager;
 import io.syndesis.qe.wait.OpenShiftWaitUtils;
 import lombok.extern.slf4j.Slf4j;
 
@@ -51,6 +53,9 @@ public class AmqTemplate {
     }
 
     public static void cleanUp() {
+        // the pooled connections and port-forwards point to the deleted broker pod
+        JmsClientManager.closeAll();
+        MqttClientManager.closeAll();
         OpenShiftUtils.getInstance().getDeploymentConfigs().stream().filter(dc -> "broker-amq".equals(dc.getMetadata().getName())).findFirst()
                 .ifPresent(dc -> OpenShiftUtils.getInstance().deleteDeploymentConfig(dc, true));
         OpenShiftUtils.getInstance().getServices().stream().filter(service -> "syndesis-amq".equals(service.getMetadata().getLabels().get("template"))).findFirst()
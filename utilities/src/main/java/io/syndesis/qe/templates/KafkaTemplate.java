@@ -52,6 +52,11 @@ public class KafkaTemplate {
             ((Map)kafka.get("config")).put("offsets.topic.replication.factor", 1);
             ((Map)kafka.get("config")).put("transaction.state.log.replication.factor", 1);
             ((Map)kafka.get("config")).put("transaction.state.log.min.isr", 1);
+            // plain node port listener, so that KafkaUtils can reach the brokers from outside of the cluster
+            Map<String, Object> external = new HashMap<>();
+            external.put("type", "nodeport");
+            external.put("tls", false);
+            ((Map)kafka.computeIfAbsent("listeners", k -> new HashMap<>())).put("external", external);
             Map<String, Object> zookeeper = (Map)crd.getSpec().getAdditionalProperties().get("zookeeper");
             zookeeper.put("replicas", 1);
 
@@ -0,0 +1,189 @@
+package io.syndesis.qe.templates;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.syndesis.qe.utils.OpenShiftUtils;
+import io.syndesis.qe.utils.PhaseTimer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Creates OpenShift resources concurrently.
+ * <p>
+ * The resources form a dependency graph by their kind: e.g. a deployment config is created only after the service accounts, secrets,
+ * config maps, image streams and services of the same batch, so that its image change triggers find the image streams and its first
+ * pods get the service environment variables. Resources without a dependency between them are created in parallel. Other work, like
+ * image imports, can be scheduled with {@link #after(String, Runnable, CompletableFuture[])} and overlaps the creation of the remaining
+ * resources. The time of every creation and of every scheduled task is recorded in the {@link PhaseTimer}.
+ * <p>
+ * Usage:
+ * <pre>
+ * try (ResourceDeployer deployer = new ResourceDeployer(8, timer)) {
+ *     deployer.create(processedTemplate.getItems());
+ *     deployer.after("patch image streams", () -> patchImageStreams(), deployer.created("ImageStream"));
+ *     deployer.await();
+ * }
+ * </pre>
+ */
+@Slf4j
+public class ResourceDeployer implements AutoCloseable {
+    private static final Map<String, Set<String>> DEPENDENCIES = new HashMap<>();
+
+    static {
+        dependsOn("RoleBinding", "ServiceAccount", "Role");
+        dependsOn("Route", "Service");
+        dependsOn("BuildConfig", "ImageStream", "Secret");
+        for (String workload : Arrays.asList("DeploymentConfig", "Deployment", "StatefulSet")) {
+            dependsOn(workload, "ServiceAccount", "RoleBinding", "Secret", "ConfigMap", "PersistentVolumeClaim", "ImageStream", "Service");
+        }
+    }
+
+    private final ExecutorService executor;
+    private final PhaseTimer timer;
+    private final Map<String, List<CompletableFuture<Void>>> created = new ConcurrentHashMap<>();
+    private final List<CompletableFuture<?>> tasks = new CopyOnWriteArrayList<>();
+
+    public ResourceDeployer(int parallelism, PhaseTimer timer) {
+        final AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "resource-deployer-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.timer = timer;
+    }
+
+    private static void dependsOn(String kind, String... dependencies) {
+        DEPENDENCIES.put(kind, new HashSet<>(Arrays.asList(dependencies)));
+    }
+
+    /**
+     * Schedules the creation of the resources, each one starts as soon as all resources of the kinds it depends on are created.
+     *
+     * @param items resources to create
+     * @return this
+     */
+    public ResourceDeployer create(Collection<? extends HasMetadata> items) {
+        final Map<String, List<HasMetadata>> byKind = items.stream()
+            .collect(Collectors.groupingBy(HasMetadata::getKind, LinkedHashMap::new, Collectors.toList()));
+        log.info("Creating {} resources: {}", items.size(), byKind.entrySet().stream()
+            .map(e -> e.getValue().size() + " " + e.getKey()).collect(Collectors.joining(", ")));
+
+        // schedule the kinds in topological order, so that the futures of the dependencies already exist
+        while (!byKind.isEmpty()) {
+            final List<String> schedulable = byKind.keySet().stream()
+                .filter(kind -> DEPENDENCIES.getOrDefault(kind, new HashSet<>()).stream().noneMatch(byKind::containsKey))
+                .collect(Collectors.toList());
+            if (schedulable.isEmpty()) {
+                throw new IllegalStateException("Cyclic dependencies between the kinds " + byKind.keySet());
+            }
+            for (String kind : schedulable) {
+                final CompletableFuture<Void> dependencies = created(DEPENDENCIES.getOrDefault(kind, new HashSet<>()).toArray(new String[0]));
+                final List<CompletableFuture<Void>> futures = created.computeIfAbsent(kind, k -> new CopyOnWriteArrayList<>());
+                byKind.remove(kind).forEach(item -> futures.add(dependencies.thenRunAsync(() -> createResource(item), executor)));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return future completed when all the scheduled resources of the kinds are created, completed right away if there are none
+     */
+    public CompletableFuture<Void> created(String... kinds) {
+        return CompletableFuture.allOf(Arrays.stream(kinds)
+            .flatMap(kind -> created.getOrDefault(kind, new ArrayList<>()).stream())
+            .toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Runs the action in the background after all the dependencies complete.
+     *
+     * @param phase name of the phase in the timer
+     * @param action action
+     * @param dependencies futures to wait for
+     * @return future of the action
+     */
+    public CompletableFuture<Void> after(String phase, Runnable action, CompletableFuture<?>... dependencies) {
+        final CompletableFuture<Void> task = CompletableFuture.allOf(dependencies).thenRunAsync(() -> timer.time(phase, action), executor);
+        tasks.add(task);
+        return task;
+    }
+
+    /**
+     * Runs the action in the background right away.
+     */
+    public CompletableFuture<Void> async(String phase, Runnable action) {
+        return after(phase, action);
+    }
+
+    /**
+     * Computes the value in the background, {@link #join(CompletableFuture)} returns it.
+     */
+    public <T> CompletableFuture<T> supply(String phase, Supplier<T> supplier) {
+        final CompletableFuture<T> task = CompletableFuture.supplyAsync(() -> timer.time(phase, supplier), executor);
+        tasks.add(task);
+        return task;
+    }
+
+    /**
+     * Waits until all the resources are created and all the tasks are finished.
+     *
+     * @throws RuntimeException the first failure of a creation or a task
+     */
+    public void await() {
+        final List<CompletableFuture<?>> all = new ArrayList<>(tasks);
+        created.values().forEach(all::addAll);
+        join(CompletableFuture.allOf(all.toArray(new CompletableFuture[0])));
+    }
+
+    /**
+     * Waits for the future and rethrows its failure unwrapped.
+     */
+    public static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException | CompletionException e) {
+            final Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the deployment", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void createResource(HasMetadata item) {
+        final long start = System.nanoTime();
+        OpenShiftUtils.getInstance().createResources(item);
+        timer.record("create " + item.getKind(), start, System.nanoTime());
+        log.debug("Created {} {}", item.getKind(), item.getMetadata().getName());
+    }
+}
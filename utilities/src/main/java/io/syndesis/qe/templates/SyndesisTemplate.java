@@ -12,15 +12,14 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.URL;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 import cz.xtf.openshift.OpenShiftBinaryClient;
 import io.fabric8.kubernetes.api.model.ConfigMap;
-import io.fabric8.kubernetes.api.model.HasMetadata;
 import io.fabric8.kubernetes.api.model.KubernetesList;
 import io.fabric8.kubernetes.api.model.Secret;
 import io.fabric8.kubernetes.api.model.ServiceAccount;
@@ -33,18 +32,24 @@ import io.fabric8.openshift.api.model.TagImportPolicy;
 import io.fabric8.openshift.api.model.Template;
 import io.syndesis.qe.Component;
 import io.syndesis.qe.TestConfiguration;
+import io.syndesis.qe.utils.ArtifactCache;
 import io.syndesis.qe.utils.HTTPResponse;
 import io.syndesis.qe.utils.HttpUtils;
 import io.syndesis.qe.utils.OpenShiftUtils;
+import io.syndesis.qe.utils.PhaseTimer;
 import io.syndesis.qe.utils.TestUtils;
 import io.syndesis.qe.utils.TodoUtils;
+import io.syndesis.qe.wait.OpenShiftWaitUtils;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class SyndesisTemplate {
+    // number of resources created at once
+    private static final int PARALLELISM = 8;
+
     public static Template getTemplate() {
-        try (InputStream is = new URL(TestConfiguration.syndesisTemplateUrl()).openStream()) {
+        try (InputStream is = ArtifactCache.open(TestConfiguration.syndesisTemplateUrl())) {
             return OpenShiftUtils.client().templates().load(is).get();
         } catch (IOException ex) {
             throw new IllegalArgumentException("Unable to read template ", ex);
@@ -52,8 +57,8 @@ public class SyndesisTemplate {
     }
 
     public static ServiceAccount getSupportSA() {
-        // Refresh the support SA URL as it can change during multiple tests executions
-        try (InputStream is = new URL(TestConfiguration.syndesisTemplateSA()).openStream()) {
+        // The support SA can change during multiple tests executions, the cache revalidates it once per run
+        try (InputStream is = ArtifactCache.open(TestConfiguration.syndesisTemplateSA())) {
             return OpenShiftUtils.client().serviceAccounts().load(is).get();
         } catch (IOException ex) {
             throw new IllegalArgumentException("Unable to read SA ", ex);
@@ -70,8 +75,49 @@ public class SyndesisTemplate {
 
     public static void deployUsingTemplate() {
         log.info("Deploying using template");
-        OpenShiftUtils.getInstance().cleanAndAssert();
+        final PhaseTimer timer = new PhaseTimer("Syndesis template deployment");
+        timer.time("clean namespace", () -> OpenShiftUtils.getInstance().cleanAndAssert());
+
+        try (ResourceDeployer deployer = new ResourceDeployer(PARALLELISM, timer)) {
+            // the template download doesn't depend on the service account
+            final CompletableFuture<Template> template = deployer.supply("load template", SyndesisTemplate::getTemplate);
+
+            final String oauthToken = timer.time("create support service account", SyndesisTemplate::createSupportServiceAccount);
+
+            // set params
+            Map<String, String> templateParams = new HashMap<>();
+            templateParams.put("ROUTE_HOSTNAME", TestConfiguration.openShiftNamespace() + "." + TestConfiguration.openShiftRouteSuffix());
+            templateParams.put("OPENSHIFT_MASTER", TestConfiguration.openShiftUrl());
+            templateParams.put("OPENSHIFT_PROJECT", TestConfiguration.openShiftNamespace());
+            templateParams.put("SAR_PROJECT", TestConfiguration.openShiftSARNamespace());
+            templateParams.put("OPENSHIFT_OAUTH_CLIENT_SECRET", oauthToken);
+            templateParams.put("TEST_SUPPORT_ENABLED", "true");
+            templateParams.put("MAX_INTEGRATIONS_PER_USER", "5");
+            if (TestUtils.isJenkins()) {
+                templateParams.put("INTEGRATION_STATE_CHECK_INTERVAL", "150");
+            }
+            // process & create
+            KubernetesList processedTemplate = timer.time("process template",
+                () -> OpenShiftUtils.getInstance().recreateAndProcessTemplate(ResourceDeployer.join(template), templateParams));
+            deployer.create(processedTemplate.getItems());
+
+            deployer.after("create editors role binding", SyndesisTemplate::createEditorsRoleBinding, deployer.created("ServiceAccount"));
+            // the image imports run while the deployment configs and the rest of the resources are created
+            final CompletableFuture<Void> patched = deployer.after("patch image streams", SyndesisTemplate::patchImageStreams,
+                deployer.created("ImageStream"));
+            deployer.after("import prod images", SyndesisTemplate::importProdImages, patched);
+            deployer.await();
+        } finally {
+            timer.logSummary();
+        }
+    }
 
+    /**
+     * Creates the restricted support service account.
+     *
+     * @return OAuth token of the service account
+     */
+    private static String createSupportServiceAccount() {
         // get & create restricted SA
         OpenShiftUtils.getInstance().createServiceAccount(getSupportSA());
         // get token from SA `oc secrets get-token` && wait until created to prevent 404
@@ -86,28 +132,10 @@ public class SyndesisTemplate {
         // token is Base64 encoded by default
         String oauthTokenEncoded = secret.getData().get("token");
         byte[] oauthTokenBytes = Base64.decodeBase64(oauthTokenEncoded);
-        String oauthToken = new String(oauthTokenBytes);
-
-        // get the template
-        Template template = getTemplate();
-        // set params
-        Map<String, String> templateParams = new HashMap<>();
-        templateParams.put("ROUTE_HOSTNAME", TestConfiguration.openShiftNamespace() + "." + TestConfiguration.openShiftRouteSuffix());
-        templateParams.put("OPENSHIFT_MASTER", TestConfiguration.openShiftUrl());
-        templateParams.put("OPENSHIFT_PROJECT", TestConfiguration.openShiftNamespace());
-        templateParams.put("SAR_PROJECT", TestConfiguration.openShiftSARNamespace());
-        templateParams.put("OPENSHIFT_OAUTH_CLIENT_SECRET", oauthToken);
-        templateParams.put("TEST_SUPPORT_ENABLED", "true");
-        templateParams.put("MAX_INTEGRATIONS_PER_USER", "5");
-        if (TestUtils.isJenkins()) {
-            templateParams.put("INTEGRATION_STATE_CHECK_INTERVAL", "150");
-        }
-        // process & create
-        KubernetesList processedTemplate = OpenShiftUtils.getInstance().recreateAndProcessTemplate(template, templateParams);
-        for (HasMetadata hasMetadata : processedTemplate.getItems()) {
-            OpenShiftUtils.getInstance().createResources(hasMetadata);
-        }
+        return new String(oauthTokenBytes);
+    }
 
+    private static void createEditorsRoleBinding() {
         //TODO: there's a bug in openshift-client, we need to initialize manually
         OpenShiftUtils.client().roleBindings().createOrReplaceWithNew()
                 .withNewMetadata()
@@ -117,8 +145,6 @@ public class SyndesisTemplate {
                 .addNewSubject().withKind("ServiceAccount").withName(Component.SERVER.getName()).withNamespace(TestConfiguration.openShiftNamespace()).endSubject()
                 .addToUserNames(String.format("system:serviceaccount:%s:%s", TestConfiguration.openShiftNamespace(), Component.SERVER.getName()))
                 .done();
-        patchImageStreams();
-        importProdImages();
     }
 
     private static void deployUsingOperator() {
@@ -134,28 +160,38 @@ public class SyndesisTemplate {
             throw new RuntimeException(sb.toString());
         }
 
-        OpenShiftUtils.getInstance().cleanAndAssert();
-        deployCrd();
-        // When testing upgrade using operator, the operator deploys last released version tag (and it is upgrading to latest daily), so this can be removed
-        // when the version in syndesis-qe will be 1.7-SNAPSHOT
-        // Use this only when doing upgrade
-        if (System.getProperty("syndesis.upgrade.version") != null && Double.parseDouble(System.getProperty("syndesis.version").substring(0, 3)) <= 1.5) {
-            deployOperatorPre73Way();
-        } else {
-            deployOperator();
+        final PhaseTimer timer = new PhaseTimer("Syndesis operator deployment");
+        try {
+            timer.time("clean namespace", () -> OpenShiftUtils.getInstance().cleanAndAssert());
+            timer.time("create CRD", SyndesisTemplate::deployCrd);
+            // When testing upgrade using operator, the operator deploys last released version tag (and it is upgrading to latest daily), so this can be removed
+            // when the version in syndesis-qe will be 1.7-SNAPSHOT
+            // Use this only when doing upgrade
+            if (System.getProperty("syndesis.upgrade.version") != null && Double.parseDouble(System.getProperty("syndesis.version").substring(0, 3)) <= 1.5) {
+                timer.time("deploy operator", SyndesisTemplate::deployOperatorPre73Way);
+            } else {
+                timer.time("deploy operator", SyndesisTemplate::deployOperator);
+            }
+            try (ResourceDeployer deployer = new ResourceDeployer(PARALLELISM, timer)) {
+                // the operator creates the resources, so only the follow-up steps run concurrently, each of them waits for its resources
+                final CompletableFuture<Void> imported = deployer.async("import prod images", SyndesisTemplate::importProdImages);
+                deployer.async("deploy Syndesis resource", SyndesisTemplate::deploySyndesisViaOperator);
+                deployer.async("fix maven repositories", SyndesisTemplate::fixMavenRepos);
+                // both replace the image streams, don't let them overwrite each other
+                deployer.after("patch image streams", SyndesisTemplate::patchImageStreams, imported);
+                deployer.await();
+            }
+            // Prod template does have broker-amq deployment config defined for some reason, so delete it
+            OpenShiftUtils.client().deploymentConfigs().withName("broker-amq").delete();
+            TodoUtils.createDefaultRouteForTodo("todo2", "/");
+        } finally {
+            timer.logSummary();
         }
-        importProdImages();
-        deploySyndesisViaOperator();
-        fixMavenRepos();
-        patchImageStreams();
-        // Prod template does have broker-amq deployment config defined for some reason, so delete it
-        OpenShiftUtils.client().deploymentConfigs().withName("broker-amq").delete();
-        TodoUtils.createDefaultRouteForTodo("todo2", "/");
     }
 
     private static void deployCrd() {
         log.info("Creating custom resource definition from " + TestConfiguration.syndesisOperatorCrdUrl());
-        try (InputStream is = new URL(TestConfiguration.syndesisOperatorCrdUrl()).openStream()) {
+        try (InputStream is = ArtifactCache.open(TestConfiguration.syndesisOperatorCrdUrl())) {
             CustomResourceDefinition crd = OpenShiftUtils.client().customResourceDefinitions().load(is).get();
             OpenShiftUtils.client().customResourceDefinitions().create(crd);
         } catch (IOException ex) {
@@ -175,17 +211,12 @@ public class SyndesisTemplate {
                 istream -> json[0] = IOUtils.toString(istream, "UTF-8"),
                 "create",
                 "-n", TestConfiguration.openShiftNamespace(),
-                "-f", TestConfiguration.syndesisOperatorUrl()
+                "-f", operatorResource()
         );
 
         importProdImage("operator");
 
-        log.info("Waiting for syndesis-operator to be ready");
-        OpenShiftUtils.xtf().waiters()
-                .areExactlyNPodsReady(1, "syndesis.io/component", "syndesis-operator")
-                .interval(TimeUnit.SECONDS, 20)
-                .timeout(TimeUnit.MINUTES, 10)
-                .assertEventually();
+        waitForOperator();
     }
 
     /**
@@ -200,22 +231,37 @@ public class SyndesisTemplate {
                 istream -> log.info(IOUtils.toString(istream, "UTF-8")),
                 "create",
                 "-n", TestConfiguration.openShiftNamespace(),
-                "-f", TestConfiguration.syndesisOperatorUrl()
+                "-f", operatorResource()
         );
 
         importProdImage("operator");
 
+        waitForOperator();
+    }
+
+    private static String operatorResource() {
+        try {
+            return ArtifactCache.get(TestConfiguration.syndesisOperatorUrl()).toAbsolutePath().toString();
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Unable to load operator resource", ex);
+        }
+    }
+
+    private static void waitForOperator() {
         log.info("Waiting for syndesis-operator to be ready");
-        OpenShiftUtils.xtf().waiters()
-                .areExactlyNPodsReady(1, "syndesis.io/component", "syndesis-operator")
-                .interval(TimeUnit.SECONDS, 20)
-                .timeout(TimeUnit.MINUTES, 10)
-                .assertEventually();
+        try {
+            OpenShiftWaitUtils.assertEventually("syndesis-operator wasn't ready in time",
+                OpenShiftWaitUtils.areExactlyNPodsReady("syndesis.io/component", "syndesis-operator", 1),
+                OpenShiftWaitUtils.DEFAULT_WAIT_INTERVAL, TimeUnit.MINUTES.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail("Interrupted while waiting for syndesis-operator");
+        }
     }
 
     private static void deploySyndesisViaOperator() {
         log.info("Deploying syndesis resource from " + TestConfiguration.syndesisOperatorTemplateUrl());
-        try (InputStream is = new URL(TestConfiguration.syndesisOperatorTemplateUrl()).openStream()) {
+        try (InputStream is = ArtifactCache.open(TestConfiguration.syndesisOperatorTemplateUrl())) {
             CustomResourceDefinition crd = OpenShiftUtils.client().customResourceDefinitions().load(is).get();
             Map<String, Object> integration = (Map)crd.getSpec().getAdditionalProperties().get("integration");
             integration.put("limit", 5);
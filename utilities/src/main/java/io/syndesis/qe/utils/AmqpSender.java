@@ -0,0 +1,192 @@
+package io.syndesis.qe.utils;
+
+import org.HdrHistogram.Histogram;
+
+import javax.jms.CompletionListener;
+import javax.jms.Connection;
+import javax.jms.DeliveryMode;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Sends messages over AMQP without waiting for each of them to be settled.
+ * <p>
+ * Each message is sent asynchronously with a completion listener, which is called when the broker settles the delivery, or right after
+ * the write when the delivery is presettled. At most window messages wait for the completion, so the broker is not flooded. The time
+ * between the send and the completion is recorded as the settlement latency.
+ * <p>
+ * Usage:
+ * <pre>
+ * AmqpSender.Report report = new AmqpSender(JMSUtils.Destination.QUEUE, "cheese")
+ *     .settlement(AmqpSender.Settlement.PRESETTLED)
+ *     .window(500)
+ *     .send(messages);
+ * </pre>
+ */
+@Slf4j
+public class AmqpSender {
+    private static final long TIMEOUT_MS = TimeUnit.SECONDS.toMillis(30);
+    // one minute in microseconds
+    private static final long HIGHEST_LATENCY = TimeUnit.MINUTES.toMicros(1);
+
+    /**
+     * How the deliveries are settled.
+     */
+    public enum Settlement {
+        /**
+         * The broker settles each delivery, the completion means that the broker accepted the message.
+         */
+        SETTLED(""),
+        /**
+         * The producer settles the deliveries when sending them (fire and forget), the completion only means that the message was written.
+         */
+        PRESETTLED("jms.presettlePolicy.presettleProducers=true");
+
+        private final String uriOptions;
+
+        Settlement(String uriOptions) {
+            this.uriOptions = uriOptions;
+        }
+    }
+
+    private final JMSUtils.Destination type;
+    private final String name;
+    private Settlement settlement = Settlement.SETTLED;
+    private int window = 100;
+    private boolean persistent = true;
+
+    public AmqpSender(JMSUtils.Destination type, String name) {
+        this.type = type;
+        this.name = name;
+    }
+
+    public AmqpSender settlement(Settlement settlement) {
+        this.settlement = settlement;
+        return this;
+    }
+
+    /**
+     * Max number of messages waiting for the completion.
+     */
+    public AmqpSender window(int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("Window must be >= 1, was " + window);
+        }
+        this.window = window;
+        return this;
+    }
+
+    public AmqpSender persistent(boolean persistent) {
+        this.persistent = persistent;
+        return this;
+    }
+
+    /**
+     * Sends the messages and waits until all of them are completed.
+     *
+     * @param payloads text messages
+     * @return throughput and settlement latency
+     */
+    public Report send(Iterable<String> payloads) {
+        final Semaphore inFlight = new Semaphore(window);
+        final Histogram latency = new Histogram(HIGHEST_LATENCY, 3);
+        final AtomicLong completed = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        long sent = 0;
+
+        final long start = System.nanoTime();
+        try (Connection connection = JmsClientManager.shared("amqp").createConnection(settlement.uriOptions)) {
+            final Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            final MessageProducer producer = session.createProducer(JmsClientManager.destination(session, type, name));
+            producer.setDeliveryMode(persistent ? DeliveryMode.PERSISTENT : DeliveryMode.NON_PERSISTENT);
+            producer.setDisableMessageTimestamp(true);
+
+            for (String payload : payloads) {
+                if (!inFlight.tryAcquire(TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    log.warn("No AMQP delivery to {} was settled in {} ms, stopping", name, TIMEOUT_MS);
+                    break;
+                }
+                final long sentAt = System.nanoTime();
+                producer.send(session.createTextMessage(payload), new CompletionListener() {
+                    @Override
+                    public void onCompletion(Message message) {
+                        final long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sentAt);
+                        synchronized (latency) {
+                            latency.recordValue(Math.min(micros, HIGHEST_LATENCY));
+                        }
+                        completed.incrementAndGet();
+                        inFlight.release();
+                    }
+
+                    @Override
+                    public void onException(Message message, Exception exception) {
+                        if (failed.incrementAndGet() == 1) {
+                            log.warn("AMQP delivery to {} failed: {}", name, exception.getMessage());
+                        }
+                        inFlight.release();
+                    }
+                });
+                sent++;
+            }
+            // wait for the rest of the window before closing the connection
+            if (!inFlight.tryAcquire(window, TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                log.warn("Not all AMQP deliveries to {} were settled", name);
+            }
+        } catch (JMSException e) {
+            throw new IllegalStateException("Unable to send AMQP messages to " + name, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        final Report report;
+        synchronized (latency) {
+            report = new Report(settlement, sent, completed.get(), failed.get(), System.nanoTime() - start, latency.copy());
+        }
+        log.info(report.summary());
+        return report;
+    }
+
+    /**
+     * Result of {@link #send(Iterable)}, latencies are in milliseconds.
+     */
+    @Getter
+    public static final class Report {
+        private final Settlement settlement;
+        private final long sent;
+        private final long completed;
+        private final long failed;
+        private final long elapsedNanos;
+        private final Histogram latency;
+
+        private Report(Settlement settlement, long sent, long completed, long failed, long elapsedNanos, Histogram latency) {
+            this.settlement = settlement;
+            this.sent = sent;
+            this.completed = completed;
+            this.failed = failed;
+            this.elapsedNanos = elapsedNanos;
+            this.latency = latency;
+        }
+
+        public double getThroughput() {
+            return elapsedNanos <= 0 ? 0 : completed * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+        }
+
+        public double percentile(double percentile) {
+            return latency.getTotalCount() == 0 ? 0 : latency.getValueAtPercentile(percentile) / 1000.0;
+        }
+
+        public String summary() {
+            return String.format("AMQP %s send: %d sent, %d completed, %d failed, %.1f msg/s, settlement latency p50 %.2f ms, "
+                    + "p99 %.2f ms, p99.9 %.2f ms, max %.2f ms", settlement, sent, completed, failed, getThroughput(), percentile(50),
+                percentile(99), percentile(99.9), latency.getTotalCount() == 0 ? 0 : latency.getMaxValue() / 1000.0);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package io.syndesis.qe.utils;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.syndesis.qe.TestConfiguration;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Local cache of the remote deployment artifacts (templates, CRDs, operator resources).
+ * <p>
+ * The content is stored once per SHA-256 digest in {@code blobs/}, {@code index/} maps the URL and the Syndesis version to the digest
+ * together with the ETag and Last-Modified headers of the last download. An artifact is revalidated with a conditional request once per
+ * test run, later calls in the same run use the resolved file directly. When the revalidation fails, e.g. without network access, the
+ * cached copy is used.
+ * <p>
+ * With {@link TestConfiguration#artifactsOfflineDir()} set, nothing is downloaded. The artifacts are resolved from the offline directory,
+ * which can be either a copy of the cache directory or a mirror with the {@code <host>/<path>} layout, e.g.
+ * {@code raw.githubusercontent.com/syndesisio/syndesis/master/install/syndesis.yml}.
+ * <p>
+ * Usage:
+ * <pre>
+ * try (InputStream is = ArtifactCache.open(TestConfiguration.syndesisTemplateUrl())) {
+ *     ...
+ * }
+ * </pre>
+ */
+@Slf4j
+public final class ArtifactCache {
+    private static final int CONNECT_TIMEOUT_MS = 10000;
+    private static final int READ_TIMEOUT_MS = 60000;
+
+    private static final Map<String, Path> RESOLVED = new ConcurrentHashMap<>();
+
+    private ArtifactCache() {
+    }
+
+    public static InputStream open(String url) throws IOException {
+        return Files.newInputStream(get(url));
+    }
+
+    public static InputStream open(String url, String version) throws IOException {
+        return Files.newInputStream(get(url, version));
+    }
+
+    /**
+     * Resolves the artifact for the current Syndesis version.
+     *
+     * @param url artifact URL
+     * @return local file with the content of the artifact
+     */
+    public static Path get(String url) throws IOException {
+        return get(url, System.getProperty("syndesis.version", ""));
+    }
+
+    /**
+     * Resolves the artifact.
+     *
+     * @param url artifact URL, file URLs and local paths are returned directly
+     * @param version Syndesis version the artifact belongs to
+     * @return local file with the content of the artifact
+     * @throws IOException when the artifact can't be downloaded and is not cached
+     */
+    public static Path get(String url, String version) throws IOException {
+        final URL source;
+        try {
+            source = new URL(url);
+        } catch (MalformedURLException e) {
+            // a plain local path, as accepted by oc create -f
+            return Paths.get(url);
+        }
+        if ("file".equals(source.getProtocol())) {
+            try {
+                return Paths.get(source.toURI());
+            } catch (URISyntaxException e) {
+                throw new IOException("Invalid file URL " + url, e);
+            }
+        }
+
+        final String key = DigestUtils.sha256Hex(version + "|" + url);
+        final Path resolved = RESOLVED.get(key);
+        if (resolved != null && Files.isReadable(resolved)) {
+            return resolved;
+        }
+        synchronized (ArtifactCache.class) {
+            final Optional<String> offlineDir = TestConfiguration.artifactsOfflineDir();
+            final Path path = offlineDir.isPresent()
+                ? resolveOffline(Paths.get(offlineDir.get()), source, key)
+                : fetch(Paths.get(TestConfiguration.artifactsCacheDir()), source, version, key);
+            RESOLVED.put(key, path);
+            return path;
+        }
+    }
+
+    private static Path resolveOffline(Path dir, URL source, String key) throws IOException {
+        final Properties entry = readIndex(dir, key);
+        if (entry != null) {
+            final Path blob = blob(dir, entry.getProperty("sha256"));
+            if (Files.isReadable(blob)) {
+                log.debug("Using offline copy {} of {}", blob, source);
+                return blob;
+            }
+        }
+        final Path mirrored = dir.resolve(source.getHost()).resolve(source.getPath().replaceFirst("^/", ""));
+        if (Files.isReadable(mirrored)) {
+            log.debug("Using offline copy {} of {}", mirrored, source);
+            return mirrored;
+        }
+        throw new IOException("Artifact " + source + " is not available in the offline directory " + dir);
+    }
+
+    private static Path fetch(Path dir, URL source, String version, String key) throws IOException {
+        final Properties entry = readIndex(dir, key);
+        final Path cached = entry == null ? null : blob(dir, entry.getProperty("sha256"));
+        final boolean hasCached = cached != null && Files.isReadable(cached);
+
+        try {
+            final URLConnection connection = source.openConnection();
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(READ_TIMEOUT_MS);
+            if (connection instanceof HttpURLConnection) {
+                final HttpURLConnection http = (HttpURLConnection) connection;
+                if (hasCached) {
+                    setIfPresent(http, "If-None-Match", entry.getProperty("etag"));
+                    setIfPresent(http, "If-Modified-Since", entry.getProperty("lastModified"));
+                }
+                final int code = http.getResponseCode();
+                if (code == HttpURLConnection.HTTP_NOT_MODIFIED && hasCached) {
+                    log.debug("{} not modified, using {}", source, cached);
+                    return cached;
+                }
+                if (code >= HttpURLConnection.HTTP_BAD_REQUEST) {
+                    throw new IOException("Download of " + source + " failed with HTTP " + code);
+                }
+            }
+            return download(dir, connection, source, version, key);
+        } catch (IOException e) {
+            if (hasCached) {
+                log.warn("Unable to revalidate {}, using the cached copy: {}", source, e.getMessage());
+                return cached;
+            }
+            throw e;
+        }
+    }
+
+    private static Path download(Path dir, URLConnection connection, URL source, String version, String key) throws IOException {
+        Files.createDirectories(dir.resolve("blobs"));
+        final Path tmp = Files.createTempFile(dir.resolve("blobs"), "download-", ".tmp");
+        try {
+            final MessageDigest digest = DigestUtils.getSha256Digest();
+            try (InputStream in = new DigestInputStream(connection.getInputStream(), digest)) {
+                Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            final String sha256 = Hex.encodeHexString(digest.digest());
+            final Path blob = blob(dir, sha256);
+            if (Files.exists(blob)) {
+                // same content as already cached, e.g. for another version
+                Files.delete(tmp);
+            } else {
+                Files.move(tmp, blob, StandardCopyOption.ATOMIC_MOVE);
+            }
+
+            final Properties entry = new Properties();
+            entry.setProperty("url", source.toString());
+            entry.setProperty("version", version);
+            entry.setProperty("sha256", sha256);
+            entry.setProperty("fetched", Instant.now().toString());
+            setIfPresent(entry, "etag", connection.getHeaderField("ETag"));
+            setIfPresent(entry, "lastModified", connection.getHeaderField("Last-Modified"));
+            writeIndex(dir, key, entry);
+            log.info("Downloaded {} to {}", source, blob);
+            return blob;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static Path blob(Path dir, String sha256) {
+        return dir.resolve("blobs").resolve(sha256);
+    }
+
+    private static Properties readIndex(Path dir, String key) {
+        final Path index = dir.resolve("index").resolve(key + ".properties");
+        if (!Files.isReadable(index)) {
+            return null;
+        }
+        final Properties entry = new Properties();
+        try (InputStream is = Files.newInputStream(index)) {
+            entry.load(is);
+        } catch (IOException e) {
+            log.warn("Unable to read artifact index {}: {}", index, e.getMessage());
+            return null;
+        }
+        return entry.getProperty("sha256") == null ? null : entry;
+    }
+
+    private static void writeIndex(Path dir, String key, Properties entry) throws IOException {
+        final Path indexDir = Files.createDirectories(dir.resolve("index"));
+        final Path tmp = Files.createTempFile(indexDir, key, ".tmp");
+        try (OutputStream os = Files.newOutputStream(tmp)) {
+            entry.store(os, null);
+        }
+        Files.move(tmp, indexDir.resolve(key + ".properties"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void setIfPresent(HttpURLConnection connection, String header, String value) {
+        if (value != null) {
+            connection.setRequestProperty(header, value);
+        }
+    }
+
+    private static void setIfPresent(Properties properties, String key, String value) {
+        if (value != null) {
+            properties.setProperty(key, value);
+        }
+    }
+}
@@ -0,0 +1,547 @@
+package io.syndesis.qe.utils;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
+import io.fabric8.kubernetes.api.model.DoneableConfigMap;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.kubernetes.client.dsl.Resource;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Exclusive lease stored in the annotations of a ConfigMap.
+ * <p>
+ * The lease is acquired by creating the ConfigMap or by replacing it with the resourceVersion it was read with, so only one of
+ * concurrent holders wins. The holder renews the lease in the background, a lease that was not renewed within its duration is
+ * considered expired and can be taken over, e.g. after the test run was killed. The renew time is the wall clock of the holder, so the
+ * duration should be much longer than the clock skew of the machines running the tests. The ConfigMaps should be kept in a namespace that
+ * is not cleaned, see {@link io.syndesis.qe.TestConfiguration#leaseNamespace()}. When the ConfigMap is deleted anyway while the lease is
+ * held, the next update creates it again, and an instance that saw it held by another holder waits for the lease duration before it
+ * creates it. A lease that was taken over by another holder is reported by {@link #assertNoneLost()}.
+ * <p>
+ * Holders that wait for the lease with {@link #acquire(long, TimeUnit)} are registered in a FIFO queue stored in the
+ * {@link #QUEUE} annotation, one {@code <enqueued> <heartbeat> <holder>} line per waiter. The lease is handed to the waiter that was
+ * enqueued first, {@link #tryAcquire()} doesn't jump the queue either.
+ * <p>
+ * Usage:
+ * <pre>
+ * ConfigMapLease lease = new ConfigMapLease("syndesis-1", "syndesis-qe-lease", 300, TimeUnit.SECONDS);
+ * if (lease.tryAcquire()) {
+ *     ...
+ *     lease.release(Collections.emptyMap());
+ * }
+ * </pre>
+ */
+@Slf4j
+public class ConfigMapLease implements AutoCloseable {
+    public static final String HOLDER = "syndesis.io/lease-holder";
+    public static final String RENEW_TIME = "syndesis.io/lease-renew-time";
+    public static final String DURATION = "syndesis.io/lease-duration-seconds";
+    public static final String QUEUE = "syndesis.io/lease-queue";
+
+    private static final int UPDATE_ATTEMPTS = 5;
+    private static final Set<String> LOST = ConcurrentHashMap.newKeySet();
+    private static final String DEFAULT_HOLDER = ManagementFactory.getRuntimeMXBean().getName()
+        + "/" + UUID.randomUUID().toString().substring(0, 8);
+
+    @Getter
+    private final String namespace;
+    @Getter
+    private final String name;
+    @Getter
+    private final String holder;
+    private final long durationMs;
+
+    private ScheduledExecutorService renewal;
+    private volatile boolean held;
+    // the last seen ConfigMap was held by another holder, and since when it is missing
+    private boolean sawHolder;
+    private long missingSince = -1;
+
+    public ConfigMapLease(String namespace, String name, long duration, TimeUnit unit) {
+        this(namespace, name, DEFAULT_HOLDER, duration, unit);
+    }
+
+    public ConfigMapLease(String namespace, String name, String holder, long duration, TimeUnit unit) {
+        this.namespace = namespace;
+        this.name = name;
+        this.holder = holder;
+        this.durationMs = unit.toMillis(duration);
+    }
+
+    /**
+     * Tries to acquire the lease once, without waiting.
+     *
+     * @return true if the lease is held by this instance
+     */
+    public synchronized boolean tryAcquire() {
+        if (held) {
+            return true;
+        }
+        final ConfigMap cm = resource().get();
+        if (cm == null) {
+            return createDelay(System.currentTimeMillis()) == 0 && create(leaseAnnotations()) && acquired();
+        }
+        observed(cm);
+        final String current = annotation(cm, HOLDER);
+        if (current != null && !holder.equals(current)) {
+            if (!isExpired(cm)) {
+                return false;
+            }
+            log.warn("Lease {}/{} of {} expired, taking it over", namespace, name, current);
+        }
+        final List<Waiter> queue = queue(cm, System.currentTimeMillis());
+        if (!queue.isEmpty() && !holder.equals(queue.get(0).holder)) {
+            return false;
+        }
+        return replace(cm, leaseAnnotations(queue)) && acquired();
+    }
+
+    /**
+     * Waits in the queue until the lease is acquired.
+     * <p>
+     * The waiter is woken up by a watch on the ConfigMap, so the lease is taken as soon as the previous holder releases it, and at the
+     * latest when the lease of the previous holder expires. The queue entry is refreshed every third of the lease duration, entries that
+     * were not refreshed within the duration are dropped, e.g. after the waiting test run was killed. When the ConfigMap of a held lease
+     * is deleted, the waiters give the holder the lease duration to restore it before they create it.
+     *
+     * @return false if the lease was not acquired within the timeout
+     */
+    public boolean acquire(long timeout, TimeUnit unit) throws InterruptedException {
+        if (held) {
+            return true;
+        }
+        final long enqueued = System.currentTimeMillis();
+        final long deadline = enqueued + unit.toMillis(timeout);
+        final Object monitor = new Object();
+        final AtomicLong events = new AtomicLong();
+        final Watcher<ConfigMap> watcher = new Watcher<ConfigMap>() {
+            @Override
+            public void eventReceived(Action action, ConfigMap resource) {
+                synchronized (monitor) {
+                    events.incrementAndGet();
+                    monitor.notifyAll();
+                }
+            }
+
+            @Override
+            public void onClose(KubernetesClientException cause) {
+                if (cause != null) {
+                    log.warn("Watch of lease {}/{} was closed, checking it periodically: {}", namespace, name, cause.getMessage());
+                }
+            }
+        };
+
+        String reported = null;
+        try (Watch watch = resource().watch(watcher)) {
+            while (System.currentTimeMillis() < deadline) {
+                final long seen = events.get();
+                final long now = System.currentTimeMillis();
+                long wait = heartbeatPeriod();
+                final ConfigMap cm = resource().get();
+                if (cm == null) {
+                    final long delay = createDelay(now);
+                    if (delay == 0) {
+                        if (create(leaseAnnotations()) && acquired(enqueued)) {
+                            return true;
+                        }
+                        continue;
+                    }
+                    wait = Math.min(wait, delay);
+                } else {
+                    observed(cm);
+                    final List<Waiter> queue = queue(cm, now);
+                    final Waiter own = queue.stream().filter(w -> holder.equals(w.holder)).findFirst().orElse(null);
+                    final boolean free = isFree(cm);
+                    if (free && own != null && own == queue.get(0)) {
+                        if (replace(cm, leaseAnnotations(queue)) && acquired(enqueued)) {
+                            return true;
+                        }
+                        continue;
+                    }
+                    if (own == null || now - own.heartbeat >= heartbeatPeriod()) {
+                        final List<Waiter> updated = without(queue);
+                        updated.add(new Waiter(enqueued, now, holder));
+                        updated.sort(Waiter.ORDER);
+                        // on conflict the queue is read again in the next round
+                        replace(cm, Collections.singletonMap(QUEUE, format(updated)));
+                        continue;
+                    }
+                    final String status = (free ? "nobody" : annotation(cm, HOLDER))
+                        + ", position " + (queue.indexOf(own) + 1) + " of " + queue.size();
+                    if (!status.equals(reported)) {
+                        log.info("Waiting for lease {}/{} held by {}", namespace, name, status);
+                        reported = status;
+                    }
+                    if (!free) {
+                        wait = Math.min(wait, expiresAt(cm) - now + 1);
+                    }
+                }
+                wait = Math.max(1L, Math.min(wait, deadline - System.currentTimeMillis()));
+                synchronized (monitor) {
+                    if (events.get() == seen) {
+                        monitor.wait(wait);
+                    }
+                }
+            }
+            log.warn("Lease {}/{} was not acquired within {} {}", namespace, name, timeout, unit);
+            return false;
+        } finally {
+            if (!held) {
+                dequeue();
+            }
+        }
+    }
+
+    public boolean isHeld() {
+        return held;
+    }
+
+    /**
+     * @return current annotations of the ConfigMap, empty if it doesn't exist
+     */
+    public Map<String, String> getAnnotations() {
+        final ConfigMap cm = resource().get();
+        return cm == null || cm.getMetadata().getAnnotations() == null ? Collections.emptyMap() : cm.getMetadata().getAnnotations();
+    }
+
+    /**
+     * Sets the annotations while holding the lease, e.g. the state of the leased resource.
+     */
+    public synchronized void annotate(Map<String, String> annotations) {
+        if (!update(annotations, false)) {
+            throw new IllegalStateException("Unable to annotate lease " + namespace + "/" + name + ", it is not held anymore");
+        }
+    }
+
+    /**
+     * Renews the lease.
+     *
+     * @return false if the lease was lost in the meantime
+     */
+    public synchronized boolean renew() {
+        if (!held) {
+            return false;
+        }
+        if (!update(Collections.singletonMap(RENEW_TIME, Long.toString(System.currentTimeMillis())), false)) {
+            log.error("Lease {}/{} was lost, another holder took it over", namespace, name);
+            LOST.add(namespace + "/" + name);
+            held = false;
+            stopRenewal();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Releases the lease and sets the annotations in the same update.
+     */
+    public synchronized void release(Map<String, String> annotations) {
+        if (!held) {
+            return;
+        }
+        stopRenewal();
+        final Map<String, String> changes = new HashMap<>(annotations);
+        changes.put(HOLDER, null);
+        changes.put(RENEW_TIME, null);
+        if (!update(changes, true)) {
+            log.warn("Lease {}/{} was not held anymore when released", namespace, name);
+        }
+        held = false;
+        log.info("Released lease {}/{}", namespace, name);
+    }
+
+    @Override
+    public void close() {
+        release(Collections.emptyMap());
+    }
+
+    /**
+     * Fails when a lease held by this JVM was taken over by another holder, the leased resource may be used by both of them since then.
+     */
+    public static void assertNoneLost() {
+        if (!LOST.isEmpty()) {
+            throw new IllegalStateException("Lease " + LOST + " was lost, the namespace may be used by another test run");
+        }
+    }
+
+    /**
+     * @return true if the ConfigMap is not held or the lease expired
+     */
+    public boolean isFree(ConfigMap cm) {
+        return annotation(cm, HOLDER) == null || isExpired(cm);
+    }
+
+    private boolean isExpired(ConfigMap cm) {
+        return System.currentTimeMillis() > expiresAt(cm);
+    }
+
+    private static long expiresAt(ConfigMap cm) {
+        try {
+            final long renewed = Long.parseLong(annotation(cm, RENEW_TIME));
+            final long duration = TimeUnit.SECONDS.toMillis(Long.parseLong(annotation(cm, DURATION)));
+            return renewed + duration;
+        } catch (NumberFormatException e) {
+            // broken lease
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private synchronized void observed(ConfigMap cm) {
+        missingSince = -1;
+        sawHolder = !isFree(cm) && !holder.equals(annotation(cm, HOLDER));
+    }
+
+    /**
+     * A ConfigMap that disappeared while another holder had the lease was deleted behind its back, the holder gets the lease duration to
+     * create it again.
+     *
+     * @return ms to wait before the missing ConfigMap can be created, 0 if it can be created now
+     */
+    private synchronized long createDelay(long now) {
+        if (!sawHolder) {
+            return 0;
+        }
+        if (missingSince < 0) {
+            log.warn("Lease {}/{} was deleted while it was held by another holder, waiting for it to be restored", namespace, name);
+            missingSince = now;
+        }
+        return Math.max(0, missingSince + durationMs - now);
+    }
+
+    private long heartbeatPeriod() {
+        return Math.max(1000L, durationMs / 3);
+    }
+
+    private synchronized boolean acquired(long enqueued) {
+        if (held) {
+            return true;
+        }
+        acquired();
+        log.info("Lease {}/{} acquired after waiting {} ms", namespace, name, System.currentTimeMillis() - enqueued);
+        return true;
+    }
+
+    private synchronized boolean acquired() {
+        held = true;
+        log.info("Acquired lease {}/{} as {}", namespace, name, holder);
+        renewal = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "lease-renewal-" + name);
+            t.setDaemon(true);
+            return t;
+        });
+        final long period = heartbeatPeriod();
+        renewal.scheduleAtFixedRate(() -> {
+            try {
+                renew();
+            } catch (RuntimeException e) {
+                // the lease is still valid until it expires, try again in the next period
+                log.warn("Unable to renew lease {}/{}: {}", namespace, name, e.getMessage());
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+    private void stopRenewal() {
+        if (renewal != null) {
+            renewal.shutdownNow();
+            renewal = null;
+        }
+    }
+
+    /**
+     * Applies the changes while the lease is held by this instance, retrying on conflicts with other writers.
+     */
+    private boolean update(Map<String, String> changes, boolean releasing) {
+        for (int i = 0; i < UPDATE_ATTEMPTS; i++) {
+            final ConfigMap cm = resource().get();
+            if (cm == null) {
+                final Map<String, String> annotations = leaseAnnotations();
+                annotations.putAll(changes);
+                annotations.values().removeIf(v -> v == null);
+                if (create(annotations)) {
+                    log.info("Lease {}/{} was deleted, created it again", namespace, name);
+                    return true;
+                }
+                continue;
+            }
+            if (!holder.equals(annotation(cm, HOLDER))) {
+                return false;
+            }
+            if (replace(cm, changes)) {
+                return true;
+            }
+            log.debug("Conflict when updating lease {}/{}{}, retrying", namespace, name, releasing ? " on release" : "");
+        }
+        return false;
+    }
+
+    /**
+     * Replaces the ConfigMap only if it was not changed since it was read.
+     *
+     * @param changes annotations to set, null values remove the annotation
+     * @return false on conflict
+     */
+    private boolean replace(ConfigMap cm, Map<String, String> changes) {
+        final Map<String, String> annotations = cm.getMetadata().getAnnotations() == null
+            ? new HashMap<>() : new HashMap<>(cm.getMetadata().getAnnotations());
+        changes.forEach((k, v) -> {
+            if (v == null) {
+                annotations.remove(k);
+            } else {
+                annotations.put(k, v);
+            }
+        });
+        cm.getMetadata().setAnnotations(annotations);
+        try {
+            resource().lockResourceVersion(cm.getMetadata().getResourceVersion()).replace(cm);
+            return true;
+        } catch (KubernetesClientException e) {
+            if (e.getCode() == 409) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return false if the ConfigMap was created by someone else in the meantime
+     */
+    private boolean create(Map<String, String> annotations) {
+        try {
+            OpenShiftUtils.client().configMaps().inNamespace(namespace).create(new ConfigMapBuilder()
+                .withNewMetadata().withName(name).withAnnotations(annotations).endMetadata()
+                .build());
+            return true;
+        } catch (KubernetesClientException e) {
+            if (e.getCode() == 409) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Removes this holder from the queue after it stopped waiting, an entry left behind expires after the lease duration.
+     */
+    private void dequeue() {
+        try {
+            for (int i = 0; i < UPDATE_ATTEMPTS; i++) {
+                final ConfigMap cm = resource().get();
+                if (cm == null) {
+                    return;
+                }
+                final List<Waiter> queue = queue(cm, System.currentTimeMillis());
+                if (queue.stream().noneMatch(w -> holder.equals(w.holder))
+                    || replace(cm, Collections.singletonMap(QUEUE, format(without(queue))))) {
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Unable to leave the queue of lease {}/{}: {}", namespace, name, e.getMessage());
+        }
+    }
+
+    /**
+     * @return live waiters in the order they were enqueued
+     */
+    private List<Waiter> queue(ConfigMap cm, long now) {
+        final String value = annotation(cm, QUEUE);
+        if (value == null) {
+            return new ArrayList<>();
+        }
+        return Arrays.stream(value.split("\n"))
+            .map(Waiter::parse)
+            .filter(Objects::nonNull)
+            .filter(w -> now - w.heartbeat < durationMs)
+            .sorted(Waiter.ORDER)
+            .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    private List<Waiter> without(List<Waiter> queue) {
+        return queue.stream().filter(w -> !holder.equals(w.holder)).collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    /**
+     * @return annotation value, null for an empty queue to remove the annotation
+     */
+    private static String format(List<Waiter> queue) {
+        return queue.isEmpty() ? null : queue.stream().map(Waiter::toString).collect(Collectors.joining("\n"));
+    }
+
+    /**
+     * @return annotations taking the lease and leaving the queue
+     */
+    private Map<String, String> leaseAnnotations(List<Waiter> queue) {
+        final Map<String, String> annotations = leaseAnnotations();
+        annotations.put(QUEUE, format(without(queue)));
+        return annotations;
+    }
+
+    private Map<String, String> leaseAnnotations() {
+        final Map<String, String> annotations = new HashMap<>();
+        annotations.put(HOLDER, holder);
+        annotations.put(RENEW_TIME, Long.toString(System.currentTimeMillis()));
+        annotations.put(DURATION, Long.toString(TimeUnit.MILLISECONDS.toSeconds(durationMs)));
+        return annotations;
+    }
+
+    private static String annotation(ConfigMap cm, String key) {
+        return cm.getMetadata().getAnnotations() == null ? null : cm.getMetadata().getAnnotations().get(key);
+    }
+
+    private Resource<ConfigMap, DoneableConfigMap> resource() {
+        return OpenShiftUtils.client().configMaps().inNamespace(namespace).withName(name);
+    }
+
+    private static final class Waiter {
+        private static final Comparator<Waiter> ORDER = Comparator.<Waiter>comparingLong(w -> w.enqueued).thenComparing(w -> w.holder);
+
+        private final long enqueued;
+        private final long heartbeat;
+        private final String holder;
+
+        private Waiter(long enqueued, long heartbeat, String holder) {
+            this.enqueued = enqueued;
+            this.heartbeat = heartbeat;
+            this.holder = holder;
+        }
+
+        private static Waiter parse(String line) {
+            final String[] parts = line.trim().split(" ", 3);
+            if (parts.length != 3) {
+                return null;
+            }
+            try {
+                return new Waiter(Long.parseLong(parts[0]), Long.parseLong(parts[1]), parts[2]);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return enqueued + " " + heartbeat + " " + holder;
+        }
+    }
+}
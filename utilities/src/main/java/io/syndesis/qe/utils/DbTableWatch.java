@@ -0,0 +1,216 @@
+package io.syndesis.qe.utils;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import io.syndesis.qe.wait.Poller;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Waits for changes of sample database tables.
+ * <p>
+ * On PostgreSQL, statement level triggers calling pg_notify are installed on the watched tables and the watch LISTENs on a dedicated
+ * pooled connection, so the condition is re-evaluated as soon as a row is inserted, updated or deleted. The condition is also
+ * re-evaluated every few seconds in case a notification is lost. The channel, the function and the triggers are named
+ * {@value #PREFIX}{@code <backend pid>_<random id>}, so concurrent watches of the same table don't replace or drop each other's triggers.
+ * The objects left behind by a crashed run are recognised by the pid of a backend that no longer exists and are dropped when a watch is
+ * opened. Other databases fall back to polling with a growing interval.
+ * <p>
+ * Usage:
+ * <pre>
+ * try (DbTableWatch watch = DbTableWatch.watch("postgresql", "todo")) {
+ *     watch.await("lead in TODO", () -> dbUtils.getNumberOfRecordsInTable("todo"), count -> count == 1, TimeUnit.MINUTES, 2);
+ * }
+ * </pre>
+ */
+@Slf4j
+public final class DbTableWatch implements AutoCloseable {
+    private static final long RECHECK_MS = 5000L;
+    private static final String PREFIX = "syndesis_qe_watch_";
+
+    private final String id;
+    private final String dbType;
+    private final String[] tables;
+    private final Connection connection;
+    private final PGConnection pgConnection;
+
+    private DbTableWatch(String id, String dbType, String[] tables, Connection connection, PGConnection pgConnection) {
+        this.id = id;
+        this.dbType = dbType;
+        this.tables = tables;
+        this.connection = connection;
+        this.pgConnection = pgConnection;
+    }
+
+    /**
+     * Starts watching the tables. The watch must be started before the action that changes the tables or the first evaluation of the
+     * condition, otherwise a change can be missed.
+     *
+     * @param dbType sample database type
+     * @param tables watched tables
+     * @return watch, must be closed
+     */
+    public static DbTableWatch watch(String dbType, String... tables) {
+        final Connection connection = SampleDbConnectionManager.getConnection(dbType);
+        final String random = UUID.randomUUID().toString().replace("-", "").substring(0, 12);
+        try {
+            if (connection.isWrapperFor(PGConnection.class)) {
+                final String id = backendPid(connection) + "_" + random;
+                dropStale(connection);
+                try (Statement st = connection.createStatement()) {
+                    st.execute("CREATE OR REPLACE FUNCTION " + functionName(id) + "() RETURNS trigger AS $$ BEGIN "
+                        + "PERFORM pg_notify('" + channelName(id) + "', TG_TABLE_NAME); RETURN NULL; END; $$ LANGUAGE plpgsql");
+                    for (String table : tables) {
+                        st.execute("CREATE TRIGGER " + triggerName(id, table) + " AFTER INSERT OR UPDATE OR DELETE ON " + table
+                            + " FOR EACH STATEMENT EXECUTE PROCEDURE " + functionName(id) + "()");
+                    }
+                    st.execute("LISTEN " + channelName(id));
+                } catch (SQLException ex) {
+                    // the triggers already created depend on the function, so they are dropped with it
+                    dropFunction(connection, functionName(id));
+                    throw ex;
+                }
+                log.debug("Listening for changes of {} tables {} as watch {}", dbType, String.join(", ", tables), id);
+                return new DbTableWatch(id, dbType, tables, connection, connection.unwrap(PGConnection.class));
+            }
+        } catch (SQLException ex) {
+            log.warn("Unable to listen for changes of {} tables, falling back to polling: {}", dbType, ex.getMessage());
+        }
+        return new DbTableWatch(random, dbType, tables, connection, null);
+    }
+
+    private static int backendPid(Connection connection) throws SQLException {
+        try (Statement st = connection.createStatement(); ResultSet rs = st.executeQuery("SELECT pg_backend_pid()")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    /**
+     * Drops the functions, together with their triggers, of the watches whose backend no longer exists.
+     */
+    private static void dropStale(Connection connection) {
+        final List<String> stale = new ArrayList<>();
+        try (Statement st = connection.createStatement(); ResultSet rs = st.executeQuery("SELECT p.proname FROM pg_proc p"
+            + " JOIN pg_namespace n ON n.oid = p.pronamespace AND n.nspname = current_schema()"
+            + " WHERE CASE WHEN p.proname ~ '^" + PREFIX + "[0-9]+_[0-9a-f]+$'"
+            + " THEN split_part(substr(p.proname, " + (PREFIX.length() + 1) + "), '_', 1)::int NOT IN (SELECT pid FROM pg_stat_activity)"
+            + " ELSE false END")) {
+            while (rs.next()) {
+                stale.add(rs.getString(1));
+            }
+        } catch (SQLException ex) {
+            log.debug("Unable to look up the stale change triggers: {}", ex.getMessage());
+        }
+        for (String function : stale) {
+            log.info("Dropping stale change trigger function {}", function);
+            dropFunction(connection, function);
+        }
+    }
+
+    private static void dropFunction(Connection connection, String function) {
+        try (Statement st = connection.createStatement()) {
+            st.execute("DROP FUNCTION IF EXISTS " + function + "() CASCADE");
+        } catch (SQLException ex) {
+            log.debug("Unable to drop the function {}: {}", function, ex.getMessage());
+        }
+    }
+
+    /**
+     * Evaluates the condition immediately and then after each change of the watched tables until it is satisfied or the timeout passes.
+     *
+     * @param name name of the wait for the logs
+     * @param supplier supplier of the value to test, usually a query
+     * @param predicate condition
+     * @param unit timeout unit
+     * @param timeout timeout
+     * @param <T> type of the tested value
+     * @return true if the condition was satisfied within the timeout
+     */
+    public <T> boolean await(String name, Supplier<T> supplier, Predicate<T> predicate, TimeUnit unit, long timeout) {
+        if (pgConnection == null) {
+            return new Poller(name)
+                .timeout(unit, timeout)
+                .interval(TimeUnit.MILLISECONDS, 200)
+                .maxInterval(TimeUnit.SECONDS, 5)
+                .poll(supplier, predicate)
+                .isSuccess();
+        }
+
+        final long start = System.nanoTime();
+        final long deadline = start + unit.toNanos(timeout);
+        int notifications = 0;
+        while (true) {
+            if (predicate.test(supplier.get())) {
+                log.debug("Wait for '{}' succeeded after {} notifications in {} ms", name, notifications,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                return true;
+            }
+            final long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                log.warn("Wait for '{}' timed out after {} notifications in {} ms", name, notifications,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                return false;
+            }
+            try {
+                // blocks until a notification arrives, 0 would mean no timeout
+                final PGNotification[] received = pgConnection.getNotifications((int) Math.max(1, Math.min(remaining, RECHECK_MS)));
+                if (received != null) {
+                    notifications += received.length;
+                }
+            } catch (SQLException ex) {
+                log.warn("Listening for changes of {} tables failed, checking the condition periodically: {}", dbType, ex.getMessage());
+                TestUtils.sleepIgnoreInterrupt(Math.min(remaining, RECHECK_MS));
+            }
+        }
+    }
+
+    /**
+     * Stops listening, removes the triggers and the function and returns the connection to the pool.
+     */
+    @Override
+    public void close() {
+        try {
+            if (pgConnection != null) {
+                try (Statement st = connection.createStatement()) {
+                    st.execute("UNLISTEN " + channelName(id));
+                    for (String table : tables) {
+                        st.execute("DROP TRIGGER IF EXISTS " + triggerName(id, table) + " ON " + table);
+                    }
+                    st.execute("DROP FUNCTION IF EXISTS " + functionName(id) + "() CASCADE");
+                }
+            }
+        } catch (SQLException ex) {
+            log.debug("Unable to remove the change triggers: {}", ex.getMessage());
+        } finally {
+            try {
+                connection.close();
+            } catch (SQLException ex) {
+                log.debug("Unable to close the connection: {}", ex.getMessage());
+            }
+        }
+    }
+
+    private static String channelName(String id) {
+        return PREFIX + id;
+    }
+
+    private static String functionName(String id) {
+        return PREFIX + id;
+    }
+
+    private static String triggerName(String id, String table) {
+        return PREFIX + id + "_" + table.toLowerCase();
+    }
+}
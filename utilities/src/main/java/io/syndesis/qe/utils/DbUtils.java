@@ -1,21 +1,48 @@
 package io.syndesis.qe.utils;
 
 import org.assertj.core.api.Assertions;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.core.BaseConnection;
 
+import javax.sql.DataSource;
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetProvider;
+
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class DbUtils {
-    private Connection dbConnection;
+    private static final int BATCH_SIZE = 1000;
+    private static final int FETCH_SIZE = 500;
+
+    @Getter
+    private String dbType;
 
     public DbUtils(String dbType) {
-        this.dbConnection = SampleDbConnectionManager.getConnection(dbType);
+        setConnection(dbType);
     }
 
     /**
@@ -25,21 +52,23 @@ public class DbUtils {
      */
 
     /**
-     * Best to use with SELECT
+     * Best to use with SELECT. The rows are copied into a disconnected result set, so the statement and the pooled connection are
+     * released before this method returns.
      *
      * @param sqlCommand
-     * @return a ResultSet object that contains the data produced by the query; never null
+     * @return a ResultSet object that contains the data produced by the query; null on error
      */
     public ResultSet executeSQLGetResultSet(String sqlCommand) {
-        ResultSet resultSet = null;
-        final PreparedStatement preparedStatement;
-        try {
-            preparedStatement = dbConnection.prepareStatement(sqlCommand);
-            resultSet = preparedStatement.executeQuery();
+        try (Connection connection = dataSource().getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sqlCommand);
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            final CachedRowSet rows = RowSetProvider.newFactory().createCachedRowSet();
+            rows.populate(resultSet);
+            return rows;
         } catch (SQLException ex) {
             log.error("Error: " + ex);
         }
-        return resultSet;
+        return null;
     }
 
     /**
@@ -49,10 +78,9 @@ public class DbUtils {
      * @return either the row count for sqlCommnad statements or 0 for sqlCommnad statements that return nothing
      */
     public int executeSQLGetUpdateNumber(String sqlCommnad) {
-        final PreparedStatement preparedStatement;
         int result = -1;
-        try {
-            preparedStatement = dbConnection.prepareStatement(sqlCommnad);
+        try (Connection connection = dataSource().getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sqlCommnad)) {
             result = preparedStatement.executeUpdate();
         } catch (SQLException ex) {
             log.error("Error: " + ex);
@@ -60,6 +88,130 @@ public class DbUtils {
         return result;
     }
 
+    /**
+     * ******************************************
+     * BULK METHODS
+     * ******************************************
+     */
+
+    /**
+     * Inserts the rows using a single prepared statement, the rows are sent in batches and each batch is committed separately.
+     *
+     * @param tableName table
+     * @param columns columns to insert
+     * @param rows row values in the order of the columns, set by {@link PreparedStatement#setObject(int, Object)}
+     * @return number of inserted rows
+     */
+    public int insertBatch(String tableName, List<String> columns, Iterator<? extends List<?>> rows) {
+        final String sql = String.format("INSERT INTO %s(%s) VALUES(%s)", tableName.toUpperCase(), String.join(", ", columns),
+            String.join(", ", Collections.nCopies(columns.size(), "?")));
+        log.info("SQL: *{}* (batch)", sql);
+        int inserted = 0;
+        try (Connection connection = dataSource().getConnection()) {
+            final boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                int batched = 0;
+                while (rows.hasNext()) {
+                    final List<?> row = rows.next();
+                    for (int i = 0; i < row.size(); i++) {
+                        preparedStatement.setObject(i + 1, row.get(i));
+                    }
+                    preparedStatement.addBatch();
+                    if (++batched == BATCH_SIZE || !rows.hasNext()) {
+                        inserted += countUpdates(preparedStatement.executeBatch(), batched);
+                        connection.commit();
+                        batched = 0;
+                    }
+                }
+            } catch (SQLException ex) {
+                connection.rollback();
+                throw ex;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException ex) {
+            log.error("Error: " + ex);
+        }
+        log.debug("Inserted {} rows into {}", inserted, tableName.toUpperCase());
+        return inserted;
+    }
+
+    /**
+     * Checks whether the database supports streaming the rows with {@link #copyIn(String, List, Iterator)}.
+     *
+     * @return true for PostgreSQL
+     */
+    public boolean supportsCopy() {
+        try (Connection connection = dataSource().getConnection()) {
+            return connection.isWrapperFor(BaseConnection.class);
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Streams the rows to the PostgreSQL COPY FROM STDIN command in CSV format. The rows are encoded while they are sent, so the whole
+     * data set is never held in memory.
+     *
+     * @param tableName table
+     * @param columns columns to insert
+     * @param rows row values in the order of the columns, null values are inserted as NULL
+     * @return number of inserted rows
+     */
+    public long copyIn(String tableName, List<String> columns, Iterator<? extends List<?>> rows) {
+        final String sql = String.format("COPY %s(%s) FROM STDIN WITH (FORMAT csv)", tableName.toUpperCase(), String.join(", ", columns));
+        log.info("SQL: *{}*", sql);
+        long copied = 0;
+        try (Connection connection = dataSource().getConnection()) {
+            final CopyIn copyIn = new CopyManager(connection.unwrap(BaseConnection.class)).copyIn(sql);
+            try {
+                final StringBuilder chunk = new StringBuilder();
+                int chunkRows = 0;
+                while (rows.hasNext()) {
+                    appendCsvRow(chunk, rows.next());
+                    if (++chunkRows == BATCH_SIZE || !rows.hasNext()) {
+                        final byte[] bytes = chunk.toString().getBytes(StandardCharsets.UTF_8);
+                        copyIn.writeToCopy(bytes, 0, bytes.length);
+                        chunk.setLength(0);
+                        chunkRows = 0;
+                    }
+                }
+                copied = copyIn.endCopy();
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+        } catch (SQLException ex) {
+            log.error("Error: " + ex);
+        }
+        log.debug("Copied {} rows into {}", copied, tableName.toUpperCase());
+        return copied;
+    }
+
+    private static int countUpdates(int[] results, int batched) {
+        int count = 0;
+        for (int result : results) {
+            // some drivers don't report the row counts of batched statements
+            count += result == Statement.SUCCESS_NO_INFO ? 1 : Math.max(result, 0);
+        }
+        return results.length == 0 ? batched : count;
+    }
+
+    private static void appendCsvRow(StringBuilder sb, List<?> row) {
+        for (int i = 0; i < row.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            final Object value = row.get(i);
+            if (value != null) {
+                sb.append('"').append(value.toString().replace("\"", "\"\"")).append('"');
+            }
+        }
+        sb.append('\n');
+    }
+
     /**
      * ******************************************
      * SPECIFIC METHODS
@@ -88,18 +240,21 @@ public class DbUtils {
         }
 
         int records = 0;
-        try {
-            String sql = "SELECT COUNT(*) FROM " + tableName.toUpperCase();
-
+        String sql = "SELECT COUNT(*) FROM " + tableName.toUpperCase();
+        if (args.length == 2) {
+            //be specific
+            sql = "SELECT COUNT(*) FROM " + tableName.toUpperCase() + " WHERE " + args[0] + " LIKE ?";
+        }
+        log.info("SQL: *{}* {}", sql, args.length == 2 ? args[1] : "");
+        try (Connection connection = dataSource().getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
             if (args.length == 2) {
-                //be specific
-                sql = "SELECT COUNT(*) FROM " + tableName.toUpperCase() + " WHERE " + args[0] + " LIKE '" + args[1] + "'";
+                preparedStatement.setString(1, args[1]);
             }
-            log.info("SQL: *{}*", sql);
-            final ResultSet resultSet = executeSQLGetResultSet(sql);
-
-            while (resultSet.next()) {
-                records = resultSet.getInt(1);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    records = resultSet.getInt(1);
+                }
             }
         } catch (SQLException ex) {
             log.error("Error: " + ex);
@@ -109,32 +264,135 @@ public class DbUtils {
         return records;
     }
 
+    /**
+     * Counts the rows returned by the query. The query is wrapped in SELECT COUNT(*), so only the count is transferred. Queries that
+     * can't be wrapped (e.g. procedure calls) are rejected with a syntax error and counted by iterating over their result, other errors
+     * are logged and 0 is returned.
+     *
+     * @param query query
+     * @return number of rows
+     */
     public int getCountOfInvokedQuery(String query) {
-
         int records = 0;
-        try {
-            log.info("SQL: *{}*", query);
-            final ResultSet resultSet = executeSQLGetResultSet(query);
-
-            //inefficient but it works :/ our table has 2 rows so it is not a problem...
-            while (resultSet != null && resultSet.next()) {
-                records++;
+        final String countQuery = "SELECT COUNT(*) FROM (" + stripSemicolon(query) + ") counted";
+        log.info("SQL: *{}*", countQuery);
+        try (Connection connection = dataSource().getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(countQuery);
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            if (resultSet.next()) {
+                records = resultSet.getInt(1);
             }
         } catch (SQLException ex) {
-            log.error("Error: " + ex);
+            if (!isSyntaxError(ex)) {
+                log.error("Error: " + ex);
+                return 0;
+            }
+            log.warn("Unable to wrap the query in COUNT(*), counting the rows of the query instead: {}", ex.getMessage());
+            try (Stream<Row> rows = streamQuery(query)) {
+                records = (int) rows.count();
+            }
         }
         log.debug("Number of records: " + records);
         return records;
     }
 
+    /**
+     * @return true for the SQLSTATE class 42, syntax error or access rule violation
+     */
+    private static boolean isSyntaxError(SQLException ex) {
+        return ex.getSQLState() != null && ex.getSQLState().startsWith("42");
+    }
+
+    /**
+     * Streams the rows of the query with a forward-only cursor, the driver fetches {@value #FETCH_SIZE} rows at a time instead of the
+     * whole result. The statement and the connection are released when the last row is read or when the stream is closed, so streams
+     * that are not fully consumed (findFirst, anyMatch) must be closed, ideally by try-with-resources.
+     *
+     * @param query query
+     * @return stream of the rows
+     */
+    public Stream<Row> streamQuery(String query) {
+        log.info("SQL: *{}* (streamed)", query);
+        final Connection connection;
+        final PreparedStatement preparedStatement;
+        final ResultSet resultSet;
+        final boolean autoCommit;
+        try {
+            connection = dataSource().getConnection();
+        } catch (SQLException ex) {
+            log.error("Error: " + ex);
+            return Stream.empty();
+        }
+        try {
+            autoCommit = connection.getAutoCommit();
+            // PostgreSQL uses a cursor only outside of the auto-commit mode
+            connection.setAutoCommit(false);
+            preparedStatement = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            preparedStatement.setFetchSize(FETCH_SIZE);
+            resultSet = preparedStatement.executeQuery();
+        } catch (SQLException ex) {
+            log.error("Error: " + ex);
+            closeQuietly(connection);
+            return Stream.empty();
+        }
+
+        final AtomicBoolean closed = new AtomicBoolean();
+        final Runnable close = () -> {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            closeQuietly(resultSet);
+            closeQuietly(preparedStatement);
+            try {
+                connection.commit();
+                connection.setAutoCommit(autoCommit);
+            } catch (SQLException ex) {
+                log.debug("Unable to end the streaming transaction: {}", ex.getMessage());
+            }
+            closeQuietly(connection);
+        };
+        final Spliterator<Row> rows = new Spliterators.AbstractSpliterator<Row>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super Row> action) {
+                if (closed.get()) {
+                    return false;
+                }
+                try {
+                    if (resultSet.next()) {
+                        action.accept(Row.of(resultSet));
+                        return true;
+                    }
+                } catch (SQLException ex) {
+                    log.error("Error: " + ex);
+                }
+                close.run();
+                return false;
+            }
+        };
+        return StreamSupport.stream(rows, false).onClose(close);
+    }
+
+    private static String stripSemicolon(String query) {
+        final String trimmed = query.trim();
+        return trimmed.endsWith(";") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception ex) {
+            log.debug("Unable to close {}: {}", closeable, ex.getMessage());
+        }
+    }
+
     /**
      * Checks if the connection is still alive.
      * @return true/false
      */
     public boolean isConnectionValid() {
-        try {
-            log.info("Validating DB connection; When exception printed out, the connection is not valid");
-            return dbConnection.isValid(30);
+        log.info("Validating DB connection; When exception printed out, the connection is not valid");
+        try (Connection connection = dataSource().getConnection()) {
+            return connection.isValid(30);
         } catch (Exception e) {
             // This exception is *not* the same as mentioned in the info log ^ . The isValid method is printing out the exception by default.
             e.printStackTrace();
@@ -187,6 +445,69 @@ public class DbUtils {
     }
 
     public void setConnection(String dbType) {
-        this.dbConnection = SampleDbConnectionManager.getConnection(dbType);
+        this.dbType = dbType;
+        // sets up the pool and its port-forward, so a misconfigured db type fails here
+        SampleDbConnectionManager.getDataSource(dbType);
+    }
+
+    /**
+     * The pool is looked up on each use, because it is recreated when its port-forward is renewed.
+     */
+    private DataSource dataSource() {
+        return SampleDbConnectionManager.getDataSource(dbType);
+    }
+
+    /**
+     * Values of a single row, copied from the result set so that they can be used after the cursor moves.
+     */
+    public static final class Row {
+        private final Map<String, Object> values;
+        private final List<Object> columns;
+
+        private Row(Map<String, Object> values, List<Object> columns) {
+            this.values = values;
+            this.columns = columns;
+        }
+
+        static Row of(ResultSet resultSet) throws SQLException {
+            final ResultSetMetaData metaData = resultSet.getMetaData();
+            final Map<String, Object> values = new HashMap<>();
+            final List<Object> columns = new ArrayList<>(metaData.getColumnCount());
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                final Object value = resultSet.getObject(i);
+                values.put(metaData.getColumnLabel(i).toLowerCase(), value);
+                columns.add(value);
+            }
+            return new Row(values, columns);
+        }
+
+        /**
+         * @param column column label, case insensitive
+         */
+        public Object get(String column) {
+            return values.get(column.toLowerCase());
+        }
+
+        /**
+         * @param index column index, starting from 1 like in JDBC
+         */
+        public Object get(int index) {
+            return columns.get(index - 1);
+        }
+
+        public String getString(String column) {
+            final Object value = get(column);
+            return value == null ? null : value.toString();
+        }
+
+        public int getInt(String column) {
+            final Object value = get(column);
+            return value == null ? 0 : ((Number) value).intValue();
+        }
+
+        @Override
+        public String toString() {
+            return values.toString();
+        }
     }
 }
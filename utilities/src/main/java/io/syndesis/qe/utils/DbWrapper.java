@@ -1,15 +1,14 @@
 package io.syndesis.qe.utils;
 
-import java.sql.Connection;
+import com.zaxxer.hikari.HikariDataSource;
 
-import io.fabric8.kubernetes.client.LocalPortForward;
 import lombok.Data;
 
 @Data
 public class DbWrapper {
     private String dbType;
-    private LocalPortForward localPortForward;
-    private Connection dbConnection;
+    private PortForwardRegistry.Lease portForward;
+    private HikariDataSource dataSource;
 
     public DbWrapper(String dbType){
         setDbType(dbType);
@@ -0,0 +1,54 @@
+package io.syndesis.qe.utils;
+
+import org.apache.activemq.broker.BrokerService;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory ActiveMQ broker listening on the openwire port of the broker-amq pod, so that {@link JmsClientManager} can be used
+ * without OpenShift when {@link io.syndesis.qe.TestConfiguration#jmsEmbeddedBroker()} is enabled.
+ * <p>
+ * Only the openwire (tcp) protocol is available, the broker doesn't check the credentials.
+ */
+@Slf4j
+public final class EmbeddedJmsBroker {
+    private static final String URL = "tcp://127.0.0.1:61616";
+
+    private static BrokerService broker;
+
+    private EmbeddedJmsBroker() {
+    }
+
+    public static synchronized void start() {
+        if (broker != null && broker.isStarted()) {
+            return;
+        }
+        try {
+            final BrokerService b = new BrokerService();
+            b.setBrokerName("qe-embedded");
+            b.setPersistent(false);
+            b.setUseJmx(false);
+            b.setAdvisorySupport(false);
+            b.addConnector(URL);
+            b.start();
+            b.waitUntilStarted();
+            broker = b;
+            log.info("Started embedded JMS broker on {}", URL);
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to start embedded JMS broker", e);
+        }
+    }
+
+    public static synchronized void stop() {
+        if (broker == null) {
+            return;
+        }
+        try {
+            broker.stop();
+            broker.waitUntilStopped();
+        } catch (Exception e) {
+            log.warn("Unable to stop embedded JMS broker: {}", e.getMessage());
+        }
+        broker = null;
+    }
+}
@@ -6,11 +6,22 @@ import org.apache.commons.net.ftp.FTP;
 import org.apache.commons.net.ftp.FTPClient;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
 
-import io.fabric8.kubernetes.client.LocalPortForward;
+import io.fabric8.kubernetes.api.model.Pod;
 import lombok.extern.slf4j.Slf4j;
 
 /**
+ * Keeps a small pool of logged in FTP clients.
+ * <p>
+ * The clients connect through the port-forward of the control port, which uses an ephemeral local port, and, since the passive mode
+ * is used, through the port-forwards of the passive data ports. The data ports are announced by the server, so they are forwarded to
+ * the same local ports. All the forwards are leased from {@link PortForwardRegistry} and acquired again together when one of them is
+ * closed. Borrowed clients are validated with NOOP, failed connection attempts are retried with exponential backoff.
+ * <p>
  * Mar 1, 2018 Red Hat
  *
  * @author sveres@redhat.com
@@ -18,64 +29,179 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class FtpClientManager {
 
-    private static String ftpServer = "127.0.0.1";
     private static String ftpPodName = "ftpd";
     private static int ftpPort = 2121;
+    private static int ftpDataPort = 2300;
+    private static int ftpDataPorts = 10;
     private static String ftpUser = "anonymous";
     private static String ftpPass = "";
 
-    private static LocalPortForward localPortForward = null;
+    private static final int MAX_IDLE = 4;
+    private static final int CONNECT_ATTEMPTS = 5;
+    private static final long INITIAL_BACKOFF_MS = 1000L;
+    private static final long MAX_BACKOFF_MS = 16000L;
+
+    private static final List<PortForwardRegistry.Lease> portForwards = new ArrayList<>();
+    private static final BlockingDeque<FTPClient> idle = new LinkedBlockingDeque<>(MAX_IDLE);
 
     private FtpClientManager() {
     }
 
+    /**
+     * Action using a borrowed client.
+     */
+    @FunctionalInterface
+    public interface FtpAction<T> {
+        T apply(FTPClient client) throws IOException;
+    }
+
+    /**
+     * Runs the action with a pooled client. When the action fails with an IOException, the client is dropped and the action is retried
+     * once with a new client. A client that failed with any other exception is dropped as well, its state is unknown.
+     */
+    public static <T> T withClient(FtpAction<T> action) throws IOException {
+        FTPClient client = getClient();
+        try {
+            final T result = action.apply(client);
+            closeFtpClient(client);
+            return result;
+        } catch (IOException e) {
+            log.warn("FTP operation failed, retrying with a new connection: {}", e.getMessage());
+            disconnect(client);
+        } catch (RuntimeException e) {
+            disconnect(client);
+            throw e;
+        }
+        client = getClient();
+        try {
+            final T result = action.apply(client);
+            closeFtpClient(client);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            disconnect(client);
+            throw e;
+        }
+    }
+
+    /**
+     * Borrows a connected client, it must be returned by {@link #closeFtpClient(FTPClient)}.
+     */
     public static FTPClient getClient() {
-        if (localPortForward == null || !localPortForward.isAlive()) {
-            localPortForward = OpenShiftUtils.portForward(OpenShiftUtils.xtf().getAnyPod("app", ftpPodName), ftpPort, ftpPort);
-            //since we use passive FTP connection, we need to forward data ports also
-            for (int i = 0; i < 10; i++) {
-                OpenShiftUtils.portForward(OpenShiftUtils.xtf().getAnyPod("app", ftpPodName), 2300+i, 2300+i);
+        ensurePortForwards();
+        FTPClient client;
+        while ((client = idle.pollFirst()) != null) {
+            if (isValid(client)) {
+                return client;
             }
-
+            disconnect(client);
         }
         return FtpClientManager.initClient();
-
     }
 
+    /**
+     * Returns the client to the pool, or disconnects it when the pool is full or the client is not connected anymore.
+     */
     public static void closeFtpClient(FTPClient ftpClient) {
-        TestUtils.terminateLocalPortForward(localPortForward);
+        if (ftpClient == null) {
+            return;
+        }
+        if (!ftpClient.isConnected() || !idle.offerFirst(ftpClient)) {
+            disconnect(ftpClient);
+        }
+    }
+
+    /**
+     * Disconnects all pooled clients and closes all the port-forwards.
+     */
+    public static synchronized void closeAll() {
+        FTPClient client;
+        while ((client = idle.pollFirst()) != null) {
+            disconnect(client);
+        }
+        terminatePortForwards();
+    }
+
+    private static synchronized void ensurePortForwards() {
+        if (!portForwards.isEmpty() && portForwards.stream().allMatch(PortForwardRegistry.Lease::isAlive)) {
+            return;
+        }
+        // the pooled connections go through the dead forwards
+        FTPClient client;
+        while ((client = idle.pollFirst()) != null) {
+            disconnect(client);
+        }
+        terminatePortForwards();
+        portForwards.add(PortForwardRegistry.acquire(ftpPodName, FtpClientManager::ftpPod, ftpPort));
+        //since we use passive FTP connection, we need to forward data ports also
+        for (int i = 0; i < ftpDataPorts; i++) {
+            portForwards.add(PortForwardRegistry.acquire(ftpPodName, FtpClientManager::ftpPod, ftpDataPort + i, ftpDataPort + i));
+        }
+    }
+
+    private static void terminatePortForwards() {
+        portForwards.forEach(PortForwardRegistry.Lease::close);
+        portForwards.clear();
+    }
+
+    private static Pod ftpPod() {
+        return OpenShiftUtils.xtf().getAnyPod("app", ftpPodName);
+    }
+
+    private static synchronized PortForwardRegistry.Lease controlPort() {
+        return portForwards.get(0);
+    }
+
+    private static boolean isValid(FTPClient client) {
         try {
-            if (ftpClient == null) {
-                return;
+            return client.isConnected() && client.sendNoOp();
+        } catch (IOException e) {
+            log.debug("Pooled FTP connection is not valid: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private static void disconnect(FTPClient client) {
+        try {
+            if (client.isConnected()) {
+                client.logout();
             }
-            if (!ftpClient.isConnected()) {
-                ftpClient.logout();
-                ftpClient.disconnect();
+        } catch (IOException e) {
+            log.debug("Unable to log out from FTP: {}", e.getMessage());
+        }
+        try {
+            if (client.isConnected()) {
+                client.disconnect();
             }
         } catch (IOException e) {
-            log.error(e.getMessage());
+            log.debug("Unable to disconnect from FTP: {}", e.getMessage());
         }
     }
 
     private static FTPClient initClient() {
-        int i = 0;
-        while (i < 3) {
+        long backoff = INITIAL_BACKOFF_MS;
+        for (int attempt = 1; attempt <= CONNECT_ATTEMPTS; attempt++) {
             FTPClient ftpClient = new FTPClient();
             try {
-                ftpClient.connect(ftpServer, ftpPort);
-                ftpClient.login(ftpUser, ftpPass);
+                final PortForwardRegistry.Lease control = controlPort();
+                ftpClient.connect(control.getLocalHost(), control.getLocalPort());
+                if (!ftpClient.login(ftpUser, ftpPass)) {
+                    throw new IOException("Login failed: " + ftpClient.getReplyString());
+                }
                 ftpClient.enterLocalPassiveMode();
                 ftpClient.setFileType(FTP.BINARY_FILE_TYPE);
                 log.info("Connected: {}", ftpClient.isConnected());
                 return ftpClient;
             } catch (IOException e) {
+                disconnect(ftpClient);
                 log.error(e.getMessage());
-                log.info("Retrying in 30 seconds");
-                i++;
-                TestUtils.sleepIgnoreInterrupt(30000L);
+                if (attempt < CONNECT_ATTEMPTS) {
+                    log.info("Retrying in {} ms", backoff);
+                    TestUtils.sleepIgnoreInterrupt(backoff);
+                    backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+                }
             }
         }
-        fail("Unable to create FTP client after 3 retries");
+        fail("Unable to create FTP client after " + CONNECT_ATTEMPTS + " attempts");
         return null;
     }
 }
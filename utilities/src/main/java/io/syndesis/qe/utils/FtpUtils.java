@@ -5,30 +5,34 @@ import static org.assertj.core.api.Assertions.fail;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.net.ftp.FTPClient;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * FTP operations using the pooled clients of {@link FtpClientManager}.
+ */
 @Slf4j
 public class FtpUtils {
-    private FTPClient ftpClient = FtpClientManager.getClient();
 
     public void delete(String path) {
-        checkConnection();
         log.info("Deleting " + path + " from FTP server");
         try {
-            ftpClient.deleteFile(path);
+            FtpClientManager.withClient(client -> client.deleteFile(path));
         } catch (IOException e) {
             fail("Unable to delete file", path);
         }
     }
 
     public boolean isFileThere(String directory, String fileName) {
-        checkConnection();
         try {
-            return Arrays.stream(ftpClient.listFiles(directory)).filter(file -> file.getName().equals(fileName)).count() == 1;
+            return FtpClientManager.withClient(
+                client -> Arrays.stream(client.listFiles(directory)).filter(file -> file.getName().equals(fileName)).count() == 1);
         } catch (IOException ex) {
             fail("Unable to list files in FTP", ex);
         }
@@ -36,18 +40,19 @@ public class FtpUtils {
     }
 
     public void uploadTestFile(String testFileName, String text, String remoteDirectory) {
-        checkConnection();
         log.info("Uploading file " + testFileName + " with content " + text + " to directory " + remoteDirectory + ". This may take some time");
         try (InputStream is = IOUtils.toInputStream(text, "UTF-8")) {
-            ftpClient.storeFile("/" + remoteDirectory + "/" + testFileName, is);
+            upload("/" + remoteDirectory + "/" + testFileName, is);
         } catch (IOException ex) {
             fail("Unable to upload test file: ", ex);
         }
     }
 
     public String getFileContent(String directory, String fileName) {
+        final ByteArrayOutputStream content = new ByteArrayOutputStream();
         try {
-            return IOUtils.toString(ftpClient.retrieveFileStream(directory + "/" + fileName), "utf-8");
+            download(directory + "/" + fileName, content);
+            return new String(content.toByteArray(), StandardCharsets.UTF_8);
         } catch (Exception ex) {
             fail("Unable to read FTP file " + directory + "/" + fileName);
         }
@@ -55,13 +60,75 @@ public class FtpUtils {
     }
 
     /**
-     * Sometimes the Connections ends with "FTPConnectionClosedException: Connection closed without indication".
+     * Streams the content to the remote file without buffering it in memory, suitable for large files. The stream is read only once,
+     * so the upload is not retried.
+     *
+     * @return number of uploaded bytes
      */
-    private void checkConnection() {
+    public long upload(String path, InputStream content) throws IOException {
+        final FTPClient client = FtpClientManager.getClient();
         try {
-            ftpClient.listFiles();
-        } catch (IOException ex) {
-            ftpClient = FtpClientManager.getClient();
+            final long bytes;
+            try (OutputStream os = client.storeFileStream(path)) {
+                if (os == null) {
+                    throw new IOException("Unable to store " + path + ": " + client.getReplyString());
+                }
+                bytes = IOUtils.copyLarge(content, os);
+            }
+            completePendingCommand(client, "store " + path);
+            FtpClientManager.closeFtpClient(client);
+            log.debug("Uploaded {} bytes to {}", bytes, path);
+            return bytes;
+        } catch (IOException | RuntimeException e) {
+            // the data connection state is unknown, don't return the client to the pool
+            discard(client, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Streams the remote file to the output stream without buffering it in memory, suitable for large files.
+     *
+     * @return number of downloaded bytes
+     */
+    public long download(String path, OutputStream target) throws IOException {
+        final FTPClient client = FtpClientManager.getClient();
+        try {
+            final long bytes;
+            try (InputStream is = client.retrieveFileStream(path)) {
+                if (is == null) {
+                    throw new IOException("Unable to retrieve " + path + ": " + client.getReplyString());
+                }
+                bytes = IOUtils.copyLarge(is, target);
+            }
+            completePendingCommand(client, "retrieve " + path);
+            FtpClientManager.closeFtpClient(client);
+            log.debug("Downloaded {} bytes from {}", bytes, path);
+            return bytes;
+        } catch (IOException | RuntimeException e) {
+            discard(client, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Drops the connection without logging out, the transfer may still be in progress. A failure to disconnect is attached to the
+     * failure of the transfer, so it doesn't hide it.
+     */
+    private static void discard(FTPClient client, Exception failure) {
+        try {
+            client.disconnect();
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    /**
+     * The transfer is finished only after the server confirms it, until then the control connection can't be used for other commands.
+     */
+    private static void completePendingCommand(FTPClient client, String operation) throws IOException {
+        if (!client.completePendingCommand()) {
+            throw new IOException("Unable to " + operation + ": " + client.getReplyString());
         }
     }
 }
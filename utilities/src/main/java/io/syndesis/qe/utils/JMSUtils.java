@@ -6,11 +6,17 @@ import org.apache.activemq.command.ActiveMQTextMessage;
 import javax.jms.JMSException;
 import javax.jms.Message;
 
-import cz.xtf.jms.JmsClient;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Sends and receives messages through the shared openwire {@link JmsClientManager}, so the connection, sessions and consumers are
+ * reused across the steps.
+ */
 @Slf4j
 public final class JMSUtils {
+    private static final String PROTOCOL = "tcp";
+    private static final long CLEAR_SETTLE_TIMEOUT = 1000L;
+
     public enum Destination {
         QUEUE, TOPIC
     }
@@ -20,8 +26,8 @@ public final class JMSUtils {
     }
 
     public static Message getMessage(Destination type, String destinationName, long timeout) {
-        try(JmsClientManager manager = new JmsClientManager("tcp")) {
-            return withDestination(manager, type, destinationName).receiveMessage(timeout);
+        try {
+            return JmsClientManager.shared(PROTOCOL).receive(type, destinationName, timeout);
         } catch (Exception e) {
             log.error("Unable to get message from JMS", e);
             e.printStackTrace();
@@ -50,28 +56,25 @@ public final class JMSUtils {
     }
 
     public static void sendMessage(Destination type, String name, String content) {
-        try(JmsClientManager manager = new JmsClientManager("tcp")) {
-            withDestination(manager, type, name).sendMessage(content);
+        try {
+            JmsClientManager.shared(PROTOCOL).send(type, name, content);
         } catch (Exception e) {
             log.error("Unable to send message to queue", e);
             e.printStackTrace();
         }
     }
 
+    /**
+     * Drains the destination with receiveNoWait. When nothing is left, waits shortly once more for the messages that were not
+     * dispatched to the consumer yet.
+     */
     public static void clear(Destination type, String name) {
-        Message m = getMessage(type, name, 5000L);
-        while (m != null) {
-            m = getMessage(type, name, 5000L);
-        }
-    }
-
-    private static JmsClient withDestination(JmsClientManager manager, Destination type, String name) {
-        JmsClient c = manager.getClient();
-        if (Destination.QUEUE == type) {
-            c.addQueue(name);
-        } else {
-            c.addTopic(name);
+        int drained = 0;
+        Message m = getMessage(type, name, 0L);
+        while (m != null || (m = getMessage(type, name, CLEAR_SETTLE_TIMEOUT)) != null) {
+            drained++;
+            m = getMessage(type, name, 0L);
         }
-        return c;
+        log.debug("Removed {} messages from {} {}", drained, type, name);
     }
 }
@@ -3,75 +3,354 @@ package io.syndesis.qe.utils;
 import org.apache.activemq.ActiveMQConnectionFactory;
 import org.apache.qpid.jms.JmsConnectionFactory;
 
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import cz.xtf.jms.JmsClient;
-import io.fabric8.kubernetes.api.model.Pod;
-import io.fabric8.kubernetes.client.LocalPortForward;
+import io.syndesis.qe.TestConfiguration;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Connects to the broker-amq pod through a port-forward.
+ * <p>
+ * {@link #shared(String)} returns a long-lived manager per protocol with one started connection and a session, producer and consumer per
+ * destination, which are reused by all the steps. The sessions are not thread-safe, so each destination is used by one thread at a time.
+ * Topic consumers are not kept, a durable consumer would buffer messages published between the steps. The pooled queue consumers
+ * are created with prefetch 0, so an idle test consumer doesn't take the messages from the integrations consuming the same queue. For
+ * openwire it is set by the {@code consumer.prefetchSize} destination option, for amqp the consumers use a separate connection with the
+ * prefetch policy. The connection factories keep the default prefetch, asynchronous listeners don't work without it. The port-forward is
+ * leased from {@link PortForwardRegistry} on an ephemeral local port and released by {@link #closeAll()}. With
+ * {@link TestConfiguration#jmsEmbeddedBroker()}, a local {@link EmbeddedJmsBroker} is used instead of the pod.
+ * <p>
+ * {@link #getClient()} still creates a separate xtf client for the callers that need it, the client is closed together with the
+ * manager.
+ */
 @Slf4j
 public class JmsClientManager implements AutoCloseable {
-    private String jmsUrl;
+    private static final Map<String, JmsClientManager> SHARED = new ConcurrentHashMap<>();
+
+    private String jmsScheme;
     private int jmsPort;
     private String jmsPodName = "broker-amq";
     private String jmsUser = "amq";
     private String jmsPass = "topSecret";
     private String protocol;
-    private LocalPortForward jmsLocalPortForward = null;
     private JmsClient jmsClient;
+    private PortForwardRegistry.Lease portForward;
+
+    private Connection connection;
+    // amqp only, the prefetch can't be set per consumer
+    private Connection consumerConnection;
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
 
     public JmsClientManager(String protocol) {
         initValues(protocol);
     }
 
+    /**
+     * Returns the long-lived manager for the protocol.
+     *
+     * @param protocol tcp/openwire or amqp
+     * @return shared manager, must not be closed by the caller
+     */
+    public static JmsClientManager shared(String protocol) {
+        return SHARED.computeIfAbsent("amqp".equals(protocol) ? "amqp" : "tcp", JmsClientManager::new);
+    }
+
+    /**
+     * Closes all shared connections and the port-forwards.
+     */
+    public static synchronized void closeAll() {
+        SHARED.values().forEach(JmsClientManager::close);
+        SHARED.clear();
+        EmbeddedJmsBroker.stop();
+    }
+
     private void initValues(String protocol) {
         this.protocol = protocol;
         switch (protocol) {
             case "tcp":
             case "openwire":
                 jmsPort = 61616;
-                jmsUrl = "tcp://127.0.0.1:" + jmsPort;
+                jmsScheme = "tcp";
                 break;
             case "amqp":
                 jmsPort = 5672;
-                jmsUrl = "amqp://127.0.0.1:" + jmsPort;
+                jmsScheme = "amqp";
                 break;
         }
     }
 
     public JmsClient getClient() {
-        if (jmsLocalPortForward == null || !jmsLocalPortForward.isAlive()) {
-            //can be the same pod twice forwarded to different ports? YES
-            Pod pod = OpenShiftUtils.xtf().getAnyPod("app", jmsPodName);
-            jmsLocalPortForward = OpenShiftUtils.portForward(pod, jmsPort, jmsPort);
-        }
         return this.initClient();
     }
 
-    public void close() {
+    /**
+     * Creates a new session on the shared connection for the callers that use the connection from more threads, the pooled sessions
+     * are used by one thread at a time.
+     *
+     * @return session, must be closed by the caller
+     */
+    public Session createSession() throws JMSException {
+        return connection().createSession(false, Session.AUTO_ACKNOWLEDGE);
+    }
+
+    /**
+     * Creates a separate connection through the shared port-forward, for the callers that need specific connection options.
+     *
+     * @param uriOptions options appended to the broker URL, e.g. jms.presettlePolicy.presettleProducers=true for amqp
+     * @return started connection, must be closed by the caller
+     */
+    Connection createConnection(String uriOptions) throws JMSException {
+        final String url = brokerUrl();
+        final Connection c = createConnectionFactory(uriOptions == null || uriOptions.isEmpty() ? url : url + "?" + uriOptions)
+            .createConnection();
+        c.start();
+        return c;
+    }
+
+    public static javax.jms.Destination destination(Session session, JMSUtils.Destination type, String name) throws JMSException {
+        return type == JMSUtils.Destination.QUEUE ? session.createQueue(name) : session.createTopic(name);
+    }
+
+    /**
+     * Sends a text message using the pooled producer of the destination.
+     */
+    public void send(JMSUtils.Destination type, String name, String content) throws JMSException {
+        final Channel channel = channel(type, name);
+        synchronized (channel) {
+            try {
+                channel.producer().send(channel.session.createTextMessage(content));
+            } catch (JMSException e) {
+                invalidate(channel);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Receives a message using the pooled consumer of the destination.
+     *
+     * @param timeout timeout in ms, 0 means don't wait at all (receiveNoWait)
+     * @return message or null if there is no message
+     */
+    public Message receive(JMSUtils.Destination type, String name, long timeout) throws JMSException {
+        final Channel channel = channel(type, name);
+        synchronized (channel) {
+            MessageConsumer consumer = null;
+            try {
+                consumer = channel.consumer();
+                return timeout == 0 ? consumer.receiveNoWait() : consumer.receive(timeout);
+            } catch (JMSException e) {
+                invalidate(channel);
+                throw e;
+            } finally {
+                if (type == JMSUtils.Destination.TOPIC && consumer != null) {
+                    channel.closeConsumer();
+                }
+            }
+        }
+    }
+
+    public synchronized void close() {
         if (jmsClient != null) {
             jmsClient.disconnect();
             jmsClient = null;
         }
-        TestUtils.terminateLocalPortForward(jmsLocalPortForward);
+        channels.values().forEach(Channel::close);
+        channels.clear();
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (JMSException e) {
+                log.debug("Unable to close JMS connection: {}", e.getMessage());
+            }
+            connection = null;
+        }
+        if (consumerConnection != null) {
+            try {
+                consumerConnection.close();
+            } catch (JMSException e) {
+                log.debug("Unable to close JMS consumer connection: {}", e.getMessage());
+            }
+            consumerConnection = null;
+        }
+        if (portForward != null) {
+            portForward.close();
+            portForward = null;
+        }
+    }
+
+    private Channel channel(JMSUtils.Destination type, String name) throws JMSException {
+        final String key = type + ":" + name;
+        Channel channel = channels.get(key);
+        if (channel == null) {
+            synchronized (this) {
+                channel = channels.get(key);
+                if (channel == null) {
+                    channel = createChannel(type, name);
+                    channels.put(key, channel);
+                }
+            }
+        }
+        return channel;
+    }
+
+    private Channel createChannel(JMSUtils.Destination type, String name) throws JMSException {
+        final Session session = createSession();
+        final javax.jms.Destination destination = destination(session, type, name);
+        if (type != JMSUtils.Destination.QUEUE) {
+            return new Channel(session, destination, session, destination);
+        }
+        // the pooled queue consumers only receive(), nothing is buffered in the idle ones
+        if ("amqp".equals(protocol)) {
+            try {
+                final Session consumerSession = consumerConnection().createSession(false, Session.AUTO_ACKNOWLEDGE);
+                return new Channel(session, destination, consumerSession, consumerSession.createQueue(name));
+            } catch (JMSException e) {
+                session.close();
+                throw e;
+            }
+        }
+        return new Channel(session, destination, session, session.createQueue(name + (name.contains("?") ? "&" : "?")
+            + "consumer.prefetchSize=0"));
+    }
+
+    private synchronized Connection consumerConnection() throws JMSException {
+        if (consumerConnection == null) {
+            final Connection c = createConnection("jms.prefetchPolicy.queuePrefetch=0");
+            c.setExceptionListener(e -> {
+                log.warn("{} JMS consumer connection failed: {}", protocol, e.getMessage());
+                close();
+            });
+            consumerConnection = c;
+        }
+        return consumerConnection;
+    }
+
+    private synchronized Connection connection() throws JMSException {
+        if (connection == null) {
+            final String url = brokerUrl();
+            log.debug("Creating shared {} JMS connection to {}", protocol, url);
+            final Connection c = createConnectionFactory(url).createConnection();
+            // drop the pooled sessions when the connection fails, e.g. when the port-forward is closed
+            c.setExceptionListener(e -> {
+                log.warn("Shared {} JMS connection failed: {}", protocol, e.getMessage());
+                close();
+            });
+            c.start();
+            connection = c;
+        }
+        return connection;
+    }
+
+    private void invalidate(Channel channel) {
+        channel.close();
+        channels.values().remove(channel);
+    }
+
+    private synchronized String brokerUrl() {
+        if (TestConfiguration.jmsEmbeddedBroker()) {
+            EmbeddedJmsBroker.start();
+            return jmsScheme + "://127.0.0.1:" + jmsPort;
+        }
+        if (portForward == null || !portForward.isAlive()) {
+            portForward = PortForwardRegistry.acquire(jmsPodName, () -> OpenShiftUtils.xtf().getAnyPod("app", jmsPodName), jmsPort);
+        }
+        return jmsScheme + "://" + portForward.getLocalHost() + ":" + portForward.getLocalPort();
+    }
+
+    private ConnectionFactory createConnectionFactory() {
+        return createConnectionFactory(brokerUrl());
+    }
+
+    private ConnectionFactory createConnectionFactory(String url) {
+        switch (protocol) {
+            case "amqp":
+                return new JmsConnectionFactory(jmsUser, jmsPass, url);
+            case "tcp":
+            case "openwire":
+            default:
+                ActiveMQConnectionFactory jmsFactory = new ActiveMQConnectionFactory();
+                jmsFactory.setBrokerURL(url);
+                jmsFactory.setUserName(jmsUser);
+                jmsFactory.setPassword(jmsPass);
+                return jmsFactory;
+        }
     }
 
     private JmsClient initClient() {
         if (jmsClient == null) {
-            switch (protocol) {
-                case "tcp":
-                case "openwire":
-                    ActiveMQConnectionFactory jmsFactory = new ActiveMQConnectionFactory();
-                    jmsFactory.setBrokerURL(jmsUrl);
-                    jmsFactory.setUserName(jmsUser);
-                    jmsFactory.setPassword(jmsPass);
-                    jmsClient = new JmsClient(jmsFactory);
-                    break;
-                case "amqp":
-                    JmsConnectionFactory jmsConnectionFactory = new JmsConnectionFactory(jmsUser, jmsPass, jmsUrl);
-                    jmsClient = new JmsClient(jmsConnectionFactory);
-                    break;
-            }
+            jmsClient = new JmsClient(createConnectionFactory());
         }
         return jmsClient;
     }
+
+    /**
+     * Session, producer and consumer of one destination. The consumer may use its own session and destination options.
+     */
+    private static final class Channel {
+        private final Session session;
+        private final javax.jms.Destination destination;
+        private final Session consumerSession;
+        private final javax.jms.Destination consumerDestination;
+        private MessageProducer producer;
+        private MessageConsumer consumer;
+
+        private Channel(Session session, javax.jms.Destination destination, Session consumerSession,
+            javax.jms.Destination consumerDestination) {
+            this.session = session;
+            this.destination = destination;
+            this.consumerSession = consumerSession;
+            this.consumerDestination = consumerDestination;
+        }
+
+        private MessageProducer producer() throws JMSException {
+            if (producer == null) {
+                producer = session.createProducer(destination);
+            }
+            return producer;
+        }
+
+        private MessageConsumer consumer() throws JMSException {
+            if (consumer == null) {
+                consumer = consumerSession.createConsumer(consumerDestination);
+            }
+            return consumer;
+        }
+
+        private void closeConsumer() {
+            if (consumer != null) {
+                try {
+                    consumer.close();
+                } catch (JMSException e) {
+                    log.debug("Unable to close JMS consumer: {}", e.getMessage());
+                }
+                consumer = null;
+            }
+        }
+
+        private void close() {
+            close(session);
+            if (consumerSession != session) {
+                close(consumerSession);
+            }
+        }
+
+        private static void close(Session session) {
+            try {
+                session.close();
+            } catch (JMSException e) {
+                log.debug("Unable to close JMS session: {}", e.getMessage());
+            }
+        }
+    }
 }
@@ -0,0 +1,314 @@
+package io.syndesis.qe.utils;
+
+import org.HdrHistogram.Histogram;
+
+import javax.jms.BytesMessage;
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Publishes messages at a fixed rate from more producer threads and measures the end-to-end latency of the messages received on the
+ * other side of the integration.
+ * <p>
+ * Each producer thread has its own session on the shared connection of {@link JmsClientManager} and sends its share of the rate on a
+ * fixed schedule. The consumer uses its own connection with an explicit queue prefetch, the asynchronous listener doesn't work with
+ * the prefetch 0 of the pooled consumers. The message body carries the run id, a sequence number and the time when the message was
+ * scheduled to be sent, so the consumer can correlate the messages even if the integration doesn't keep the JMS headers. The latency is
+ * measured from the scheduled time, so a producer falling behind the schedule shows up in the latency instead of hiding it.
+ * <p>
+ * Usage:
+ * <pre>
+ * JmsLoadReport report = new JmsLoadGenerator("tcp")
+ *     .publishTo(JMSUtils.Destination.QUEUE, "load-in")
+ *     .consumeFrom(JMSUtils.Destination.QUEUE, "load-out")
+ *     .rate(500)
+ *     .producers(4)
+ *     .duration(TimeUnit.MINUTES, 1)
+ *     .run();
+ * </pre>
+ */
+@Slf4j
+public class JmsLoadGenerator {
+    private static final String MARKER = "qe-load";
+    private static final String SEPARATOR = "|";
+    // one hour in microseconds
+    private static final long HIGHEST_LATENCY = TimeUnit.HOURS.toMicros(1);
+    // same option name for openwire and amqp
+    private static final String CONSUMER_OPTIONS = "jms.prefetchPolicy.queuePrefetch=1000";
+
+    private final String protocol;
+    private JMSUtils.Destination targetType = JMSUtils.Destination.QUEUE;
+    private String target;
+    private JMSUtils.Destination sourceType = JMSUtils.Destination.QUEUE;
+    private String source;
+    private int rate = 100;
+    private int producers = 1;
+    private int payloadSize = 128;
+    private long durationNanos = TimeUnit.MINUTES.toNanos(1);
+    private long drainTimeoutNanos = TimeUnit.SECONDS.toNanos(30);
+
+    public JmsLoadGenerator(String protocol) {
+        this.protocol = protocol;
+    }
+
+    public JmsLoadGenerator publishTo(JMSUtils.Destination type, String name) {
+        this.targetType = type;
+        this.target = name;
+        return this;
+    }
+
+    /**
+     * Destination where the integration forwards the messages, defaults to the published destination.
+     */
+    public JmsLoadGenerator consumeFrom(JMSUtils.Destination type, String name) {
+        this.sourceType = type;
+        this.source = name;
+        return this;
+    }
+
+    /**
+     * Total number of messages per second, shared by all the producers.
+     */
+    public JmsLoadGenerator rate(int rate) {
+        if (rate < 1) {
+            throw new IllegalArgumentException("Rate must be >= 1, was " + rate);
+        }
+        this.rate = rate;
+        return this;
+    }
+
+    public JmsLoadGenerator producers(int producers) {
+        if (producers < 1) {
+            throw new IllegalArgumentException("Number of producers must be >= 1, was " + producers);
+        }
+        this.producers = producers;
+        return this;
+    }
+
+    /**
+     * Approximate size of the message body in bytes.
+     */
+    public JmsLoadGenerator payloadSize(int payloadSize) {
+        this.payloadSize = payloadSize;
+        return this;
+    }
+
+    public JmsLoadGenerator duration(TimeUnit unit, long duration) {
+        this.durationNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * How long to wait for the remaining messages after the last one was sent.
+     */
+    public JmsLoadGenerator drainTimeout(TimeUnit unit, long timeout) {
+        this.drainTimeoutNanos = unit.toNanos(timeout);
+        return this;
+    }
+
+    /**
+     * Runs the load and blocks until all messages are received or the drain timeout passes.
+     *
+     * @return throughput and latency of the run
+     */
+    public JmsLoadReport run() {
+        if (target == null) {
+            throw new IllegalStateException("Destination to publish to is not set");
+        }
+        final String runId = UUID.randomUUID().toString().substring(0, 8);
+        final JmsClientManager manager = JmsClientManager.shared(protocol);
+        final Collector collector = new Collector(runId);
+
+        Connection consumerConnection = null;
+        final AtomicInteger threads = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(producers, r -> {
+            Thread t = new Thread(r, "jms-load-producer-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            // the consumer must exist before the first message is sent, otherwise the topic messages are lost
+            consumerConnection = manager.createConnection(CONSUMER_OPTIONS);
+            final Session consumerSession = consumerConnection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            final MessageConsumer consumer = consumerSession.createConsumer(
+                JmsClientManager.destination(consumerSession, source == null ? targetType : sourceType, source == null ? target : source));
+            consumer.setMessageListener(collector::onMessage);
+
+            log.info("Publishing {} messages/s to {} {} from {} producers for {} s (run {})", rate, targetType, target, producers,
+                TimeUnit.NANOSECONDS.toSeconds(durationNanos), runId);
+            final AtomicLong sequence = new AtomicLong();
+            final AtomicLong sendErrors = new AtomicLong();
+            final long intervalNanos = TimeUnit.SECONDS.toNanos(producers) / rate;
+            final long start = System.nanoTime();
+            final long end = start + durationNanos;
+            final List<Future<?>> running = new ArrayList<>();
+            for (int i = 0; i < producers; i++) {
+                final long first = start + i * intervalNanos / producers;
+                running.add(executor.submit(() -> {
+                    produce(manager, runId, first, intervalNanos, end, sequence, sendErrors);
+                    return null;
+                }));
+            }
+            for (Future<?> f : running) {
+                f.get();
+            }
+            final long sendNanos = System.nanoTime() - start;
+            final long sent = sequence.get() - sendErrors.get();
+
+            final long drainDeadline = System.nanoTime() + drainTimeoutNanos;
+            while (collector.unique() < sent && System.nanoTime() < drainDeadline) {
+                TestUtils.sleepIgnoreInterrupt(100L);
+            }
+            consumer.close();
+            final long totalNanos = System.nanoTime() - start;
+
+            final JmsLoadReport report = collector.report(sent, sendErrors.get(), sendNanos, totalNanos);
+            log.info(report.summary());
+            return report;
+        } catch (JMSException e) {
+            throw new IllegalStateException("JMS load run " + runId + " failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("JMS load run " + runId + " was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("JMS load producer failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+            if (consumerConnection != null) {
+                try {
+                    consumerConnection.close();
+                } catch (JMSException e) {
+                    log.debug("Unable to close JMS load consumer connection: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void produce(JmsClientManager manager, String runId, long first, long intervalNanos, long end, AtomicLong sequence,
+        AtomicLong sendErrors) throws JMSException {
+        final Session session = manager.createSession();
+        try {
+            final MessageProducer producer = session.createProducer(JmsClientManager.destination(session, targetType, target));
+            final String padding = padding();
+            for (long scheduled = first; scheduled < end && !Thread.currentThread().isInterrupted(); scheduled += intervalNanos) {
+                final long wait = scheduled - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                final long seq = sequence.getAndIncrement();
+                try {
+                    producer.send(session.createTextMessage(MARKER + SEPARATOR + runId + SEPARATOR + seq + SEPARATOR + scheduled + SEPARATOR
+                        + padding));
+                } catch (JMSException e) {
+                    if (sendErrors.incrementAndGet() == 1) {
+                        log.warn("Unable to send JMS load message: {}", e.getMessage());
+                    }
+                }
+            }
+        } finally {
+            session.close();
+        }
+    }
+
+    private String padding() {
+        final StringBuilder sb = new StringBuilder(Math.max(0, payloadSize));
+        while (sb.length() < payloadSize) {
+            sb.append('x');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Correlates the received messages and records their latency, called from the single consumer session thread.
+     */
+    private static final class Collector {
+        private final String runId;
+        private final Histogram latency = new Histogram(HIGHEST_LATENCY, 3);
+        private final BitSet seen = new BitSet();
+        private final AtomicLong unique = new AtomicLong();
+        private long duplicates;
+        private long foreign;
+
+        private Collector(String runId) {
+            this.runId = runId;
+        }
+
+        private void onMessage(Message message) {
+            final long received = System.nanoTime();
+            final String[] parts = body(message).split("\\" + SEPARATOR, 5);
+            if (parts.length < 4 || !MARKER.equals(parts[0]) || !runId.equals(parts[1])) {
+                synchronized (this) {
+                    foreign++;
+                }
+                return;
+            }
+            final int seq;
+            final long micros;
+            try {
+                seq = Integer.parseInt(parts[2]);
+                micros = TimeUnit.NANOSECONDS.toMicros(received - Long.parseLong(parts[3]));
+            } catch (NumberFormatException e) {
+                synchronized (this) {
+                    foreign++;
+                }
+                return;
+            }
+            synchronized (this) {
+                if (seen.get(seq)) {
+                    duplicates++;
+                    return;
+                }
+                seen.set(seq);
+                latency.recordValue(Math.min(Math.max(0, micros), HIGHEST_LATENCY));
+            }
+            unique.incrementAndGet();
+        }
+
+        private long unique() {
+            return unique.get();
+        }
+
+        private synchronized JmsLoadReport report(long sent, long sendErrors, long sendNanos, long totalNanos) {
+            return new JmsLoadReport(runId, sent, sendErrors, unique.get(), duplicates, foreign, sendNanos, totalNanos, latency.copy());
+        }
+
+        private static String body(Message message) {
+            try {
+                if (message instanceof TextMessage) {
+                    final String text = ((TextMessage) message).getText();
+                    return text == null ? "" : text;
+                }
+                if (message instanceof BytesMessage) {
+                    final BytesMessage bytes = (BytesMessage) message;
+                    final byte[] data = new byte[(int) bytes.getBodyLength()];
+                    bytes.readBytes(data);
+                    return new String(data, StandardCharsets.UTF_8);
+                }
+            } catch (JMSException e) {
+                log.debug("Unable to read JMS load message: {}", e.getMessage());
+            }
+            return "";
+        }
+    }
+}
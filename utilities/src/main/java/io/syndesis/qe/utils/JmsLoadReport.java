@@ -0,0 +1,110 @@
+package io.syndesis.qe.utils;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import lombok.Getter;
+
+/**
+ * Result of a {@link JmsLoadGenerator} run, latencies are in milliseconds.
+ */
+@Getter
+public class JmsLoadReport {
+    private final String runId;
+    private final long sent;
+    private final long sendErrors;
+    private final long received;
+    private final long duplicates;
+    private final long foreign;
+    private final long sendNanos;
+    private final long totalNanos;
+    private final Histogram latency;
+
+    JmsLoadReport(String runId, long sent, long sendErrors, long received, long duplicates, long foreign, long sendNanos, long totalNanos,
+        Histogram latency) {
+        this.runId = runId;
+        this.sent = sent;
+        this.sendErrors = sendErrors;
+        this.received = received;
+        this.duplicates = duplicates;
+        this.foreign = foreign;
+        this.sendNanos = sendNanos;
+        this.totalNanos = totalNanos;
+        this.latency = latency;
+    }
+
+    public long getLost() {
+        return sent - received;
+    }
+
+    public double getSendThroughput() {
+        return perSecond(sent, sendNanos);
+    }
+
+    public double getReceiveThroughput() {
+        return perSecond(received, totalNanos);
+    }
+
+    public double percentile(double percentile) {
+        return latency.getTotalCount() == 0 ? 0 : latency.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    public double getMaxLatency() {
+        return latency.getTotalCount() == 0 ? 0 : latency.getMaxValue() / 1000.0;
+    }
+
+    /**
+     * Values for the machine readable embedding.
+     */
+    public Map<String, Object> toMap() {
+        final Map<String, Object> values = new LinkedHashMap<>();
+        values.put("runId", runId);
+        values.put("sent", sent);
+        values.put("sendErrors", sendErrors);
+        values.put("received", received);
+        values.put("lost", getLost());
+        values.put("duplicates", duplicates);
+        values.put("sendThroughput", round(getSendThroughput()));
+        values.put("receiveThroughput", round(getReceiveThroughput()));
+        values.put("p50", percentile(50));
+        values.put("p99", percentile(99));
+        values.put("p999", percentile(99.9));
+        values.put("max", getMaxLatency());
+        return values;
+    }
+
+    public String summary() {
+        return String.format("JMS load %s: sent %d (%.1f msg/s, %d errors), received %d (%.1f msg/s, %d lost, %d duplicates, "
+                + "%d foreign), latency p50 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, max %.2f ms", runId, sent, getSendThroughput(), sendErrors,
+            received, getReceiveThroughput(), getLost(), duplicates, foreign, percentile(50), percentile(99), percentile(99.9),
+            getMaxLatency());
+    }
+
+    /**
+     * HdrHistogram percentile distribution of the latency in milliseconds.
+     */
+    public String percentileDistribution() {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PrintStream ps = new PrintStream(out, true, StandardCharsets.UTF_8.name())) {
+            latency.outputPercentileDistribution(ps, 1000.0);
+            return out.toString(StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static double perSecond(long count, long nanos) {
+        return nanos <= 0 ? 0 : count * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10) / 10.0;
+    }
+}
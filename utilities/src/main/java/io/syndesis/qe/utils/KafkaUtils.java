@@ -0,0 +1,377 @@
+package io.syndesis.qe.utils;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.ConsumerGroupListing;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import io.fabric8.kubernetes.api.model.Node;
+import io.fabric8.kubernetes.api.model.NodeAddress;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.syndesis.qe.TestConfiguration;
+import io.syndesis.qe.wait.Poller;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Produces and consumes Kafka records from the test suite and measures the lag of the integration consumer groups.
+ * <p>
+ * The brokers deployed by {@link io.syndesis.qe.templates.KafkaTemplate} are reached through the node port of the external listener on
+ * the node running the broker, which is also the address the broker advertises. {@link TestConfiguration#kafkaNodeHost()} overrides the
+ * node host, e.g. when the nodes are reachable only through a load balancer, {@link TestConfiguration#kafkaBootstrapServers()} overrides
+ * the whole address. The producer is shared by all the steps, it batches and
+ * compresses the records, so the bulk sends are limited by the network rather than by the round trips.
+ */
+@Slf4j
+public final class KafkaUtils {
+    private static final String EXTERNAL_BOOTSTRAP_SERVICE = "my-cluster-kafka-external-bootstrap";
+    private static final String BROKER_POD = "my-cluster-kafka-0";
+    private static final long TIMEOUT_MS = TimeUnit.SECONDS.toMillis(30);
+
+    private static KafkaProducer<String, String> producer;
+    private static AdminClient adminClient;
+    private static KafkaConsumer<String, String> offsetsConsumer;
+
+    private KafkaUtils() {
+    }
+
+    public static synchronized String bootstrapServers() {
+        return TestConfiguration.kafkaBootstrapServers().orElseGet(() -> {
+            final int nodePort = OpenShiftUtils.client().services().withName(EXTERNAL_BOOTSTRAP_SERVICE).get()
+                .getSpec().getPorts().get(0).getNodePort();
+            return TestConfiguration.kafkaNodeHost().orElseGet(KafkaUtils::brokerNodeHost) + ":" + nodePort;
+        });
+    }
+
+    /**
+     * @return external address of the node running the broker, the host of the OpenShift API when the node can't be read
+     */
+    private static String brokerNodeHost() {
+        try {
+            final Pod broker = OpenShiftUtils.client().pods().withName(BROKER_POD).get();
+            final Node node = broker == null || broker.getSpec().getNodeName() == null
+                ? null : OpenShiftUtils.client().nodes().withName(broker.getSpec().getNodeName()).get();
+            if (node != null && node.getStatus() != null && node.getStatus().getAddresses() != null) {
+                for (String type : new String[] {"ExternalIP", "InternalIP", "Hostname"}) {
+                    final Optional<String> address = node.getStatus().getAddresses().stream()
+                        .filter(a -> type.equals(a.getType()))
+                        .map(NodeAddress::getAddress)
+                        .findFirst();
+                    if (address.isPresent()) {
+                        return address.get();
+                    }
+                }
+            }
+        } catch (KubernetesClientException e) {
+            log.warn("Unable to read the node of the Kafka broker: {}", e.getMessage());
+        }
+        log.warn("Using the OpenShift API host as the Kafka node, set {} if it is not a reachable node",
+            TestConfiguration.SYNDESIS_KAFKA_NODE_HOST);
+        try {
+            return new URL(TestConfiguration.openShiftUrl()).getHost();
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException("Unable to get the node address from the OpenShift URL", e);
+        }
+    }
+
+    //    PRODUCER:
+
+    /**
+     * Sends the record and waits until it is acknowledged.
+     */
+    public static void send(String topic, String key, String value) {
+        try {
+            producer().send(new ProducerRecord<>(topic, key, value)).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while sending Kafka record to " + topic, e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Unable to send Kafka record to " + topic, e);
+        }
+    }
+
+    /**
+     * Sends all values without waiting for each of them, the producer groups them into compressed batches. Waits for all
+     * acknowledgements at the end.
+     *
+     * @return number of acknowledged records
+     */
+    public static long sendAll(String topic, Iterable<String> values) {
+        final KafkaProducer<String, String> p = producer();
+        final List<Future<?>> sent = new ArrayList<>();
+        for (String value : values) {
+            sent.add(p.send(new ProducerRecord<>(topic, value)));
+        }
+        p.flush();
+        long acknowledged = 0;
+        for (Future<?> f : sent) {
+            try {
+                f.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                acknowledged++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException | TimeoutException e) {
+                log.debug("Kafka record to {} was not acknowledged: {}", topic, e.getMessage());
+            }
+        }
+        log.info("Sent {} of {} records to Kafka topic {}", acknowledged, sent.size(), topic);
+        return acknowledged;
+    }
+
+    //    CONSUMER:
+
+    /**
+     * Starts reading the topic from its current end, the records sent before this call are skipped.
+     *
+     * @return reader, must be closed
+     */
+    public static TopicReader read(String topic) {
+        return new TopicReader(topic);
+    }
+
+    //    CONSUMER GROUP LAG:
+
+    /**
+     * @return consumer groups with committed offsets of the topic, e.g. the group of the integration
+     */
+    public static synchronized List<String> findConsumerGroups(String topic) {
+        try {
+            final List<String> groups = new ArrayList<>();
+            for (ConsumerGroupListing group : admin().listConsumerGroups().all().get(TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                if (committedOffsets(group.groupId()).keySet().stream().anyMatch(tp -> topic.equals(tp.topic()))) {
+                    groups.add(group.groupId());
+                }
+            }
+            return groups;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Collections.emptyList();
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Unable to list Kafka consumer groups", e);
+        }
+    }
+
+    /**
+     * Sum of the differences between the end offsets and the committed offsets of the group in all partitions of the topic.
+     *
+     * @return lag or -1 if the group didn't commit any offset of the topic yet
+     */
+    public static synchronized long getConsumerGroupLag(String groupId, String topic) {
+        try {
+            final Map<TopicPartition, OffsetAndMetadata> committed = committedOffsets(groupId).entrySet().stream()
+                .filter(e -> topic.equals(e.getKey().topic()) && e.getValue() != null)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+            if (committed.isEmpty()) {
+                return -1;
+            }
+            final Map<TopicPartition, Long> end = offsetsConsumer().endOffsets(partitions(offsetsConsumer(), topic));
+            return end.entrySet().stream()
+                .mapToLong(e -> e.getValue() - (committed.containsKey(e.getKey()) ? committed.get(e.getKey()).offset() : 0))
+                .sum();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Unable to get offsets of Kafka consumer group " + groupId, e);
+        }
+    }
+
+    /**
+     * Samples the lag of all consumer groups of the topic until it drops to maxLag or the timeout passes.
+     *
+     * @return samples of the total lag of the groups over time, the last one is the final state
+     */
+    public static List<LagSample> awaitConsumerGroupLag(String topic, long maxLag, TimeUnit unit, long timeout) {
+        final List<LagSample> samples = new ArrayList<>();
+        final long start = System.nanoTime();
+        new Poller("Kafka consumer lag of " + topic + " <= " + maxLag)
+            .timeout(unit, timeout)
+            .fixedInterval(TimeUnit.SECONDS, 1)
+            .poll(() -> {
+                final List<String> groups = findConsumerGroups(topic);
+                long lag = groups.isEmpty() ? -1 : 0;
+                for (String group : groups) {
+                    final long groupLag = getConsumerGroupLag(group, topic);
+                    lag = groupLag < 0 ? -1 : lag + groupLag;
+                    if (lag < 0) {
+                        break;
+                    }
+                }
+                final LagSample sample = new LagSample(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), lag);
+                samples.add(sample);
+                log.debug("Kafka consumer lag of {} after {} ms: {}", topic, sample.getElapsedMillis(), lag);
+                return sample;
+            }, sample -> sample.getLag() >= 0 && sample.getLag() <= maxLag);
+        return samples;
+    }
+
+    public static synchronized void close() {
+        if (producer != null) {
+            producer.close(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            producer = null;
+        }
+        if (offsetsConsumer != null) {
+            offsetsConsumer.close();
+            offsetsConsumer = null;
+        }
+        if (adminClient != null) {
+            adminClient.close(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            adminClient = null;
+        }
+    }
+
+    //    AUXILIARIES:
+    private static synchronized KafkaProducer<String, String> producer() {
+        if (producer == null) {
+            final Properties props = new Properties();
+            props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers());
+            props.put(ProducerConfig.ACKS_CONFIG, "all");
+            props.put(ProducerConfig.BATCH_SIZE_CONFIG, 64 * 1024);
+            props.put(ProducerConfig.LINGER_MS_CONFIG, 10);
+            props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4");
+            producer = new KafkaProducer<>(props, new StringSerializer(), new StringSerializer());
+        }
+        return producer;
+    }
+
+    private static AdminClient admin() {
+        if (adminClient == null) {
+            final Properties props = new Properties();
+            props.put(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers());
+            adminClient = AdminClient.create(props);
+        }
+        return adminClient;
+    }
+
+    private static KafkaConsumer<String, String> offsetsConsumer() {
+        if (offsetsConsumer == null) {
+            offsetsConsumer = createConsumer("syndesis-qe-offsets");
+        }
+        return offsetsConsumer;
+    }
+
+    private static Map<TopicPartition, OffsetAndMetadata> committedOffsets(String groupId)
+        throws InterruptedException, ExecutionException, TimeoutException {
+        return admin().listConsumerGroupOffsets(groupId).partitionsToOffsetAndMetadata().get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private static KafkaConsumer<String, String> createConsumer(String groupId) {
+        final Properties props = new Properties();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers());
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 1000);
+        return new KafkaConsumer<>(props, new StringDeserializer(), new StringDeserializer());
+    }
+
+    private static List<TopicPartition> partitions(KafkaConsumer<?, ?> consumer, String topic) {
+        final List<PartitionInfo> infos = consumer.partitionsFor(topic);
+        if (infos == null) {
+            return Collections.emptyList();
+        }
+        return infos.stream().map(i -> new TopicPartition(i.topic(), i.partition())).collect(Collectors.toList());
+    }
+
+    /**
+     * Reads the topic from the position at the time of creation, not thread-safe.
+     */
+    public static final class TopicReader implements AutoCloseable {
+        private final String topic;
+        private final KafkaConsumer<String, String> consumer;
+
+        private TopicReader(String topic) {
+            this.topic = topic;
+            consumer = createConsumer("syndesis-qe-" + UUID.randomUUID());
+            // the topic may be created only by the integration that is starting, an empty assignment would make poll() throw
+            final Poller.Result<List<TopicPartition>> partitions = new Poller("partitions of Kafka topic " + topic)
+                .timeout(TimeUnit.MILLISECONDS, TIMEOUT_MS)
+                .interval(TimeUnit.MILLISECONDS, 200)
+                .maxInterval(TimeUnit.SECONDS, 2)
+                .poll(() -> partitions(consumer, topic), p -> !p.isEmpty());
+            if (!partitions.isSuccess()) {
+                consumer.close();
+                throw new IllegalStateException("Kafka topic " + topic + " has no partitions after " + TIMEOUT_MS + " ms, does it exist?");
+            }
+            assign(partitions.getValue());
+        }
+
+        private void assign(Collection<TopicPartition> partitions) {
+            consumer.assign(partitions);
+            consumer.seekToEnd(partitions);
+            // seekToEnd is lazy, resolve the positions now so the records sent after this call are not skipped
+            partitions.forEach(consumer::position);
+        }
+
+        /**
+         * Polls the topic until count records matching the predicate arrive or the timeout passes.
+         *
+         * @return matching records, fewer than count when the timeout passed
+         */
+        public List<ConsumerRecord<String, String>> await(Predicate<ConsumerRecord<String, String>> predicate, int count, TimeUnit unit,
+            long timeout) {
+            final List<ConsumerRecord<String, String>> matching = new ArrayList<>();
+            final long deadline = System.nanoTime() + unit.toNanos(timeout);
+            long remaining;
+            while (matching.size() < count && (remaining = deadline - System.nanoTime()) > 0) {
+                for (ConsumerRecord<String, String> record : consumer.poll(Duration.ofNanos(Math.min(remaining, TimeUnit.SECONDS.toNanos(1))))) {
+                    if (predicate.test(record) && matching.size() < count) {
+                        matching.add(record);
+                    }
+                }
+            }
+            if (matching.size() < count) {
+                log.warn("Received only {} of {} matching records from Kafka topic {}", matching.size(), count, topic);
+            }
+            return matching;
+        }
+
+        @Override
+        public void close() {
+            consumer.close();
+        }
+    }
+
+    /**
+     * Consumer group lag at the given time since the start of the measurement.
+     */
+    @Getter
+    public static final class LagSample {
+        private final long elapsedMillis;
+        private final long lag;
+
+        private LagSample(long elapsedMillis, long lag) {
+            this.elapsedMillis = elapsedMillis;
+            this.lag = lag;
+        }
+    }
+}
@@ -4,93 +4,166 @@ import org.assertj.core.api.Assertions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.StringReader;
 import java.util.Collection;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 import io.fabric8.kubernetes.api.model.Pod;
+import io.syndesis.qe.logs.LogWindow;
+import io.syndesis.qe.logs.MultiPatternMatcher;
+import io.syndesis.qe.logs.PodLogReader;
 
 public class LogCheckerUtils {
     private static final Logger LOGGER = LoggerFactory.getLogger(LogCheckerUtils.class);
+    private static final int LOG_SCAN_THREADS = 8;
+
+    private static final ExecutorService LOG_SCAN_EXECUTOR = Executors.newFixedThreadPool(LOG_SCAN_THREADS, r -> {
+        Thread t = new Thread(r, "pod-log-scan");
+        t.setDaemon(true);
+        return t;
+    });
 
     public static boolean[] findPatternsInLogs(Pod pod, Pattern... patterns) throws IOException {
-        boolean found[] = new boolean[patterns.length];
-
-        // TODO: use a method that don't require whole log in memory
-        StringReader stringReader = new StringReader(OpenShiftUtils.getInstance().getPodLog(pod));
-
-        try (BufferedReader br = new BufferedReader(stringReader)) {
-            br.lines().forEach(line -> {
-                for (int i = 0; i < patterns.length; ++i) {
-                    Pattern pattern = patterns[i];
-                    if (pattern.matcher(line).find()) {
-                        LOGGER.info("Found pattern {} on line '{}'", pattern, cleanLine(line));
-                        found[i] = true;
-                    }
-                }
-            });
-        }
+        return findPatternsInLogs(pod, LogWindow.all(), patterns);
+    }
 
-        return found;
+    /**
+     * Streams the given part of the pod log line by line and stops reading as soon as all the patterns are found.
+     *
+     * @param pod pod
+     * @param window part of the log to scan
+     * @param patterns patterns to find
+     * @return flag for each pattern whether it was found
+     * @throws IOException when the log can't be read
+     */
+    public static boolean[] findPatternsInLogs(Pod pod, LogWindow window, Pattern... patterns) throws IOException {
+        return scan(pod, window, patterns).getFound();
     }
 
+    /**
+     * Returns the last line matching each pattern, the whole log is read.
+     *
+     * @param pod pod
+     * @param patterns patterns to find
+     * @return last matching line for each pattern, null if the pattern was not found
+     * @throws IOException when the log can't be read
+     */
     public static String[] getLinesWithFoundPatternsInLogs(Pod pod, Pattern... patterns) throws IOException {
-        String found[] = new String[patterns.length];
-
-        // TODO: use a method that don't require whole log in memory
-        StringReader stringReader = new StringReader(OpenShiftUtils.getInstance().getPodLog(pod));
-
-        try (BufferedReader br = new BufferedReader(stringReader)) {
-            br.lines().forEach(line -> {
-                for (int i = 0; i < patterns.length; ++i) {
-                    Pattern pattern = patterns[i];
-                    if (pattern.matcher(line).find()) {
-                        LOGGER.info("Found pattern {} on line '{}'", pattern, cleanLine(line));
-                        found[i] = line;
-                    }
-                }
-            });
-        }
+        return getLinesWithFoundPatternsInLogs(pod, LogWindow.all(), patterns);
+    }
 
-        return found;
+    public static String[] getLinesWithFoundPatternsInLogs(Pod pod, LogWindow window, Pattern... patterns) throws IOException {
+        return scan(pod, window, MultiPatternMatcher.lastMatches(patterns)).getLines();
     }
 
-    private static boolean[] vectorOr(boolean[] b1, boolean[] b2) {
+    private static MultiPatternMatcher scan(Pod pod, LogWindow window, Pattern... patterns) throws IOException {
+        return scan(pod, window, new MultiPatternMatcher(patterns));
+    }
 
-        if (b1 == null && b2 != null) {
-            return b2;
-        }
-        if (b2 == null && b1 != null) {
-            return b1;
+    private static MultiPatternMatcher scan(Pod pod, LogWindow window, MultiPatternMatcher matcher) throws IOException {
+        if (!matcher.isAllFound()) {
+            // there is nothing to find without patterns
+            scan(pod, window, matcher, ConcurrentHashMap.newKeySet());
         }
+        return matcher;
+    }
 
-        assert b1 != null;
-        assert b2 != null;
-        assert b1.length == b2.length;
+    /**
+     * Scans the log of the pod until the end of the log or until all patterns in the (possibly shared) matcher are found. When this scan
+     * finds the last missing pattern, it aborts all the other logs registered in openLogs to stop the other scans.
+     */
+    private static void scan(Pod pod, LogWindow window, MultiPatternMatcher matcher, Set<PodLogReader.LogStream> openLogs)
+            throws IOException {
+        if (matcher.isComplete()) {
+            return;
+        }
 
-        boolean found[] = new boolean[b1.length];
-        for (int i = 0; i < found.length; ++i) {
-            found[i] = b1[i] || b2[i];
+        final long start = System.nanoTime();
+        long lines = 0;
+        boolean cancelled = false;
+        try (PodLogReader.LogStream br = PodLogReader.open(pod, window)) {
+            openLogs.add(br);
+            String line;
+            while ((line = br.readLine()) != null) {
+                lines++;
+                if (matcher.match(line)) {
+                    LOGGER.debug("All patterns found in log of pod {}, not reading the rest of the logs", pod.getMetadata().getName());
+                    openLogs.remove(br);
+                    abortAll(openLogs);
+                    break;
+                }
+            }
+            openLogs.remove(br);
+        } catch (IOException ex) {
+            if (!matcher.isComplete()) {
+                throw ex;
+            }
+            // the stream was aborted by a scan of another pod that found the last pattern
+            cancelled = true;
         }
-        return found;
+        LOGGER.info("Scanned {} lines of pod {} log in {} ms{}", lines, pod.getMetadata().getName(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), cancelled ? " (cancelled, all patterns found)" : "");
+    }
+
+    /**
+     * Aborts the logs, closing the readers would block until their scans read another line.
+     */
+    private static void abortAll(Set<PodLogReader.LogStream> logs) {
+        logs.forEach(PodLogReader.LogStream::abort);
     }
 
     public static boolean[] findPatternsInLogs(Collection<Pod> pods, Pattern... patterns) throws IOException {
+        return findPatternsInLogs(pods, LogWindow.all(), patterns);
+    }
 
-        AtomicReference<boolean[]> foundRef = new AtomicReference<>(null);
+    /**
+     * Scans the logs of the pods in parallel, the result contains the patterns found in any of the pods.
+     * <p>
+     * All in-flight scans are cancelled as soon as every pattern has been seen in some pod.
+     *
+     * @param pods pods
+     * @param window part of the logs to scan
+     * @param patterns patterns to find
+     * @return flag for each pattern whether it was found in any pod
+     */
+    public static boolean[] findPatternsInLogs(Collection<Pod> pods, LogWindow window, Pattern... patterns) {
+        final MultiPatternMatcher matcher = new MultiPatternMatcher(patterns);
+        if (patterns.length == 0) {
+            return matcher.getFound();
+        }
+        final Set<PodLogReader.LogStream> openLogs = ConcurrentHashMap.newKeySet();
 
-        pods.forEach(pod -> {
+        final Map<Pod, Future<?>> scans = new LinkedHashMap<>();
+        for (Pod pod : pods) {
+            scans.put(pod, LOG_SCAN_EXECUTOR.submit(() -> {
+                scan(pod, window, matcher, openLogs);
+                return null;
+            }));
+        }
+
+        for (Map.Entry<Pod, Future<?>> scan : scans.entrySet()) {
             try {
-                foundRef.set(vectorOr(foundRef.get(), findPatternsInLogs(pod, patterns)));
-            } catch (Exception x) {
-                LOGGER.error("Failed to get logs for pod {}", pod.getMetadata().getLabels().get("name"), x);
+                scan.getValue().get();
+            } catch (ExecutionException x) {
+                LOGGER.error("Failed to get logs for pod {}", scan.getKey().getMetadata().getLabels().get("name"), x.getCause());
+            } catch (InterruptedException x) {
+                Thread.currentThread().interrupt();
+                scans.values().forEach(f -> f.cancel(true));
+                abortAll(openLogs);
+                break;
             }
-        });
+        }
 
-        return foundRef.get();
+        return matcher.getFound();
     }
 
     /**
@@ -0,0 +1,200 @@
+package io.syndesis.qe.utils;
+
+import static org.assertj.core.api.Assertions.fail;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.syndesis.qe.Component;
+import io.syndesis.qe.TestConfiguration;
+import io.syndesis.qe.bdd.CommonSteps;
+import io.syndesis.qe.endpoints.TestSupport;
+import io.syndesis.qe.wait.OpenShiftResourceCache;
+import io.syndesis.qe.wait.OpenShiftWaitUtils;
+import io.syndesis.qe.wait.Poller;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Pool of namespaces with Syndesis deployed, shared by the test runs.
+ * <p>
+ * The pool consists of the namespaces {@code <namespace>-1} to {@code <namespace>-N}, where N is
+ * {@link TestConfiguration#namespacePoolSize()}. Each namespace has a ConfigMap with a {@link ConfigMapLease} in
+ * {@link TestConfiguration#leaseNamespace()}, which is not affected by the cleanup of the pooled namespaces. Its annotations also record
+ * the state of the namespace and the deployed Syndesis. A test run leases a namespace and switches the suite to it. If the
+ * namespace is ready, runs the same Syndesis and all the pods are ready, only the database is reset; otherwise the namespace is cleaned
+ * and Syndesis is deployed again. After the run, the namespace is handed back as ready. It is handed back as dirty, so the next run
+ * redeploys it, when {@link TestConfiguration#namespaceCleanupAfter()} is set, when the namespace wasn't prepared successfully or when
+ * the run changed the deployed Syndesis (see {@link #markDirty()}).
+ */
+@Slf4j
+public final class NamespacePool {
+    public static final String LEASE_PREFIX = "syndesis-qe-pool-";
+    public static final String STATE = "syndesis.io/pool-state";
+    public static final String DEPLOYMENT = "syndesis.io/pool-deployment";
+    private static final String READY = "ready";
+    private static final String DIRTY = "dirty";
+
+    // kept between the attempts, so that each of them knows whether its ConfigMap was deleted while held by another run
+    private static final Map<String, ConfigMapLease> CANDIDATES = new HashMap<>();
+
+    private static ConfigMapLease lease;
+    private static String leasedNamespace;
+    private static boolean prepared;
+    private static boolean touched;
+
+    private NamespacePool() {
+    }
+
+    public static boolean isEnabled() {
+        return TestConfiguration.namespacePoolSize() > 0;
+    }
+
+    /**
+     * @return names of the pooled namespaces
+     */
+    public static List<String> namespaces() {
+        final String base = TestConfiguration.openShiftNamespace();
+        return IntStream.rangeClosed(1, TestConfiguration.namespacePoolSize()).mapToObj(i -> base + "-" + i).collect(Collectors.toList());
+    }
+
+    /**
+     * Leases a namespace, switches the suite to it and makes sure Syndesis is ready and its state is reset.
+     *
+     * @return leased namespace
+     */
+    public static synchronized String acquire() {
+        if (lease != null) {
+            return leasedNamespace;
+        }
+        final List<String> namespaces = namespaces();
+        log.info("Waiting to lease a namespace from the pool {}", namespaces);
+        final Poller.Result<Optional<ConfigMapLease>> result = new Poller("namespace lease")
+            .timeout(TimeUnit.MINUTES, 60)
+            .interval(TimeUnit.SECONDS, 5)
+            .maxInterval(TimeUnit.SECONDS, 60)
+            .poll(() -> tryLease(namespaces), Optional::isPresent);
+        if (!result.isSuccess()) {
+            fail("Unable to lease any namespace from the pool " + namespaces);
+        }
+        lease = result.getValue().get();
+        final String namespace = lease.getName().substring(LEASE_PREFIX.length());
+        leasedNamespace = namespace;
+        prepared = false;
+        touched = false;
+        switchTo(namespace);
+        prepare();
+        prepared = true;
+        return namespace;
+    }
+
+    /**
+     * Hands the namespace back to the pool.
+     */
+    public static synchronized void release() {
+        if (lease == null) {
+            return;
+        }
+        if (!prepared) {
+            log.warn("Namespace {} wasn't prepared successfully", leasedNamespace);
+        }
+        final String state = TestConfiguration.namespaceCleanupAfter() || !prepared || touched ? DIRTY : READY;
+        log.info("Handing namespace {} back to the pool as {}", leasedNamespace, state);
+        lease.release(TestUtils.map(STATE, state));
+        lease = null;
+        leasedNamespace = null;
+        prepared = false;
+        touched = false;
+    }
+
+    /**
+     * Marks the leased namespace to be redeployed by the next run, used by the tests that change the deployed Syndesis (e.g. upgrade).
+     */
+    public static synchronized void markDirty() {
+        if (lease != null && !touched) {
+            log.info("Syndesis in namespace {} was changed by the test, it will be handed back as {}", leasedNamespace, DIRTY);
+            touched = true;
+        }
+    }
+
+    /**
+     * Tries the ready namespaces first, so a warm namespace is preferred over one that needs to be deployed.
+     */
+    private static Optional<ConfigMapLease> tryLease(List<String> namespaces) {
+        OpenShiftUtils.ensureProject(TestConfiguration.leaseNamespace());
+        final Map<String, Boolean> warm = new HashMap<>();
+        for (String namespace : namespaces) {
+            OpenShiftUtils.ensureProject(namespace);
+            final ConfigMap cm = OpenShiftUtils.client().configMaps().inNamespace(TestConfiguration.leaseNamespace())
+                .withName(LEASE_PREFIX + namespace).get();
+            warm.put(namespace, cm != null && cm.getMetadata().getAnnotations() != null
+                && READY.equals(cm.getMetadata().getAnnotations().get(STATE)));
+        }
+        final List<String> candidates = new ArrayList<>(namespaces);
+        candidates.sort(Comparator.comparing(warm::get).reversed());
+        for (String namespace : candidates) {
+            final ConfigMapLease candidate = CANDIDATES.computeIfAbsent(namespace, NamespacePool::newLease);
+            if (candidate.tryAcquire()) {
+                return Optional.of(candidate);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static ConfigMapLease newLease(String namespace) {
+        return new ConfigMapLease(TestConfiguration.leaseNamespace(), LEASE_PREFIX + namespace, TestConfiguration.namespaceLeaseTtl(),
+            TimeUnit.SECONDS);
+    }
+
+    /**
+     * Points the configuration and all the cached clients to the namespace.
+     */
+    private static void switchTo(String namespace) {
+        log.info("Switching the test suite to namespace {}", namespace);
+        TestConfiguration.get().overrideNamespace(namespace);
+        OpenShiftResourceCache.closeAll();
+        PortForwardRegistry.closeAll();
+        RestUtils.reset();
+        OpenShiftUtils.reset();
+    }
+
+    private static void prepare() {
+        final Map<String, String> annotations = lease.getAnnotations();
+        final boolean warm = READY.equals(annotations.get(STATE)) && deployment().equals(annotations.get(DEPLOYMENT)) && isSyndesisReady();
+        if (warm) {
+            log.info("Namespace {} is warm, resetting Syndesis state", leasedNamespace);
+            TestSupport.getInstance().resetDB();
+        } else {
+            log.info("Namespace {} is {}, deploying Syndesis", leasedNamespace, annotations.getOrDefault(STATE, "new"));
+            lease.annotate(TestUtils.map(STATE, DIRTY));
+            final CommonSteps commonSteps = new CommonSteps();
+            commonSteps.cleanNamespace();
+            commonSteps.deploySyndesis();
+            commonSteps.waitForSyndesis();
+        }
+        lease.annotate(TestUtils.map(STATE, READY, DEPLOYMENT, deployment()));
+    }
+
+    private static boolean isSyndesisReady() {
+        final List<Pod> pods = OpenShiftUtils.getInstance().getPods();
+        return EnumSet.allOf(Component.class).stream().allMatch(c -> pods.stream()
+            .filter(p -> p.getMetadata().getLabels() != null && c.getName().equals(p.getMetadata().getLabels().get("syndesis.io/component")))
+            .anyMatch(OpenShiftWaitUtils::isPodReady));
+    }
+
+    /**
+     * @return identification of the Syndesis that the suite deploys
+     */
+    private static String deployment() {
+        return TestConfiguration.useOperator() ? TestConfiguration.syndesisOperatorUrl() : TestConfiguration.syndesisTemplateUrl();
+    }
+}
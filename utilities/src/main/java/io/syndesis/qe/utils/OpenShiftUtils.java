@@ -5,6 +5,9 @@ import static org.assertj.core.api.Java6Assertions.assertThat;
 
 import org.apache.commons.io.IOUtils;
 
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
 import java.util.Optional;
 
 import cz.xtf.openshift.OpenShiftBinaryClient;
@@ -12,6 +15,7 @@ import cz.xtf.openshift.OpenShiftUtil;
 import io.fabric8.kubernetes.api.model.DoneablePod;
 import io.fabric8.kubernetes.api.model.Pod;
 import io.fabric8.kubernetes.client.LocalPortForward;
+import io.fabric8.kubernetes.client.PortForward;
 import io.fabric8.kubernetes.client.dsl.PodResource;
 import io.fabric8.openshift.api.model.Route;
 import io.fabric8.openshift.api.model.RouteBuilder;
@@ -62,6 +66,24 @@ public final class OpenShiftUtils {
         }
     }
 
+    /**
+     * Drops the client, the next call creates a new one for the currently configured namespace.
+     */
+    public static synchronized void reset() {
+        xtfUtils = null;
+    }
+
+    /**
+     * Creates the project if it doesn't exist.
+     */
+    public static void ensureProject(String namespace) {
+        if (xtf().getProject(namespace) == null) {
+            log.info("Creating namespace {}", namespace);
+            xtf().createProjectRequest(namespace);
+            TestUtils.sleepIgnoreInterrupt(10 * 1000L);
+        }
+    }
+
     public static NamespacedOpenShiftClient client() {
         return getInstance().client();
     }
@@ -89,6 +111,13 @@ public final class OpenShiftUtils {
         return getPodResource(pod).portForward(remotePort, localPort);
     }
 
+    /**
+     * Forwards one connection to the pod port, the data is read from in and the response is written to out.
+     */
+    public static PortForward portForward(Pod pod, int remotePort, ReadableByteChannel in, WritableByteChannel out) {
+        return getPodResource(pod).portForward(remotePort, in, out);
+    }
+
     private static PodResource<Pod, DoneablePod> getPodResource(Pod pod) {
         if (pod.getMetadata().getNamespace() != null) {
             return client().pods().inNamespace(pod.getMetadata().getNamespace()).withName(pod.getMetadata().getName());
@@ -98,7 +127,14 @@ public final class OpenShiftUtils {
     }
 
     public static Optional<Pod> getPodByPartialName(String partialName) {
-        return OpenShiftUtils.getInstance().getPods().stream()
+        return getPodByPartialName(OpenShiftUtils.getInstance().getPods(), partialName);
+    }
+
+    /**
+     * Same as {@link #getPodByPartialName(String)}, but searches the given pods, e.g. the ones from the watch cache.
+     */
+    public static Optional<Pod> getPodByPartialName(List<Pod> pods, String partialName) {
+        return pods.stream()
                 .filter(p -> p.getMetadata().getName().contains(partialName))
                 .filter(p -> !p.getMetadata().getName().contains("deploy"))
                 .filter(p -> !p.getMetadata().getName().contains("build"))
@@ -112,7 +148,17 @@ public final class OpenShiftUtils {
     }
 
     public static String getIntegrationLogs(String integrationName) {
-        return getPodLogs(integrationName.replaceAll("[\\s_]", "-").toLowerCase());
+        return getPodLogs(getIntegrationPodPartialName(integrationName));
+    }
+
+    /**
+     * Converts the integration name to the partial name of its pod.
+     *
+     * @param integrationName integration name
+     * @return partial pod name
+     */
+    public static String getIntegrationPodPartialName(String integrationName) {
+        return integrationName.replaceAll("[\\s_]", "-").toLowerCase();
     }
 
     public static String getPodLogs(String podPartialName) {
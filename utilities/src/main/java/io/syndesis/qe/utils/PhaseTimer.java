@@ -0,0 +1,95 @@
+package io.syndesis.qe.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Measures the phases of a longer operation, e.g. the deployment of Syndesis.
+ * <p>
+ * The phases may run concurrently and a phase may be recorded more times (e.g. once per created resource), so for each phase the
+ * number of runs, the summed and the max duration and the span between the first start and the last end (relative to the creation of
+ * the timer) are kept. The span shows how the phases overlap.
+ * <p>
+ * Usage:
+ * <pre>
+ * PhaseTimer timer = new PhaseTimer("Syndesis deployment");
+ * timer.time("process template", () -> processTemplate());
+ * log.info(timer.summary());
+ * </pre>
+ */
+@Slf4j
+public class PhaseTimer {
+    private final String name;
+    private final long created = System.nanoTime();
+    private final Map<String, Phase> phases = new LinkedHashMap<>();
+
+    public PhaseTimer(String name) {
+        this.name = name;
+    }
+
+    public void time(String phase, Runnable action) {
+        time(phase, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public <T> T time(String phase, Supplier<T> action) {
+        final long start = System.nanoTime();
+        try {
+            return action.get();
+        } finally {
+            record(phase, start, System.nanoTime());
+        }
+    }
+
+    /**
+     * Records one run of the phase.
+     *
+     * @param start start in {@link System#nanoTime()}
+     * @param end end in {@link System#nanoTime()}
+     */
+    public synchronized void record(String phase, long start, long end) {
+        phases.computeIfAbsent(phase, p -> new Phase()).add(start - created, end - created);
+    }
+
+    /**
+     * @return summed duration of the phase in ms, 0 if it was not recorded
+     */
+    public synchronized long getMillis(String phase) {
+        final Phase p = phases.get(phase);
+        return p == null ? 0 : TimeUnit.NANOSECONDS.toMillis(p.total);
+    }
+
+    public synchronized String summary() {
+        final StringBuilder sb = new StringBuilder(name).append(" took ")
+            .append(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - created)).append(" s");
+        phases.forEach((phase, p) -> sb.append(String.format("%n  %-40s %4d x, total %7d ms, max %7d ms, span %6.1f s - %6.1f s", phase,
+            p.count, TimeUnit.NANOSECONDS.toMillis(p.total), TimeUnit.NANOSECONDS.toMillis(p.max), p.firstStart / 1e9, p.lastEnd / 1e9)));
+        return sb.toString();
+    }
+
+    public void logSummary() {
+        log.info(summary());
+    }
+
+    private static class Phase {
+        private int count;
+        private long total;
+        private long max;
+        private long firstStart = Long.MAX_VALUE;
+        private long lastEnd;
+
+        private void add(long start, long end) {
+            count++;
+            total += end - start;
+            max = Math.max(max, end - start);
+            firstStart = Math.min(firstStart, start);
+            lastEnd = Math.max(lastEnd, end);
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package io.syndesis.qe.utils;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import io.fabric8.kubernetes.api.model.ContainerStatus;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.client.PortForward;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Port-forwards to the pods shared by all the utilities.
+ * <p>
+ * Each forward listens on a local port, by default an ephemeral one, and forwards every accepted connection to the pod over its own
+ * port-forward stream. The pod is looked up lazily and looked up again when a connection fails or the periodic health check finds out
+ * that the pod is gone or not ready, so a restarted or redeployed pod is picked up without changing the local port. The forwards are
+ * reference counted, the local port is closed when the last {@link Lease} is closed.
+ * <p>
+ * Usage:
+ * <pre>
+ * try (PortForwardRegistry.Lease lease = PortForwardRegistry.acquire("ftpd", () -> ftpPod(), 2121)) {
+ *     client.connect(lease.getLocalHost(), lease.getLocalPort());
+ * }
+ * </pre>
+ */
+@Slf4j
+public final class PortForwardRegistry {
+    private static final String LOCAL_HOST = "127.0.0.1";
+    private static final long HEALTH_CHECK_INTERVAL_S = 10L;
+
+    private static final Map<String, Forward> FORWARDS = new ConcurrentHashMap<>();
+    private static ScheduledExecutorService healthCheck;
+
+    private PortForwardRegistry() {
+    }
+
+    /**
+     * Acquires a forward to the port of the pod on an ephemeral local port.
+     *
+     * @param name name of the forwarded service, forwards with the same name and port are shared
+     * @param podLookup returns the pod to forward to, called again when the pod is restarted
+     * @param remotePort pod port
+     * @return lease, must be closed
+     */
+    public static Lease acquire(String name, Supplier<Pod> podLookup, int remotePort) {
+        return acquire(name, podLookup, remotePort, 0);
+    }
+
+    /**
+     * Acquires a forward on the given local port, for the protocols that announce the port to the client, e.g. the FTP passive ports.
+     *
+     * @param localPort local port, 0 means an ephemeral port
+     */
+    public static synchronized Lease acquire(String name, Supplier<Pod> podLookup, int remotePort, int localPort) {
+        final String key = name + ":" + remotePort + (localPort == 0 ? "" : ":" + localPort);
+        Forward forward = FORWARDS.get(key);
+        if (forward == null || forward.isClosed()) {
+            try {
+                forward = new Forward(key, podLookup, remotePort, localPort);
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to listen on local port for " + key, e);
+            }
+            FORWARDS.put(key, forward);
+            startHealthCheck();
+            log.debug("Forwarding {} to local port {}", key, forward.getLocalPort());
+        }
+        forward.refs++;
+        return new Lease(forward);
+    }
+
+    /**
+     * Logs the traffic and the latency of all forwards.
+     */
+    public static void logMetrics() {
+        FORWARDS.values().forEach(f -> log.info("Port-forward {} -> {}: {} leases, {} connections ({} failed), {} pod lookups, "
+                + "{} bytes sent, {} bytes received, time to first byte avg {} ms, max {} ms", f.key, f.getLocalPort(), f.refs,
+            f.connections.get(), f.failures.get(), f.podLookups.get(), f.bytesSent.get(), f.bytesReceived.get(),
+            f.firstBytes.get() == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(f.firstByteNanos.get() / f.firstBytes.get()),
+            TimeUnit.NANOSECONDS.toMillis(f.maxFirstByteNanos.get())));
+    }
+
+    /**
+     * Closes all forwards regardless of the leases.
+     */
+    public static synchronized void closeAll() {
+        FORWARDS.values().forEach(Forward::close);
+        FORWARDS.clear();
+        if (healthCheck != null) {
+            healthCheck.shutdownNow();
+            healthCheck = null;
+        }
+    }
+
+    private static synchronized void release(Forward forward) {
+        if (--forward.refs <= 0) {
+            log.debug("Closing port-forward {} on local port {}", forward.key, forward.getLocalPort());
+            forward.close();
+            FORWARDS.remove(forward.key, forward);
+        }
+    }
+
+    private static void startHealthCheck() {
+        if (healthCheck == null) {
+            healthCheck = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "port-forward-health");
+                t.setDaemon(true);
+                return t;
+            });
+            healthCheck.scheduleWithFixedDelay(() -> FORWARDS.values().forEach(Forward::checkHealth), HEALTH_CHECK_INTERVAL_S,
+                HEALTH_CHECK_INTERVAL_S, TimeUnit.SECONDS);
+        }
+    }
+
+    private static boolean isReady(Pod pod) {
+        if (pod == null || pod.getStatus() == null || !"Running".equals(pod.getStatus().getPhase())) {
+            return false;
+        }
+        return pod.getStatus().getContainerStatuses() != null
+            && pod.getStatus().getContainerStatuses().stream().map(ContainerStatus::getReady).allMatch(Boolean.TRUE::equals);
+    }
+
+    /**
+     * Reference to a shared forward.
+     */
+    public static final class Lease implements AutoCloseable {
+        private final Forward forward;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Lease(Forward forward) {
+            this.forward = forward;
+        }
+
+        public String getLocalHost() {
+            return LOCAL_HOST;
+        }
+
+        public int getLocalPort() {
+            return forward.getLocalPort();
+        }
+
+        /**
+         * @return true until the lease or the forward is closed, the forward stays alive when the pod is restarted
+         */
+        public boolean isAlive() {
+            return !closed.get() && !forward.isClosed();
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                release(forward);
+            }
+        }
+    }
+
+    private static final class Forward {
+        private final String key;
+        private final Supplier<Pod> podLookup;
+        private final int remotePort;
+        private final ServerSocket server;
+        private final Set<PortForward> active = ConcurrentHashMap.newKeySet();
+        // guarded by the registry
+        private int refs;
+        private volatile Pod pod;
+
+        private final AtomicLong connections = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong podLookups = new AtomicLong();
+        private final AtomicLong bytesSent = new AtomicLong();
+        private final AtomicLong bytesReceived = new AtomicLong();
+        private final AtomicLong firstBytes = new AtomicLong();
+        private final AtomicLong firstByteNanos = new AtomicLong();
+        private final AtomicLong maxFirstByteNanos = new AtomicLong();
+
+        private Forward(String key, Supplier<Pod> podLookup, int remotePort, int localPort) throws IOException {
+            this.key = key;
+            this.podLookup = podLookup;
+            this.remotePort = remotePort;
+            server = new ServerSocket();
+            server.setReuseAddress(true);
+            server.bind(new InetSocketAddress(InetAddress.getByName(LOCAL_HOST), localPort));
+            final Thread acceptor = new Thread(this::accept, "port-forward-" + key);
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        private int getLocalPort() {
+            return server.getLocalPort();
+        }
+
+        private boolean isClosed() {
+            return server.isClosed();
+        }
+
+        private void accept() {
+            while (!server.isClosed()) {
+                final Socket socket;
+                try {
+                    socket = server.accept();
+                } catch (IOException e) {
+                    if (!server.isClosed()) {
+                        log.warn("Port-forward {} stopped accepting connections: {}", key, e.getMessage());
+                    }
+                    return;
+                }
+                forward(socket);
+            }
+        }
+
+        private void forward(Socket socket) {
+            final long accepted = System.nanoTime();
+            try {
+                socket.setTcpNoDelay(true);
+                final ReadableByteChannel in = new CountingReadableChannel(Channels.newChannel(socket.getInputStream()), bytesSent);
+                final WritableByteChannel out = new CountingWritableChannel(Channels.newChannel(socket.getOutputStream()), bytesReceived,
+                    () -> recordFirstByte(System.nanoTime() - accepted));
+                active.add(OpenShiftUtils.portForward(pod(), remotePort, in, out));
+                connections.incrementAndGet();
+            } catch (IOException | RuntimeException e) {
+                failures.incrementAndGet();
+                log.warn("Unable to forward connection to {}: {}", key, e.getMessage());
+                // the pod may have been replaced
+                pod = null;
+                try {
+                    socket.close();
+                } catch (IOException ex) {
+                    log.debug("Unable to close forwarded socket: {}", ex.getMessage());
+                }
+            }
+        }
+
+        private Pod pod() {
+            Pod p = pod;
+            if (p == null) {
+                synchronized (this) {
+                    p = pod;
+                    if (p == null) {
+                        p = podLookup.get();
+                        podLookups.incrementAndGet();
+                        log.debug("Port-forward {} uses pod {}", key, p.getMetadata().getName());
+                        pod = p;
+                    }
+                }
+            }
+            return p;
+        }
+
+        /**
+         * Drops the finished streams and forgets the pod when it is not ready anymore, the next connection looks it up again.
+         */
+        private void checkHealth() {
+            try {
+                active.removeIf(pf -> {
+                    if (pf.isAlive()) {
+                        return false;
+                    }
+                    if (pf.errorOccurred()) {
+                        failures.incrementAndGet();
+                        pod = null;
+                    }
+                    return true;
+                });
+                final Pod p = pod;
+                if (p != null && !isReady(OpenShiftUtils.client().pods().withName(p.getMetadata().getName()).get())) {
+                    log.info("Pod {} of port-forward {} is not ready, it will be looked up again", p.getMetadata().getName(), key);
+                    pod = null;
+                }
+            } catch (RuntimeException e) {
+                log.debug("Health check of port-forward {} failed: {}", key, e.getMessage());
+            }
+        }
+
+        private void recordFirstByte(long nanos) {
+            firstBytes.incrementAndGet();
+            firstByteNanos.addAndGet(nanos);
+            maxFirstByteNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        private void close() {
+            try {
+                server.close();
+            } catch (IOException e) {
+                log.debug("Unable to close port-forward {}: {}", key, e.getMessage());
+            }
+            active.forEach(pf -> {
+                try {
+                    pf.close();
+                } catch (IOException e) {
+                    log.debug("Unable to close port-forward stream of {}: {}", key, e.getMessage());
+                }
+            });
+            active.clear();
+        }
+    }
+
+    private static final class CountingReadableChannel implements ReadableByteChannel {
+        private final ReadableByteChannel delegate;
+        private final AtomicLong counter;
+
+        private CountingReadableChannel(ReadableByteChannel delegate, AtomicLong counter) {
+            this.delegate = delegate;
+            this.counter = counter;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            final int read = delegate.read(dst);
+            if (read > 0) {
+                counter.addAndGet(read);
+            }
+            return read;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return delegate.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+
+    private static final class CountingWritableChannel implements WritableByteChannel {
+        private final WritableByteChannel delegate;
+        private final AtomicLong counter;
+        private final Runnable onFirstByte;
+        private boolean first = true;
+
+        private CountingWritableChannel(WritableByteChannel delegate, AtomicLong counter, Runnable onFirstByte) {
+            this.delegate = delegate;
+            this.counter = counter;
+            this.onFirstByte = onFirstByte;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            final int written = delegate.write(src);
+            if (written > 0) {
+                counter.addAndGet(written);
+                if (first) {
+                    first = false;
+                    onFirstByte.run();
+                }
+            }
+            return written;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return delegate.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
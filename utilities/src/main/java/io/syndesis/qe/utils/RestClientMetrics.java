@@ -0,0 +1,84 @@
+package io.syndesis.qe.utils;
+
+import org.apache.http.pool.PoolStats;
+
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Request latency and connection pool metrics of the shared REST client.
+ * <p>
+ * Registered as a filter on the shared client, measures the time from sending the request to receiving the response headers.
+ * Pool statistics are read from the connection manager on demand.
+ */
+@Slf4j
+public final class RestClientMetrics implements ClientRequestFilter, ClientResponseFilter {
+    private static final String START_PROPERTY = RestClientMetrics.class.getName() + ".start";
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    RestClientMetrics() {
+    }
+
+    @Override
+    public void filter(ClientRequestContext requestContext) {
+        requestContext.setProperty(START_PROPERTY, System.nanoTime());
+    }
+
+    @Override
+    public void filter(ClientRequestContext requestContext, ClientResponseContext responseContext) {
+        final Object start = requestContext.getProperty(START_PROPERTY);
+        if (!(start instanceof Long)) {
+            return;
+        }
+        final long elapsed = System.nanoTime() - (Long) start;
+        requests.increment();
+        totalNanos.add(elapsed);
+        maxNanos.accumulateAndGet(elapsed, Math::max);
+        if (responseContext.getStatus() > 299) {
+            errors.increment();
+        }
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getAverageLatencyMillis() {
+        final long count = requests.sum();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalNanos.sum() / count);
+    }
+
+    public long getMaxLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxNanos.get());
+    }
+
+    /**
+     * Logs the request metrics together with the given connection pool statistics.
+     *
+     * @param pool pool statistics, may be null if the pool was not created yet
+     */
+    public void log(PoolStats pool) {
+        log.info("REST client: {} requests ({} errors), avg latency {} ms, max latency {} ms",
+            getRequests(), getErrors(), getAverageLatencyMillis(), getMaxLatencyMillis());
+        if (pool != null) {
+            log.info("REST connection pool: {} leased, {} available, {} pending, max {}",
+                pool.getLeased(), pool.getAvailable(), pool.getPending(), pool.getMax());
+        }
+    }
+}
@@ -1,11 +1,24 @@
 package io.syndesis.qe.utils;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.http.HttpClientConnection;
 import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.NoopHostnameVerifier;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.conn.ssl.TrustStrategy;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
 import org.apache.http.ssl.SSLContextBuilder;
 
 import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
@@ -32,9 +45,11 @@ import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.X509Certificate;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import cz.xtf.http.HttpUtil;
-import io.fabric8.kubernetes.client.LocalPortForward;
+import io.fabric8.kubernetes.api.model.Pod;
 import io.fabric8.openshift.api.model.Route;
 import io.syndesis.qe.Component;
 import io.syndesis.qe.TestConfiguration;
@@ -43,21 +58,40 @@ import lombok.extern.slf4j.Slf4j;
 
 /**
  * Utility class for Rest client (RestEasy).
+ * <p>
+ * The clients returned by {@link #getClient()} and {@link #getWrappedClient()} are shared by the whole test suite and must not be closed.
+ * All clients created here use one pool of keep-alive connections, the pool size is configured by
+ * {@link TestConfiguration#SYNDESIS_REST_MAX_CONNECTIONS} and {@link TestConfiguration#SYNDESIS_REST_MAX_CONNECTIONS_PER_ROUTE}.
+ * A {@link javax.ws.rs.core.Response} keeps its pooled connection until it is closed or its entity is read, when no connection
+ * is returned to the pool for {@link TestConfiguration#SYNDESIS_REST_CONNECTION_REQUEST_TIMEOUT} seconds the request fails.
  *
  * @author jknetl
  */
 @Slf4j
 public final class RestUtils {
 
-    private static LocalPortForward localPortForward = null;
+    private static PortForwardRegistry.Lease portForward = null;
     private static Optional<String> restUrl = Optional.empty();
 
+    private static final RestClientMetrics METRICS = new RestClientMetrics();
+    private static PoolingHttpClientConnectionManager connectionManager;
+    private static HttpClient httpClient;
+    private static Client client;
+    private static Client wrappedClient;
+
     private RestUtils() {
     }
 
-    public static Client getClient() throws RestClientException {
-        final ResteasyJackson2Provider jackson2Provider = RestUtils.createJackson2Provider(Optional.empty(), Optional.empty());
-        return getClient(jackson2Provider);
+    /**
+     * Returns the shared client.
+     *
+     * @return client shared by all the endpoints
+     */
+    public static synchronized Client getClient() throws RestClientException {
+        if (client == null) {
+            client = getClient(RestUtils.createJackson2Provider(Optional.empty(), Optional.empty()));
+        }
+        return client;
     }
 
     public static Client getInsecureClient() throws RestClientException {
@@ -66,14 +100,28 @@ public final class RestUtils {
         return client;
     }
 
-    public static Client getWrappedClient() throws RestClientException {
-        final ResteasyJackson2Provider jackson2Provider = RestUtils.createJackson2Provider(Optional.of(SerializationFeature.WRAP_ROOT_VALUE),
-                Optional.of(DeserializationFeature.UNWRAP_ROOT_VALUE));
-        return getClient(jackson2Provider);
+    /**
+     * Returns the shared client that wraps and unwraps the root value of the json entities.
+     *
+     * @return shared client
+     */
+    public static synchronized Client getWrappedClient() throws RestClientException {
+        if (wrappedClient == null) {
+            wrappedClient = getClient(RestUtils.createJackson2Provider(Optional.of(SerializationFeature.WRAP_ROOT_VALUE),
+                Optional.of(DeserializationFeature.UNWRAP_ROOT_VALUE)));
+        }
+        return wrappedClient;
     }
 
+    /**
+     * Creates a new client with a custom jackson provider. The client uses the shared connection pool.
+     *
+     * @param jackson2Provider jackson provider
+     * @return new client
+     */
     public static Client getClient(ResteasyJackson2Provider jackson2Provider) throws RestClientException {
-        final ApacheHttpClient4Engine engine = new ApacheHttpClient4Engine(RestUtils.createAllTrustingClient());
+        // the engine doesn't close the http client that was passed to it, so closing the client keeps the pool alive
+        final ApacheHttpClient4Engine engine = new ApacheHttpClient4Engine(RestUtils.getHttpClient());
 
         final Client client = new ResteasyClientBuilder()
                 .providerFactory(new ResteasyProviderFactory()) // this is needed otherwise default jackson2provider is used, which causes problems with JDK8 Optional
@@ -81,6 +129,7 @@ public final class RestUtils {
                 .register(new MultipartFormDataWriter()) // needed to POST mutipart form data (necessary for API provider)
                 .register(new StringTextStar()) // needed to serialize text/plain (again for API provider)
                 .register(new ErrorLogger())
+                .register(METRICS)
                 .httpEngine(engine)
                 .build();
 
@@ -101,6 +150,35 @@ public final class RestUtils {
         return jackson2Provider;
     }
 
+    /**
+     * Returns the metrics of the requests done by the clients created here.
+     *
+     * @return metrics
+     */
+    public static RestClientMetrics getMetrics() {
+        return METRICS;
+    }
+
+    /**
+     * Returns the statistics of the shared connection pool.
+     *
+     * @return pool statistics, null if no client was created yet
+     */
+    public static synchronized PoolStats getPoolStats() {
+        return connectionManager == null ? null : connectionManager.getTotalStats();
+    }
+
+    public static void logMetrics() {
+        METRICS.log(getPoolStats());
+    }
+
+    private static synchronized HttpClient getHttpClient() throws RestClientException {
+        if (httpClient == null) {
+            httpClient = createAllTrustingClient();
+        }
+        return httpClient;
+    }
+
     //Required in order to skip certificate validation
     private static HttpClient createAllTrustingClient() throws RestClientException {
         HttpClient httpclient;
@@ -110,11 +188,31 @@ public final class RestUtils {
             final SSLConnectionSocketFactory sslsf = new SSLConnectionSocketFactory(
                     builder.build(),
                     new NoopHostnameVerifier()); // needed to connections to API Provider integrations
+            final Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+                    .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                    .register("https", sslsf)
+                    .build();
+            connectionManager = new FailingPoolingConnectionManager(registry);
+            connectionManager.setMaxTotal(TestConfiguration.restMaxConnections());
+            connectionManager.setDefaultMaxPerRoute(TestConfiguration.restMaxConnectionsPerRoute());
+            // port-forwards and routes may be recreated, so check the connections that were idle for a while before reusing them
+            connectionManager.setValidateAfterInactivity(1000);
+
+            final long keepAlive = TimeUnit.SECONDS.toMillis(TestConfiguration.restKeepAlive());
+            final ConnectionKeepAliveStrategy keepAliveStrategy = (response, context) -> {
+                final long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                return duration > 0 ? duration : keepAlive;
+            };
+            final RequestConfig requestConfig = RequestConfig.custom()
+                    .setConnectionRequestTimeout((int) TimeUnit.SECONDS.toMillis(TestConfiguration.restConnectionRequestTimeout()))
+                    .build();
             httpclient = HttpClients
                     .custom()
-                    .setSSLSocketFactory(sslsf)
-                    .setMaxConnTotal(1000)
-                    .setMaxConnPerRoute(1000)
+                    .setConnectionManager(connectionManager)
+                    .setDefaultRequestConfig(requestConfig)
+                    .setKeepAliveStrategy(keepAliveStrategy)
+                    .evictExpiredConnections()
+                    .evictIdleConnections(keepAlive, TimeUnit.MILLISECONDS)
                     .build();
         } catch (NoSuchAlgorithmException | KeyStoreException | KeyManagementException e) {
             throw new RestClientException("Cannot create all SSL certificates trusting client", e);
@@ -149,25 +247,69 @@ public final class RestUtils {
     }
 
     public static void setupLocalPortForward() {
-        if (localPortForward == null || !localPortForward.isAlive()) {
+        if (portForward == null || !portForward.isAlive()) {
             log.debug("creating local port forward for pod syndesis-server");
-            localPortForward = TestUtils.createLocalPortForward(Component.SERVER.getName(), 8080, 8080);
-            try {
-                restUrl = Optional.of(String.format("http://%s:%s", localPortForward.getLocalAddress().getLoopbackAddress().getHostName(), localPortForward.getLocalPort()));
-            } catch (IllegalStateException ex) {
-                restUrl = Optional.of(String.format("http://%s:%s", "127.0.0.1", 8080));
-            }
+            portForward = PortForwardRegistry.acquire(Component.SERVER.getName(), RestUtils::serverPod, 8080);
+            restUrl = Optional.of(String.format("http://%s:%s", portForward.getLocalHost(), portForward.getLocalPort()));
             log.debug("rest endpoint URL: " + restUrl.get());
         }
     }
 
+    private static Pod serverPod() {
+        try {
+            return OpenShiftUtils.getInstance().getAnyPod("syndesis.io/component", Component.SERVER.getName());
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException(ex.getMessage() + ". Probably Syndesis is not in the namespace.");
+        }
+    }
+
     /**
      * Resets the URL and port-forward.
      */
     public static void reset() {
         restUrl = Optional.empty();
-        TestUtils.terminateLocalPortForward(localPortForward);
-        localPortForward = null;
+        if (portForward != null) {
+            portForward.close();
+            portForward = null;
+        }
+        synchronized (RestUtils.class) {
+            if (connectionManager != null) {
+                // the pooled connections point to the old port-forward
+                connectionManager.closeIdleConnections(0, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Connection manager that explains why no connection was available when the wait for a pooled connection times out.
+     */
+    private static class FailingPoolingConnectionManager extends PoolingHttpClientConnectionManager {
+        FailingPoolingConnectionManager(Registry<ConnectionSocketFactory> registry) {
+            super(registry);
+        }
+
+        @Override
+        public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+            final ConnectionRequest request = super.requestConnection(route, state);
+            return new ConnectionRequest() {
+                @Override
+                public HttpClientConnection get(long timeout, TimeUnit tunit)
+                        throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                    try {
+                        return request.get(timeout, tunit);
+                    } catch (ConnectionPoolTimeoutException e) {
+                        throw new ConnectionPoolTimeoutException(String.format("No pooled REST connection to %s was released in %d ms (%s)."
+                                + " Some javax.ws.rs.core.Response is probably never closed", route, tunit.toMillis(timeout),
+                            getStats(route)));
+                    }
+                }
+
+                @Override
+                public boolean cancel() {
+                    return request.cancel();
+                }
+            };
+        }
     }
 
     /**
@@ -1,40 +1,55 @@
 package io.syndesis.qe.utils;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
 import io.fabric8.kubernetes.api.model.Pod;
-import io.fabric8.kubernetes.client.LocalPortForward;
 import io.syndesis.qe.accounts.Account;
 import io.syndesis.qe.accounts.AccountsDirectory;
 import lombok.extern.slf4j.Slf4j;
 import org.assertj.core.api.Assertions;
 
+import javax.sql.DataSource;
+
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.assertj.core.api.Assertions.fail;
 
 /**
+ * Keeps a small connection pool for each sample database type.
+ * <p>
+ * The pools are created lazily together with the port-forward to the database pod (postgresql, mysql) or from the account
+ * credentials (oracle12). Prepared statements are cached by the JDBC drivers, so the repeated queries of the polling steps are
+ * parsed only once per connection.
+ * <p>
  * Nov 15, 2017 Red Hat
  *
  * @author tplevko@redhat.com, sveres@redhat.com
  */
 @Slf4j
 public class SampleDbConnectionManager {
+    private static final int MAX_POOL_SIZE = 4;
 
-    private static Map<String, DbWrapper> connectionsInfoMap = new HashMap<>();
-
-    public static Connection getConnection(String dbType) {
+    private static final Map<String, DbWrapper> connectionsInfoMap = new ConcurrentHashMap<>();
 
+    /**
+     * Returns the pooled data source for the given db type.
+     *
+     * @param dbType postgresql, mysql or oracle12
+     * @return data source
+     */
+    public static synchronized DataSource getDataSource(String dbType) {
         switch (dbType) {
             case "postgresql":
-                SampleDbConnectionManager.handlePortForwardDatabases(dbType, 5432, 5432, "syndesis-db", "postgresql");
+                SampleDbConnectionManager.handlePortForwardDatabases(dbType, 5432, "syndesis-db", "postgresql");
                 break;
             case "mysql":
-                SampleDbConnectionManager.handlePortForwardDatabases(dbType, 3306, 3306, "mysql", "mysql");
+                SampleDbConnectionManager.handlePortForwardDatabases(dbType, 3306, "mysql", "mysql");
                 break;
             case "oracle12":
                 SampleDbConnectionManager.handleExternalDatabases(dbType);
@@ -42,22 +57,22 @@ public class SampleDbConnectionManager {
         }
 
         Assertions.assertThat(connectionsInfoMap).containsKey(dbType);
-        Assertions.assertThat(connectionsInfoMap.get(dbType).getDbConnection()).isNotNull();
-        return connectionsInfoMap.get(dbType).getDbConnection();
+        Assertions.assertThat(connectionsInfoMap.get(dbType).getDataSource()).isNotNull();
+        return connectionsInfoMap.get(dbType).getDataSource();
     }
 
-    //    AUXILIARIES:
-    private static void handleExternalDatabases(String dbType) {
-        DbWrapper wrap = SampleDbConnectionManager.getWrap(dbType);
+    /**
+     * Borrows a connection from the pool, the connection must be closed to return it to the pool.
+     *
+     * @param dbType postgresql, mysql or oracle12
+     * @return pooled connection
+     */
+    public static Connection getConnection(String dbType) {
         try {
-            if (wrap.getDbConnection() == null || wrap.getDbConnection().isClosed()) {
-                Connection dbConnection = SampleDbConnectionManager.createDbConnection(dbType);
-                wrap.setDbConnection(dbConnection);
-                connectionsInfoMap.put(dbType, wrap);
-                Assertions.assertThat(connectionsInfoMap).isNotEmpty();
-            }
+            return getDataSource(dbType).getConnection();
         } catch (SQLException ex) {
-            fail("Error when handling external database", ex);
+            fail("Unable to get " + dbType + " connection from the pool", ex);
+            return null;
         }
     }
 
@@ -65,109 +80,128 @@ public class SampleDbConnectionManager {
         return getConnection("postgresql");
     }
 
-    public static void closeConnections() {
+    /**
+     * Logs the utilization of all pools.
+     */
+    public static void logPoolMetrics() {
+        connectionsInfoMap.forEach((dbType, wrap) -> {
+            final HikariDataSource dataSource = wrap.getDataSource();
+            final HikariPoolMXBean pool = dataSource == null || dataSource.isClosed() ? null : dataSource.getHikariPoolMXBean();
+            if (pool != null) {
+                log.info("DB pool {}: {} active, {} idle, {} total, {} threads waiting", dbType, pool.getActiveConnections(),
+                    pool.getIdleConnections(), pool.getTotalConnections(), pool.getThreadsAwaitingConnection());
+            }
+        });
+    }
+
+    public static synchronized void closeConnections() {
+        logPoolMetrics();
         connectionsInfoMap.forEach((key, value) -> releaseDbWrapper(value));
         connectionsInfoMap.clear();
     }
 
-    //AUXILIARIES:
+    //    AUXILIARIES:
+    private static void handleExternalDatabases(String dbType) {
+        DbWrapper wrap = SampleDbConnectionManager.getWrap(dbType);
+        if (wrap.getDataSource() == null || wrap.getDataSource().isClosed()) {
+            wrap.setDataSource(SampleDbConnectionManager.createDataSource(dbType));
+            connectionsInfoMap.put(dbType, wrap);
+        }
+    }
 
-    private static void handlePortForwardDatabases(String dbType, int remotePort, int localPort, String podName, String driver) {
-        //        check whether portForward and connection are alive:
+    private static void handlePortForwardDatabases(String dbType, int remotePort, String podName, String driver) {
+        //        check whether portForward and pool are alive:
         DbWrapper wrap = SampleDbConnectionManager.getWrap(dbType);
-        if (wrap.getLocalPortForward() == null || !wrap.getLocalPortForward().isAlive()) {
-            LocalPortForward localPortForward = createLocalPortForward(remotePort, localPort, podName);
-            wrap.setLocalPortForward(localPortForward);
+        if (wrap.getPortForward() == null || !wrap.getPortForward().isAlive()) {
+            // the pooled connections go through the closed port-forward
+            closeDataSource(wrap);
+            wrap.setPortForward(PortForwardRegistry.acquire(podName, () -> findPod(podName), remotePort));
         }
-        try {
-            if (wrap.getDbConnection() == null || wrap.getDbConnection().isClosed()) {
-                Connection dbConnection = SampleDbConnectionManager.createDbConnection(wrap.getLocalPortForward(), localPort, driver);
-                wrap.setDbConnection(dbConnection);
-                connectionsInfoMap.put(driver, wrap);
-                Assertions.assertThat(connectionsInfoMap).containsKey(driver);
-                Assertions.assertThat(connectionsInfoMap).containsValue(wrap);
-            }
-        } catch (SQLException ex) {
-            log.error("ERROR: *{}* ", ex);
+        if (wrap.getDataSource() == null || wrap.getDataSource().isClosed()) {
+            wrap.setDataSource(SampleDbConnectionManager.createDataSource(wrap.getPortForward(), driver));
+            connectionsInfoMap.put(driver, wrap);
         }
     }
 
-    private static Connection createDbConnection(LocalPortForward localPortForward, int localPort, String driver) throws SQLException {
-
-        final Properties props = new Properties();
+    private static HikariDataSource createDataSource(PortForwardRegistry.Lease portForward, String driver) {
+        final HikariConfig config = createPoolConfig(driver);
         if (driver.equalsIgnoreCase("mysql")) {
-            props.setProperty("user", "developer");
-            props.setProperty("password", "developer");
+            config.setUsername("developer");
+            config.setPassword("developer");
         } else {
-            props.setProperty("user", "sampledb");
+            config.setUsername("sampledb");
         }
 
-        String dbUrl;
-        try {
-            String hostName = localPortForward.getLocalAddress().getLoopbackAddress().getHostName();
-            dbUrl = String.format("jdbc:%s://%s:%s/sampledb", driver, hostName, localPort);
-        } catch (IllegalStateException ex) {
-            dbUrl = String.format("jdbc:%s://%s:%s/sampledb", driver, "127.0.0.1", localPort);
-        }
+        String dbUrl = String.format("jdbc:%s://%s:%s/sampledb", driver, portForward.getLocalHost(), portForward.getLocalPort());
         log.debug("DB endpoint URL: " + dbUrl);
-        return DriverManager.getConnection(dbUrl, props);
+        config.setJdbcUrl(dbUrl);
+        return new HikariDataSource(config);
     }
 
-    private static Connection createDbConnection(String dbType) {
-
-        final Properties props = new Properties();
-
+    private static HikariDataSource createDataSource(String dbType) {
         Optional<Account> optAccount = AccountsDirectory.getInstance().getAccount(dbType);
         Assertions.assertThat(optAccount.isPresent()).isTrue();
         Account account = optAccount.get();
 
-        props.setProperty("user", account.getProperty("user"));
-        props.setProperty("password", account.getProperty("password"));
+        final HikariConfig config = createPoolConfig(dbType);
+        config.setUsername(account.getProperty("user"));
+        config.setPassword(account.getProperty("password"));
+        config.setJdbcUrl(account.getProperties().get("url"));
 
-        String dbUrl = account.getProperties().get("url");
+        log.debug("DB endpoint URL: *{}*", config.getJdbcUrl());
+        return new HikariDataSource(config);
+    }
 
-        log.debug("DB endpoint URL: *{}*", dbUrl);
-        try {
-            return DriverManager.getConnection(dbUrl, props);
-        } catch (SQLException e) {
-            fail("Error creating DB connection.", e);
+    private static HikariConfig createPoolConfig(String dbType) {
+        final HikariConfig config = new HikariConfig();
+        config.setPoolName("sample-db-" + dbType);
+        config.setMaximumPoolSize(MAX_POOL_SIZE);
+        config.setMinimumIdle(1);
+        config.setConnectionTimeout(30_000L);
+        // don't fail the pool creation when the database is not up yet, the connections are retried on demand
+        config.setInitializationFailTimeout(-1);
+        switch (dbType) {
+            case "postgresql":
+                config.addDataSourceProperty("prepareThreshold", "1");
+                config.addDataSourceProperty("preparedStatementCacheQueries", "256");
+                break;
+            case "mysql":
+                config.addDataSourceProperty("cachePrepStmts", "true");
+                config.addDataSourceProperty("prepStmtCacheSize", "256");
+                config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+                config.addDataSourceProperty("useServerPrepStmts", "true");
+                break;
+            case "oracle12":
+                config.addDataSourceProperty("oracle.jdbc.implicitStatementCacheSize", "256");
+                break;
         }
-        return null;
+        return config;
     }
 
-    private static LocalPortForward createLocalPortForward(int remotePort, int localPort, String podName) {
-        LocalPortForward localPortForward;
-
+    private static Pod findPod(String podName) {
         Optional<Pod> dbPodOpt = OpenShiftUtils.getInstance().getPods().stream().filter(p -> p.getMetadata().getName().contains(podName)).findFirst();
-
-        localPortForward = OpenShiftUtils.portForward(dbPodOpt.get(), remotePort, localPort);
-        return localPortForward;
+        return dbPodOpt.orElseThrow(() -> new IllegalStateException("Unable to find " + podName + " pod"));
     }
 
     private static void releaseDbWrapper(DbWrapper wrap) {
-
-        try {
-            if (wrap.getDbConnection() == null) {
-                log.debug("There was no connection to database created, nothing to close.");
-                return;
-            }
-            if (!wrap.getDbConnection().isClosed()) {
-                wrap.getDbConnection().close();
-            }
-        } catch (SQLException ex) {
-            log.error("Error: " + ex);
+        if (wrap.getDataSource() == null) {
+            log.debug("There was no connection to database created, nothing to close.");
         }
+        closeDataSource(wrap);
+        if (wrap.getPortForward() != null) {
+            wrap.getPortForward().close();
+            wrap.setPortForward(null);
+        }
+    }
 
-        TestUtils.terminateLocalPortForward(wrap.getLocalPortForward());
+    private static void closeDataSource(DbWrapper wrap) {
+        if (wrap.getDataSource() != null && !wrap.getDataSource().isClosed()) {
+            wrap.getDataSource().close();
+        }
+        wrap.setDataSource(null);
     }
 
     private static DbWrapper getWrap(String dbType) {
-        DbWrapper wrap;
-        if (connectionsInfoMap.containsKey(dbType)) {
-            wrap = connectionsInfoMap.get(dbType);
-        } else {
-            wrap = new DbWrapper(dbType);
-        }
-        return wrap;
+        return connectionsInfoMap.getOrDefault(dbType, new DbWrapper(dbType));
     }
 }
@@ -2,7 +2,6 @@ package io.syndesis.qe.utils;
 
 import org.apache.commons.io.IOUtils;
 
-import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -11,9 +10,7 @@ import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 import cz.xtf.openshift.OpenShiftBinaryClient;
-import io.fabric8.kubernetes.api.model.Pod;
 import io.fabric8.kubernetes.client.KubernetesClientException;
-import io.fabric8.kubernetes.client.LocalPortForward;
 import io.fabric8.openshift.api.model.DeploymentConfig;
 import io.syndesis.common.model.action.Action;
 import io.syndesis.common.model.action.ConnectorAction;
@@ -25,6 +22,7 @@ import io.syndesis.qe.accounts.AccountsDirectory;
 import io.syndesis.qe.endpoints.IntegrationOverviewEndpoint;
 import io.syndesis.qe.model.IntegrationOverview;
 import io.syndesis.qe.utils.dballoc.DBAllocation;
+import io.syndesis.qe.wait.Poller;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -33,6 +31,8 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public final class TestUtils {
 
+    private static final long DEFAULT_INITIAL_POLL_INTERVAL_MS = 500L;
+
     private TestUtils() {
     }
 
@@ -64,31 +64,37 @@ public final class TestUtils {
 
     /**
      * Waits until a predicate is true or timeout exceeds.
+     * <p>
+     * The first test is done immediately, the interval between the following tests grows up to the given sleep time.
      *
      * @param predicate predicate
      * @param supplier  supplier of values to test by predicate
      * @param unit      TimeUnit for timeout
      * @param timeout   how long to wait for event
      * @param sleepUnit TimeUnit of sleep interval between tests
-     * @param sleepTime how long to wait between individual tests (in miliseconds)
+     * @param sleepTime max time to wait between individual tests
      * @param <T>       Type of tested value by a predicate
      * @return True if predicate become true within a timeout, otherwise returns false.
      */
     public static <T> boolean waitForEvent(Predicate<T> predicate, Supplier<T> supplier, TimeUnit unit, long timeout, TimeUnit sleepUnit, long sleepTime) {
-        final long start = System.currentTimeMillis();
-        long elapsed = 0;
-        while (!predicate.test(supplier.get()) && unit.toMillis(timeout) >= elapsed) {
-            try {
-                sleepUnit.sleep(sleepTime);
-            } catch (InterruptedException e) {
-                log.debug("Interupted while sleeping", e);
-            } finally {
-                elapsed = System.currentTimeMillis() - start;
-                System.gc();
-            }
-        }
+        return poller("event", unit, timeout, sleepUnit, sleepTime).poll(supplier, predicate).isSuccess();
+    }
 
-        return predicate.test(supplier.get());
+    /**
+     * Creates a poller with backoff that starts with a short interval and grows up to the given max interval.
+     *
+     * @param name name of the wait used in log messages
+     * @param unit TimeUnit for timeout
+     * @param timeout how long to wait
+     * @param maxIntervalUnit TimeUnit of max interval
+     * @param maxInterval max interval between probes
+     * @return poller instance
+     */
+    public static Poller poller(String name, TimeUnit unit, long timeout, TimeUnit maxIntervalUnit, long maxInterval) {
+        return new Poller(name)
+                .timeout(unit, timeout)
+                .interval(TimeUnit.MILLISECONDS, Math.min(DEFAULT_INITIAL_POLL_INTERVAL_MS, maxIntervalUnit.toMillis(maxInterval)))
+                .maxInterval(maxIntervalUnit, maxInterval);
     }
 
     public static boolean waitForPublishing(IntegrationOverviewEndpoint e, IntegrationOverview i, TimeUnit unit, long timeout) {
@@ -106,54 +112,24 @@ public final class TestUtils {
      * @return True if integration is activated within a timeout. False otherwise.
      */
     public static boolean waitForState(IntegrationOverviewEndpoint e, IntegrationOverview i, IntegrationDeploymentState state, TimeUnit unit, long timeout) {
-        return waitForEvent(
-                //                integration -> integration.getCurrentStatus().orElse(IntegrationDeploymentState.Pending) == state,
-                integration -> integration.getCurrentState() == state,
-                () -> getIntegration(e, i.getId()).orElse(i),
-                unit,
-                timeout,
-                TimeUnit.SECONDS,
-                10
-        );
+        final Poller.Result<IntegrationOverview> result = poller("integration " + i.getName() + " in state " + state, unit, timeout, TimeUnit.SECONDS, 10)
+                .poll(() -> getIntegration(e, i.getId()).orElse(i), integration -> integration.getCurrentState() == state);
+        if (result.isSuccess()) {
+            log.info("Integration {} reached state {} in {} s ({} checks)", i.getName(), state,
+                    TimeUnit.MILLISECONDS.toSeconds(result.getElapsedMillis()), result.getAttempts());
+        }
+        return result.isSuccess();
     }
 
     private static Optional<IntegrationOverview> getIntegration(IntegrationOverviewEndpoint e, String integrationId) {
         return Optional.of(e.getOverview(integrationId));
     }
 
-    public static LocalPortForward createLocalPortForward(String podName, int remotePort, int localPort) {
-        try{
-            final Pod podToForward = OpenShiftUtils.getInstance().getAnyPod("syndesis.io/component", podName);
-            return OpenShiftUtils.portForward(podToForward, remotePort, localPort);
-        }catch (IllegalArgumentException ex){
-            throw new IllegalArgumentException(ex.getMessage() + ". Probably Syndesis is not in the namespace.");
-        }
-    }
-
-    public static LocalPortForward createLocalPortForward(Pod pod, int remotePort, int localPort) {
-        return OpenShiftUtils.portForward(pod, remotePort, localPort);
-    }
-
     public static boolean isDcDeployed(String dcName) {
         DeploymentConfig dc = OpenShiftUtils.client().deploymentConfigs().withName(dcName).get();
         return dc != null && dc.getStatus().getReadyReplicas() != null && dc.getStatus().getReadyReplicas() > 0;
     }
 
-    public static void terminateLocalPortForward(LocalPortForward lpf) {
-        if (lpf == null) {
-            return;
-        }
-        if (lpf.isAlive()) {
-            try {
-                lpf.close();
-            } catch (IOException ex) {
-                log.error("Error: " + ex);
-            }
-        } else {
-            log.info("Local Port Forward already closed.");
-        }
-    }
-
     /**
      * Creates map from objects.
      *
@@ -0,0 +1,271 @@
+package io.syndesis.qe.utils.mqtt;
+
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.IMqttToken;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttCallbackExtended;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.syndesis.qe.accounts.Account;
+import io.syndesis.qe.accounts.AccountsDirectory;
+import io.syndesis.qe.utils.OpenShiftUtils;
+import io.syndesis.qe.utils.PortForwardRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps one connected {@link MqttAsyncClient} to the broker-amq pod for all the steps.
+ * <p>
+ * The client connects lazily through a port-forward and reconnects automatically. Each {@link #subscribe(String)} returns its own
+ * {@link MqttSubscription} collecting the messages of the topic. The session is clean, so the broker forgets the subscriptions when the
+ * connection is lost, the open subscriptions are subscribed again after every reconnect. {@link #publishAll(String, Iterable, int)}
+ * publishes without waiting for each message, only the number of unacknowledged messages is limited.
+ * <p>
+ * Usage:
+ * <pre>
+ * try (MqttSubscription subscription = MqttClientManager.shared().subscribe("out")) {
+ *     MqttClientManager.shared().publish("in", "hello");
+ *     List&lt;String&gt; messages = subscription.awaitMessages(1, TimeUnit.SECONDS, 30);
+ * }
+ * </pre>
+ */
+@Slf4j
+public class MqttClientManager implements AutoCloseable {
+    private static final int PORT = 1883;
+    private static final int QOS = 1;
+    // upper bound of the in-flight window, paho rejects publishing over the max inflight of the connection
+    private static final int MAX_INFLIGHT = 1000;
+    private static final long TIMEOUT_MS = TimeUnit.SECONDS.toMillis(30);
+
+    private static MqttClientManager shared;
+
+    private final Set<MqttSubscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private PortForwardRegistry.Lease portForward;
+    private MqttAsyncClient client;
+
+    /**
+     * @return manager shared by all the steps, closed by {@link #closeAll()}
+     */
+    public static synchronized MqttClientManager shared() {
+        if (shared == null) {
+            shared = new MqttClientManager();
+        }
+        return shared;
+    }
+
+    public static synchronized void closeAll() {
+        if (shared != null) {
+            shared.close();
+            shared = null;
+        }
+    }
+
+    public MqttSubscription subscribe(String topic) {
+        final MqttSubscription subscription = new MqttSubscription(this, topic);
+        try {
+            client().subscribe(topic, QOS, subscription).waitForCompletion(TIMEOUT_MS);
+        } catch (MqttException e) {
+            throw new IllegalStateException("Unable to subscribe to MQTT topic " + topic, e);
+        }
+        subscriptions.add(subscription);
+        log.debug("Subscribed to MQTT topic {}", topic);
+        return subscription;
+    }
+
+    void unsubscribe(MqttSubscription subscription) {
+        subscriptions.remove(subscription);
+        final MqttAsyncClient c = client;
+        if (c == null || !c.isConnected()) {
+            return;
+        }
+        try {
+            c.unsubscribe(subscription.getTopic()).waitForCompletion(TIMEOUT_MS);
+        } catch (MqttException e) {
+            log.debug("Unable to unsubscribe from MQTT topic {}: {}", subscription.getTopic(), e.getMessage());
+        }
+    }
+
+    /**
+     * Publishes the message and waits until it is acknowledged by the broker.
+     */
+    public void publish(String topic, String payload) {
+        try {
+            client().publish(topic, message(payload)).waitForCompletion(TIMEOUT_MS);
+        } catch (MqttException e) {
+            throw new IllegalStateException("Unable to publish MQTT message to " + topic, e);
+        }
+        log.debug("Message published to MQTT topic {}", topic);
+    }
+
+    /**
+     * Publishes the messages with at most window messages waiting for the acknowledgement and waits for the remaining ones at the end.
+     *
+     * @param window max number of unacknowledged messages
+     * @return number of acknowledged messages
+     */
+    public long publishAll(String topic, Iterable<String> payloads, int window) {
+        final int permits = Math.max(1, Math.min(window, MAX_INFLIGHT));
+        final Semaphore inFlight = new Semaphore(permits);
+        final AtomicLong acknowledged = new AtomicLong();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final IMqttActionListener listener = new IMqttActionListener() {
+            @Override
+            public void onSuccess(IMqttToken token) {
+                acknowledged.incrementAndGet();
+                inFlight.release();
+            }
+
+            @Override
+            public void onFailure(IMqttToken token, Throwable exception) {
+                failure.compareAndSet(null, exception);
+                inFlight.release();
+            }
+        };
+
+        try {
+            final MqttAsyncClient c = client();
+            for (String payload : payloads) {
+                if (!inFlight.tryAcquire(TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    throw new IllegalStateException("No MQTT acknowledgement received in " + TIMEOUT_MS + " ms");
+                }
+                c.publish(topic, message(payload), null, listener);
+            }
+            // wait for the rest of the window
+            if (!inFlight.tryAcquire(permits, TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                log.warn("Not all MQTT messages to {} were acknowledged", topic);
+            }
+        } catch (MqttException e) {
+            throw new IllegalStateException("Unable to publish MQTT messages to " + topic, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure.get() != null) {
+            log.warn("Publishing of some MQTT messages to {} failed: {}", topic, failure.get().getMessage());
+        }
+        log.debug("Published {} messages to MQTT topic {}", acknowledged.get(), topic);
+        return acknowledged.get();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (client != null) {
+            try {
+                if (client.isConnected()) {
+                    client.disconnect().waitForCompletion(TIMEOUT_MS);
+                }
+                client.close();
+            } catch (MqttException e) {
+                log.debug("Unable to close MQTT client: {}", e.getMessage());
+            }
+            client = null;
+        }
+        if (portForward != null) {
+            portForward.close();
+            portForward = null;
+        }
+    }
+
+    private synchronized MqttAsyncClient client() throws MqttException {
+        if (portForward == null || !portForward.isAlive()) {
+            portForward = PortForwardRegistry.acquire("broker-amq", () -> OpenShiftUtils.xtf().getAnyPod("app", "broker-amq"), PORT);
+            // the client is bound to the local port of the previous forward
+            if (client != null) {
+                client.close(true);
+                client = null;
+            }
+        }
+        final String brokerUrl = "tcp://" + portForward.getLocalHost() + ":" + portForward.getLocalPort();
+        if (client == null) {
+            client = new MqttAsyncClient(brokerUrl, "syndesis-qe-" + UUID.randomUUID().toString().substring(0, 8), new MemoryPersistence());
+            client.setCallback(new Resubscriber(client));
+        }
+        if (!client.isConnected()) {
+            client.connect(connectOptions()).waitForCompletion(TIMEOUT_MS);
+            log.info("Connected to MQTT broker {}", brokerUrl);
+        }
+        return client;
+    }
+
+    /**
+     * Subscribes the open subscriptions again when the connection is established, they are lost with the clean session of the previous
+     * connection. The subscriptions are not awaited, the callback must not block the client.
+     */
+    private final class Resubscriber implements MqttCallbackExtended {
+        private final MqttAsyncClient owner;
+
+        private Resubscriber(MqttAsyncClient owner) {
+            this.owner = owner;
+        }
+
+        @Override
+        public void connectComplete(boolean reconnect, String serverURI) {
+            for (MqttSubscription subscription : subscriptions) {
+                try {
+                    owner.subscribe(subscription.getTopic(), QOS, null, new IMqttActionListener() {
+                        @Override
+                        public void onSuccess(IMqttToken token) {
+                            log.info("Subscribed again to MQTT topic {} after {}", subscription.getTopic(),
+                                reconnect ? "reconnect" : "new connection");
+                        }
+
+                        @Override
+                        public void onFailure(IMqttToken token, Throwable exception) {
+                            log.error("Unable to subscribe again to MQTT topic {}: {}", subscription.getTopic(), exception.getMessage());
+                        }
+                    }, subscription);
+                } catch (MqttException e) {
+                    log.error("Unable to subscribe again to MQTT topic {}: {}", subscription.getTopic(), e.getMessage());
+                }
+            }
+        }
+
+        @Override
+        public void connectionLost(Throwable cause) {
+            log.warn("Connection to MQTT broker lost, reconnecting: {}", cause.getMessage());
+        }
+
+        @Override
+        public void messageArrived(String topic, MqttMessage message) {
+            // the messages are delivered to the listeners of the subscriptions
+        }
+
+        @Override
+        public void deliveryComplete(IMqttDeliveryToken token) {
+            // the publishers wait for their own tokens
+        }
+    }
+
+    private static MqttConnectOptions connectOptions() {
+        MqttConnectOptions connOpts = new MqttConnectOptions();
+        connOpts.setCleanSession(true);
+        connOpts.setAutomaticReconnect(true);
+        connOpts.setMaxInflight(MAX_INFLIGHT);
+
+        Optional<Account> optional = AccountsDirectory.getInstance().getAccount("QE MQTT");
+        if (optional.isPresent()) {
+            log.info("Setting username and password for QE MQTT client");
+            connOpts.setUserName(optional.get().getProperties().get("userName"));
+            connOpts.setPassword(optional.get().getProperties().get("password").toCharArray());
+        }
+        return connOpts;
+    }
+
+    private static MqttMessage message(String payload) {
+        MqttMessage message = new MqttMessage(payload.getBytes(StandardCharsets.UTF_8));
+        message.setQos(QOS);
+        return message;
+    }
+}
@@ -0,0 +1,109 @@
+package io.syndesis.qe.utils.mqtt;
+
+import org.eclipse.paho.client.mqttv3.IMqttMessageListener;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Collects the messages of one topic subscription of {@link MqttClientManager}.
+ * <p>
+ * The messages are queued by the client callback thread and taken by the test, so each subscription has its own state and more
+ * subscriptions can be asserted in parallel.
+ */
+@Slf4j
+public class MqttSubscription implements IMqttMessageListener, AutoCloseable {
+    @Getter
+    private final String topic;
+    private final MqttClientManager manager;
+    private final BlockingQueue<MqttMessage> messages = new LinkedBlockingQueue<>();
+    private final AtomicLong received = new AtomicLong();
+
+    MqttSubscription(MqttClientManager manager, String topic) {
+        this.manager = manager;
+        this.topic = topic;
+    }
+
+    @Override
+    public void messageArrived(String topic, MqttMessage message) {
+        log.debug("Message {} arrived from topic {}", message.getId(), topic);
+        received.incrementAndGet();
+        messages.add(message);
+    }
+
+    /**
+     * @return number of messages received since the subscription was created, including the ones already taken
+     */
+    public long getReceived() {
+        return received.get();
+    }
+
+    /**
+     * Takes the next message.
+     *
+     * @return payload or null if no message arrived within the timeout
+     */
+    public String poll(TimeUnit unit, long timeout) {
+        try {
+            final MqttMessage message = messages.poll(timeout, unit);
+            return message == null ? null : payload(message);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Takes up to count messages, waits until all of them arrive or the timeout passes.
+     *
+     * @return payloads of the taken messages, fewer than count when the timeout passed
+     */
+    public List<String> awaitMessages(int count, TimeUnit unit, long timeout) {
+        final List<String> result = new ArrayList<>(count);
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        try {
+            while (result.size() < count) {
+                final long remaining = deadline - System.nanoTime();
+                final MqttMessage message = remaining > 0 ? messages.poll(remaining, TimeUnit.NANOSECONDS) : messages.poll();
+                if (message == null) {
+                    break;
+                }
+                result.add(payload(message));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (result.size() < count) {
+            log.warn("Received only {} of {} messages from topic {}", result.size(), count, topic);
+        }
+        return result;
+    }
+
+    /**
+     * Drops the queued messages.
+     */
+    public void clear() {
+        messages.clear();
+    }
+
+    /**
+     * Unsubscribes from the topic.
+     */
+    @Override
+    public void close() {
+        manager.unsubscribe(this);
+    }
+
+    private static String payload(MqttMessage message) {
+        return new String(message.getPayload(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,170 @@
+package io.syndesis.qe.wait;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.openshift.api.model.Build;
+import io.fabric8.openshift.api.model.DeploymentConfig;
+import io.fabric8.openshift.client.NamespacedOpenShiftClient;
+import io.syndesis.qe.utils.OpenShiftUtils;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Shared, watch based cache of pods, builds and deployment configs of one namespace.
+ * <p>
+ * All wait conditions in {@link OpenShiftWaitUtils} read from this cache instead of listing the resources from the API server on every
+ * probe. Every received event increments a generation counter and wakes up the threads blocked in {@link #awaitChange(long, long)}, so
+ * the waiting conditions are re-evaluated as soon as something changes in the namespace.
+ */
+@Slf4j
+public final class OpenShiftResourceCache {
+    private static final Map<String, OpenShiftResourceCache> CACHES = new ConcurrentHashMap<>();
+    private static final long RESYNC_DELAY_MS = 1000L;
+    private static final long MAX_RESYNC_DELAY_MS = 30000L;
+
+    private static final ScheduledExecutorService RESYNC_EXECUTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "openshift-watch-resync");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final String namespace;
+    private final ResourceWatch<Pod> pods;
+    private final ResourceWatch<Build> builds;
+    private final ResourceWatch<DeploymentConfig> deploymentConfigs;
+
+    private final Object monitor = new Object();
+    private long generation = 0;
+    private final Map<ResourceWatch<?>, Long> resyncDelays = new ConcurrentHashMap<>();
+
+    private OpenShiftResourceCache(String namespace) {
+        this.namespace = namespace;
+        final NamespacedOpenShiftClient client = OpenShiftUtils.client();
+        pods = new ResourceWatch<>("pods",
+            () -> client.pods().inNamespace(namespace).list(),
+            (rv, w) -> client.pods().inNamespace(namespace).watch(rv, w),
+            this);
+        builds = new ResourceWatch<>("builds",
+            () -> client.builds().inNamespace(namespace).list(),
+            (rv, w) -> client.builds().inNamespace(namespace).watch(rv, w),
+            this);
+        deploymentConfigs = new ResourceWatch<>("deploymentconfigs",
+            () -> client.deploymentConfigs().inNamespace(namespace).list(),
+            (rv, w) -> client.deploymentConfigs().inNamespace(namespace).watch(rv, w),
+            this);
+        for (ResourceWatch<?> watch : new ResourceWatch<?>[] {pods, builds, deploymentConfigs}) {
+            if (!watch.sync()) {
+                // keep trying in the background, until then the getters list the resources directly
+                scheduleResync(watch);
+            }
+        }
+    }
+
+    /**
+     * Cache for the namespace used by the test suite.
+     *
+     * @return cache instance
+     */
+    public static OpenShiftResourceCache getInstance() {
+        return forNamespace(OpenShiftUtils.client().getNamespace());
+    }
+
+    public static OpenShiftResourceCache forNamespace(String namespace) {
+        return CACHES.computeIfAbsent(namespace, OpenShiftResourceCache::new);
+    }
+
+    /**
+     * Closes all watches. The caches are lazily re-created on the next use.
+     */
+    public static void closeAll() {
+        CACHES.values().forEach(OpenShiftResourceCache::close);
+        CACHES.clear();
+    }
+
+    public List<Pod> getPods() {
+        return pods.items();
+    }
+
+    public List<Build> getBuilds() {
+        return builds.items();
+    }
+
+    public List<DeploymentConfig> getDeploymentConfigs() {
+        return deploymentConfigs.items();
+    }
+
+    /**
+     * Checks if all the resources are watched, if not, the getters list the resources directly.
+     *
+     * @return true/false
+     */
+    public boolean isWatching() {
+        return pods.isSynced() && builds.isSynced() && deploymentConfigs.isSynced();
+    }
+
+    /**
+     * Current generation, to be passed to {@link #awaitChange(long, long)} to detect events that arrived in between.
+     *
+     * @return generation number
+     */
+    public long generation() {
+        synchronized (monitor) {
+            return generation;
+        }
+    }
+
+    /**
+     * Blocks until an event newer than the given generation arrives or the timeout expires.
+     *
+     * @param seenGeneration generation obtained by {@link #generation()} before the condition was evaluated
+     * @param timeoutMs max time to wait in milliseconds
+     * @return true if there was a change, false on timeout
+     * @throws InterruptedException when interrupted
+     */
+    public boolean awaitChange(long seenGeneration, long timeoutMs) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        synchronized (monitor) {
+            long remaining = timeoutMs;
+            while (generation == seenGeneration && remaining > 0) {
+                monitor.wait(remaining);
+                remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            }
+            return generation != seenGeneration;
+        }
+    }
+
+    void signal() {
+        synchronized (monitor) {
+            generation++;
+            monitor.notifyAll();
+        }
+    }
+
+    void scheduleResync(ResourceWatch<?> watch) {
+        final long delay = resyncDelays.merge(watch, RESYNC_DELAY_MS, (old, base) -> Math.min(old * 2, MAX_RESYNC_DELAY_MS));
+        log.debug("Resyncing {} in namespace {} in {} ms", watch, namespace, delay);
+        RESYNC_EXECUTOR.schedule(() -> {
+            if (CACHES.get(namespace) != this) {
+                // the cache was closed in the meantime
+                return;
+            }
+            if (watch.sync()) {
+                resyncDelays.remove(watch);
+            } else {
+                scheduleResync(watch);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void close() {
+        pods.close();
+        builds.close();
+        deploymentConfigs.close();
+        signal();
+    }
+}
@@ -25,11 +25,17 @@ public class OpenShiftWaitUtils {
 
     protected static final OpenShiftUtil openshift = OpenShiftUtils.getInstance();
     public static final long DEFAULT_WAIT_INTERVAL = 1000L; // one second
+    // resource conditions are re-evaluated on events, this is just a safety net in case an event is missed
+    private static final long RESOURCE_CONDITION_INTERVAL = 30000L;
+
+    private static OpenShiftResourceCache cache() {
+        return OpenShiftResourceCache.getInstance();
+    }
 
     public static boolean hasBuildFailed(Predicate<Build> filter) {
         final AtomicBoolean ret = new AtomicBoolean(false);
 
-        openshift.getBuilds().stream().filter(filter).forEach(build -> {
+        cache().getBuilds().stream().filter(filter).forEach(build -> {
             if ("Failed".equals(build.getStatus().getPhase())) {
                 ret.set(true);
             }
@@ -74,27 +80,27 @@ public class OpenShiftWaitUtils {
     }
 
     private static boolean _areExactlyNPodsRunning(Predicate<Pod> podFilter, int n) {
-        return openshift.getPods().stream().filter(podFilter).filter(OpenShiftWaitUtils::isPodRunning).count() == n;
+        return cache().getPods().stream().filter(podFilter).filter(OpenShiftWaitUtils::isPodRunning).count() == n;
     }
 
     private static boolean _areExactlyNPods(Predicate<Pod> podFilter, int n) {
-        return openshift.getPods().stream().filter(podFilter).count() == n;
+        return cache().getPods().stream().filter(podFilter).count() == n;
     }
 
     public static BooleanSupplier areExactlyNPods(String podPartialName, int n) {
-        return () -> _areExactlyNPods(pod -> pod.getMetadata().getName().contains(podPartialName), n);
+        return (ResourceCondition) () -> _areExactlyNPods(pod -> pod.getMetadata().getName().contains(podPartialName), n);
     }
 
     private static boolean _areNPodsReady(Predicate<Pod> podFilter, int n) {
-        return openshift.getPods().stream().filter(podFilter).filter(OpenShiftWaitUtils::isPodReady).count() >= n;
+        return cache().getPods().stream().filter(podFilter).filter(OpenShiftWaitUtils::isPodReady).count() >= n;
     }
 
     private static boolean _areExactlyNPodsReady(Predicate<Pod> podFilter, int n) {
-        return openshift.getPods().stream().filter(podFilter).filter(OpenShiftWaitUtils::isPodReady).count() == n;
+        return cache().getPods().stream().filter(podFilter).filter(OpenShiftWaitUtils::isPodReady).count() == n;
     }
 
     private static boolean hasAnyPodRestarted(Predicate<Pod> podFilter) {
-        return openshift.getPods().stream().filter(podFilter).filter(OpenShiftWaitUtils::hasPodRestarted).count() > 0;
+        return cache().getPods().stream().filter(podFilter).filter(OpenShiftWaitUtils::hasPodRestarted).count() > 0;
     }
 
     public static boolean isAPodReady(Predicate<Pod> podFilter) {
@@ -102,63 +108,64 @@ public class OpenShiftWaitUtils {
     }
 
     public static BooleanSupplier areExactlyNPodsRunning(final String labelName, final String labelValue, int n) {
-        return () -> _areExactlyNPodsRunning(pod -> labelValue.equals(pod.getMetadata().getLabels().get(labelName)), n);
+        return (ResourceCondition) () -> _areExactlyNPodsRunning(pod -> labelValue.equals(pod.getMetadata().getLabels().get(labelName)), n);
     }
 
     public static BooleanSupplier areExactlyNPodsRunning(String appName, int n) {
-        return () -> _areExactlyNPodsRunning(pod -> appName.equals(pod.getMetadata().getLabels().get("name")), n);
+        return (ResourceCondition) () -> _areExactlyNPodsRunning(pod -> appName.equals(pod.getMetadata().getLabels().get("name")), n);
     }
 
     public static BooleanSupplier isAPodReady(String appName) {
-        return () -> isAPodReady(pod -> appName.equals(pod.getMetadata().getLabels().get("name")));
+        return (ResourceCondition) () -> isAPodReady(pod -> appName.equals(pod.getMetadata().getLabels().get("name")));
     }
 
     public static BooleanSupplier isAPodReady(final String labelName, final String labelValue) {
-        return () -> isAPodReady(pod -> labelValue.equals(pod.getMetadata().getLabels().get(labelName)));
+        return (ResourceCondition) () -> isAPodReady(pod -> labelValue.equals(pod.getMetadata().getLabels().get(labelName)));
     }
 
     public static BooleanSupplier areNPodsReady(String appName, int n) {
-        return () -> _areNPodsReady(pod -> appName.equals(pod.getMetadata().getLabels().get("name")), n);
+        return (ResourceCondition) () -> _areNPodsReady(pod -> appName.equals(pod.getMetadata().getLabels().get("name")), n);
     }
 
     public static BooleanSupplier areNPodsReady(final String labelName, final String labelValue, int n) {
-        return () -> _areNPodsReady(pod -> labelValue.equals(pod.getMetadata().getLabels().get(labelName)), n);
+        return (ResourceCondition) () -> _areNPodsReady(pod -> labelValue.equals(pod.getMetadata().getLabels().get(labelName)), n);
     }
 
     public static BooleanSupplier areExactlyNPodsReady(final String labelName, final String labelValue, int n) {
-        return () -> _areExactlyNPodsReady(pod -> labelValue.equals(pod.getMetadata().getLabels().get(labelName)), n);
+        return (ResourceCondition) () -> _areExactlyNPodsReady(pod -> labelValue.equals(pod.getMetadata().getLabels().get(labelName)), n);
     }
 
     public static BooleanSupplier areExactlyNPodsReady(String appName, int n) {
-        return () -> _areExactlyNPodsReady(pod -> appName.equals(pod.getMetadata().getLabels().get("name")), n);
+        return (ResourceCondition) () -> _areExactlyNPodsReady(pod -> appName.equals(pod.getMetadata().getLabels().get("name")), n);
     }
 
     public static BooleanSupplier areNPodsReady(Predicate<Pod> podFilter, int n) {
-        return () -> _areNPodsReady(podFilter, n);
+        return (ResourceCondition) () -> _areNPodsReady(podFilter, n);
     }
 
     public static BooleanSupplier areNoPodsPresent(final String appName) {
-        return () -> OpenShiftUtils.getInstance().getLabeledPods("syndesis.io/component", appName).size() == 0;
+        return (ResourceCondition) () -> cache().getPods().stream()
+                .noneMatch(pod -> pod.getMetadata().getLabels() != null && appName.equals(pod.getMetadata().getLabels().get("syndesis.io/component")));
     }
 
     public static BooleanSupplier areNoPodsPresent(Predicate<Pod> podFilter) {
-        return () -> openshift.getPods().stream().filter(podFilter).count() == 0;
+        return (ResourceCondition) () -> cache().getPods().stream().filter(podFilter).count() == 0;
     }
 
     public static BooleanSupplier hasPodRestarted(String appName) {
-        return () -> hasAnyPodRestarted(pod -> appName.equals(pod.getMetadata().getLabels().get("name")));
+        return (ResourceCondition) () -> hasAnyPodRestarted(pod -> appName.equals(pod.getMetadata().getLabels().get("name")));
     }
 
     public static BooleanSupplier hasPodRestarted(final String labelName, final String labelValue) {
-        return () -> hasAnyPodRestarted(pod -> labelValue.equals(pod.getMetadata().getLabels().get(labelName)));
+        return (ResourceCondition) () -> hasAnyPodRestarted(pod -> labelValue.equals(pod.getMetadata().getLabels().get(labelName)));
     }
 
     public static BooleanSupplier hasPodRestarted(Predicate<Pod> podFilter) {
-        return () -> hasAnyPodRestarted(podFilter);
+        return (ResourceCondition) () -> hasAnyPodRestarted(podFilter);
     }
 
     public static BooleanSupplier hasPodRestartedAtLeastNTimes(Predicate<Pod> podFilter, int n) {
-        return () -> openshift.getPods().stream().filter(podFilter).filter(p -> OpenShiftWaitUtils.hasPodRestartedAtLeastNTimes(p, n)).count() > 0;
+        return (ResourceCondition) () -> cache().getPods().stream().filter(podFilter).filter(p -> OpenShiftWaitUtils.hasPodRestartedAtLeastNTimes(p, n)).count() > 0;
     }
 
     public static BooleanSupplier conditionTrueForNIterations(BooleanSupplier condition, int iters) {
@@ -197,11 +204,28 @@ public class OpenShiftWaitUtils {
         throw new TimeoutException();
     }
 
+    /**
+     * Waits until the condition is true.
+     * <p>
+     * Conditions that are {@link ResourceCondition}s (all pod related conditions from this class) are evaluated against the watch based
+     * {@link OpenShiftResourceCache} and are re-evaluated when an event arrives instead of every interval.
+     *
+     * @param condition condition to wait for
+     * @param failCondition condition that ends the waiting prematurely, can be null
+     * @param interval interval between evaluations of the conditions in ms
+     * @param timeout timeout in ms
+     * @return true if the condition was fulfilled, false if the fail condition was fulfilled
+     * @throws InterruptedException when interrupted
+     * @throws TimeoutException when the condition is not fulfilled within the timeout
+     */
     public static boolean waitFor(BooleanSupplier condition, BooleanSupplier failCondition, long interval, long timeout) throws InterruptedException, TimeoutException {
 
         timeout = System.currentTimeMillis() + timeout;
 
+        final boolean eventDriven = condition instanceof ResourceCondition && (failCondition == null || failCondition instanceof ResourceCondition);
+
         while (System.currentTimeMillis() < timeout) {
+            final long generation = eventDriven ? cache().generation() : 0L;
 
             if (failCondition != null && failCondition.getAsBoolean()) {
                 return false;
@@ -211,7 +235,11 @@ public class OpenShiftWaitUtils {
                 return true;
             }
 
-            Thread.sleep(interval);
+            if (eventDriven && cache().isWatching()) {
+                cache().awaitChange(generation, Math.min(RESOURCE_CONDITION_INTERVAL, Math.max(0L, timeout - System.currentTimeMillis())));
+            } else {
+                Thread.sleep(interval);
+            }
         }
 
         throw new TimeoutException();
@@ -254,8 +282,8 @@ public class OpenShiftWaitUtils {
 
         String podPartialNextName = podPartialName + "-" + nextNr;
         log.info("Waiting for {} pod is reloaded", podPartialNextName);
-        waitFor(() -> (areExactlyNPods(podPartialNextName, 2).getAsBoolean()), 60 * 1000 * 10L);
-        waitFor(() -> isPodReady(OpenShiftUtils.getPodByPartialName(podPartialNextName).get()), 60 * 1000 * 10L);
+        waitFor(areExactlyNPods(podPartialNextName, 2), 60 * 1000 * 10L);
+        waitFor((ResourceCondition) () -> isPodReady(OpenShiftUtils.getPodByPartialName(cache().getPods(), podPartialNextName).get()), 60 * 1000 * 10L);
 
         //There was an issue with meta pod not listening straight after deploying - waiting a bit here
         // UI even gives 60s after integration gets into running state, lets go with 30 here
@@ -271,7 +299,7 @@ public class OpenShiftWaitUtils {
      */
     public static void waitUntilPodAppears(String podPartialName) {
         try {
-            waitFor(() -> isPodPresent(podPartialName), 5 * 60 * 1000);
+            waitFor((ResourceCondition) () -> isPodPresent(podPartialName), 5 * 60 * 1000);
         } catch (TimeoutException | InterruptedException e) {
             fail("Error thrown while checking if pod exists", e);
         }
@@ -279,8 +307,8 @@ public class OpenShiftWaitUtils {
 
     public static void waitUntilPodIsRunning(String podPartialName) {
         try {
-            waitFor(() -> isPodPresent(podPartialName), 5 * 60 * 1000);
-            waitFor(() -> isPodRunning(podPartialName), 5 * 60 * 1000);
+            waitFor((ResourceCondition) () -> isPodPresent(podPartialName), 5 * 60 * 1000);
+            waitFor((ResourceCondition) () -> isPodRunning(podPartialName), 5 * 60 * 1000);
 
         } catch (TimeoutException | InterruptedException e) {
             fail("Error thrown while checking if pod exists", e);
@@ -288,14 +316,14 @@ public class OpenShiftWaitUtils {
     }
 
     private static boolean isPodPresent(String podPartialName) {
-        return OpenShiftUtils.getPodByPartialName(podPartialName).isPresent();
+        return OpenShiftUtils.getPodByPartialName(cache().getPods(), podPartialName).isPresent();
     }
 
     /**
      * Check whether pod state is running, return false if pod is not present
      */
     private static boolean isPodRunning(String podPartialName) {
-        Optional<Pod> pod = OpenShiftUtils.getPodByPartialName(podPartialName);
+        Optional<Pod> pod = OpenShiftUtils.getPodByPartialName(cache().getPods(), podPartialName);
         return pod.filter(OpenShiftWaitUtils::isPodRunning).isPresent();
     }
 }
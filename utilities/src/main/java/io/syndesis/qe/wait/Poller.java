@@ -0,0 +1,163 @@
+package io.syndesis.qe.wait;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Polls a value until it satisfies a predicate, a deadline passes or the thread is interrupted.
+ * <p>
+ * The first probe is done immediately, the following ones are spaced by an interval that grows by the multiplier up to the max interval.
+ * With jitter enabled, each sleep is a random value between half and the full computed interval, so that parallel waits do not probe
+ * the same service in lockstep. All timing is based on {@link System#nanoTime()}.
+ * <p>
+ * Usage:
+ * <pre>
+ * boolean published = new Poller("integration published")
+ *     .timeout(TimeUnit.MINUTES, 9)
+ *     .interval(TimeUnit.SECONDS, 1)
+ *     .maxInterval(TimeUnit.SECONDS, 10)
+ *     .until(() -> isPublished());
+ * </pre>
+ */
+@Slf4j
+public class Poller {
+    private final String name;
+    private long timeoutNanos = TimeUnit.MINUTES.toNanos(5);
+    private long intervalNanos = TimeUnit.SECONDS.toNanos(1);
+    private long maxIntervalNanos = TimeUnit.SECONDS.toNanos(10);
+    private double multiplier = 2.0;
+    private boolean jitter = true;
+
+    public Poller(String name) {
+        this.name = name;
+    }
+
+    public Poller timeout(TimeUnit unit, long timeout) {
+        this.timeoutNanos = unit.toNanos(timeout);
+        return this;
+    }
+
+    /**
+     * Initial interval between the probes.
+     */
+    public Poller interval(TimeUnit unit, long interval) {
+        this.intervalNanos = unit.toNanos(interval);
+        return this;
+    }
+
+    /**
+     * Cap of the interval between the probes.
+     */
+    public Poller maxInterval(TimeUnit unit, long maxInterval) {
+        this.maxIntervalNanos = unit.toNanos(maxInterval);
+        return this;
+    }
+
+    /**
+     * Multiplier applied to the interval after each unsuccessful probe, 1 means fixed interval.
+     */
+    public Poller multiplier(double multiplier) {
+        if (multiplier < 1.0) {
+            throw new IllegalArgumentException("Multiplier must be >= 1, was " + multiplier);
+        }
+        this.multiplier = multiplier;
+        return this;
+    }
+
+    public Poller jitter(boolean jitter) {
+        this.jitter = jitter;
+        return this;
+    }
+
+    /**
+     * Fixed interval without backoff and jitter.
+     */
+    public Poller fixedInterval(TimeUnit unit, long interval) {
+        return interval(unit, interval).maxInterval(unit, interval).multiplier(1.0).jitter(false);
+    }
+
+    public boolean until(BooleanSupplier condition) {
+        return poll(condition::getAsBoolean, Boolean.TRUE::equals).isSuccess();
+    }
+
+    /**
+     * Polls the supplier until the predicate is satisfied.
+     *
+     * @param supplier supplier of the values to test
+     * @param predicate predicate
+     * @param <T> type of the tested value
+     * @return result containing the last value and the metrics of the wait
+     */
+    public <T> Result<T> poll(Supplier<T> supplier, Predicate<T> predicate) {
+        final long start = System.nanoTime();
+        final long deadline = start + timeoutNanos;
+        long interval = intervalNanos;
+        int attempts = 0;
+        T value;
+
+        while (true) {
+            value = supplier.get();
+            attempts++;
+            if (predicate.test(value)) {
+                return finish(new Result<>(true, false, value, attempts, System.nanoTime() - start));
+            }
+
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return finish(new Result<>(false, false, value, attempts, System.nanoTime() - start));
+            }
+
+            final long sleep = Math.min(remaining, jitter ? ThreadLocalRandom.current().nextLong(interval / 2, interval + 1) : interval);
+            try {
+                TimeUnit.NANOSECONDS.sleep(sleep);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return finish(new Result<>(false, true, value, attempts, System.nanoTime() - start));
+            }
+            interval = Math.min(maxIntervalNanos, (long) (interval * multiplier));
+        }
+    }
+
+    private <T> Result<T> finish(Result<T> result) {
+        if (result.isSuccess()) {
+            log.debug("Wait for '{}' succeeded after {} attempts in {} ms", name, result.getAttempts(), result.getElapsedMillis());
+        } else if (result.isInterrupted()) {
+            log.warn("Wait for '{}' was interrupted after {} attempts in {} ms", name, result.getAttempts(), result.getElapsedMillis());
+        } else {
+            log.warn("Wait for '{}' timed out after {} attempts in {} ms", name, result.getAttempts(), result.getElapsedMillis());
+        }
+        return result;
+    }
+
+    /**
+     * Outcome and metrics of a single wait.
+     *
+     * @param <T> type of the polled value
+     */
+    @Getter
+    public static class Result<T> {
+        private final boolean success;
+        private final boolean interrupted;
+        private final T value;
+        private final int attempts;
+        private final long elapsedNanos;
+
+        Result(boolean success, boolean interrupted, T value, int attempts, long elapsedNanos) {
+            this.success = success;
+            this.interrupted = interrupted;
+            this.value = value;
+            this.attempts = attempts;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        }
+    }
+}
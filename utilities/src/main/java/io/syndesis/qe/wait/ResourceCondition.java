@@ -0,0 +1,13 @@
+package io.syndesis.qe.wait;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Condition that depends only on the state of the resources in {@link OpenShiftResourceCache}.
+ * <p>
+ * {@link OpenShiftWaitUtils#waitFor(BooleanSupplier, BooleanSupplier, long, long)} does not poll such conditions, it re-evaluates them
+ * only when a watch event arrives.
+ */
+@FunctionalInterface
+public interface ResourceCondition extends BooleanSupplier {
+}
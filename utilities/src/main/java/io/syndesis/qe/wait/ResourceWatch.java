@@ -0,0 +1,141 @@
+package io.syndesis.qe.wait;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesResourceList;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Incrementally updated local copy of one resource kind in one namespace.
+ * <p>
+ * The cache is seeded by a single LIST call and then kept up to date by a watch started from the resource version of that list.
+ * When the watch is closed by the server (expired resource version, API server restart, ...) the cache is marked as not synced and
+ * {@link OpenShiftResourceCache} re-lists and re-watches it in the background. Until then {@link #items()} falls back to live listing,
+ * so the callers always see a consistent view.
+ *
+ * @param <T> watched resource type
+ */
+@Slf4j
+class ResourceWatch<T extends HasMetadata> implements Watcher<T> {
+    private final String kind;
+    private final Supplier<? extends KubernetesResourceList<T>> lister;
+    private final BiFunction<String, Watcher<T>, Watch> watcher;
+    private final OpenShiftResourceCache owner;
+
+    private final Map<String, T> items = new ConcurrentHashMap<>();
+    private volatile Watch watch;
+    private final AtomicBoolean synced = new AtomicBoolean(false);
+
+    ResourceWatch(String kind, Supplier<? extends KubernetesResourceList<T>> lister, BiFunction<String, Watcher<T>, Watch> watcher,
+        OpenShiftResourceCache owner) {
+        this.kind = kind;
+        this.lister = lister;
+        this.watcher = watcher;
+        this.owner = owner;
+    }
+
+    /**
+     * Re-lists the resources and (re)opens the watch.
+     *
+     * @return true if the cache is synced and watched, false if the watch could not be opened
+     */
+    synchronized boolean sync() {
+        stopWatch();
+        try {
+            final KubernetesResourceList<T> list = lister.get();
+            items.clear();
+            list.getItems().forEach(item -> items.put(item.getMetadata().getName(), item));
+            watch = watcher.apply(list.getMetadata().getResourceVersion(), this);
+            synced.set(true);
+            log.debug("Watching {} {} from resource version {}", items.size(), kind, list.getMetadata().getResourceVersion());
+        } catch (KubernetesClientException ex) {
+            log.warn("Unable to watch {}, falling back to listing: {}", kind, ex.getMessage());
+            synced.set(false);
+        }
+        owner.signal();
+        return synced.get();
+    }
+
+    boolean isSynced() {
+        return synced.get();
+    }
+
+    /**
+     * Snapshot of the cached resources, or a live list when the watch is not established.
+     *
+     * @return list of resources
+     */
+    List<T> items() {
+        if (synced.get()) {
+            return new ArrayList<>(items.values());
+        }
+        return lister.get().getItems();
+    }
+
+    @Override
+    public void eventReceived(Action action, T resource) {
+        switch (action) {
+            case ADDED:
+            case MODIFIED:
+                items.put(resource.getMetadata().getName(), resource);
+                break;
+            case DELETED:
+                items.remove(resource.getMetadata().getName());
+                break;
+            default:
+                log.debug("Received {} event for {}, resyncing", action, kind);
+                markBroken();
+                break;
+        }
+        owner.signal();
+    }
+
+    @Override
+    public void onClose(KubernetesClientException cause) {
+        if (cause == null) {
+            // closed by us
+            return;
+        }
+        log.debug("Watch for {} closed: {}", kind, cause.getMessage());
+        markBroken();
+        owner.signal();
+    }
+
+    /**
+     * Schedules a single resync for a broken watch. An ERROR event is followed by the close of the same watch, only the first of them
+     * schedules the resync, otherwise the re-list would run twice and the backoff would double.
+     */
+    private void markBroken() {
+        if (synced.compareAndSet(true, false)) {
+            owner.scheduleResync(this);
+        }
+    }
+
+    synchronized void close() {
+        synced.set(false);
+        stopWatch();
+        items.clear();
+    }
+
+    private void stopWatch() {
+        if (watch != null) {
+            watch.close();
+            watch = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return kind;
+    }
+}
@@ -0,0 +1,101 @@
+package io.syndesis.qe.endpoints;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import io.syndesis.common.model.ListResult;
+import io.syndesis.common.model.integration.Integration;
+import io.syndesis.common.util.Json;
+
+/**
+ * Compares the deserialization of a list response in {@link AbstractEndpoint} with the previous implementation, which parsed the
+ * response into a JsonNode, printed it, parsed it into a raw ListResult and then printed and parsed every item again.
+ * <p>
+ * Run by:
+ * <pre>
+ * mvn -pl utilities -P benchmark test-compile exec:exec
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ListDeserializationBenchmark {
+    @Param("1000")
+    private int items;
+
+    private byte[] payload;
+    // the JAX-RS provider reads the JsonNode with its own mapper
+    private ObjectMapper providerMapper;
+    private ObjectWriter itemWriter;
+
+    @Setup
+    public void setUp() throws IOException {
+        final List<Integration> integrations = IntStream.range(0, items)
+            .mapToObj(i -> new Integration.Builder()
+                .id("i-" + i)
+                .name("Integration " + i)
+                .description("Benchmark integration number " + i)
+                .addTag("benchmark")
+                .build())
+            .collect(Collectors.toList());
+        final AbstractEndpoint.ListPage<Integration> page = new AbstractEndpoint.ListPage<>();
+        page.setTotalCount(items);
+        page.setItems(integrations);
+        itemWriter = new ObjectMapper().registerModules(new Jdk8Module()).writer();
+        payload = itemWriter.writeValueAsBytes(page);
+
+        providerMapper = new ObjectMapper();
+    }
+
+    @Benchmark
+    public List<Integration> singlePass() {
+        final AbstractEndpoint.ListPage<Integration> page = AbstractEndpoint.read(new ByteArrayInputStream(payload),
+            AbstractEndpoint.listReaderFor(Integration.class));
+        return page.getItems();
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public List<Integration> previous() throws IOException {
+        final JsonNode response = providerMapper.readTree(payload);
+        final ListResult<Object> result = Json.reader().forType(ListResult.class).readValue(response.toString());
+        final List<Integration> list = new ArrayList<>();
+        for (int i = 0; i < result.getTotalCount(); i++) {
+            final String json = itemWriter.writeValueAsString(result.getItems().get(i));
+            list.add(Json.reader().forType(Integration.class).readValue(json));
+        }
+        return list;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ListDeserializationBenchmark.class.getSimpleName()).build()).run();
+    }
+}